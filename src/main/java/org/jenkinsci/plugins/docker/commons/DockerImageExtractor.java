@@ -23,9 +23,10 @@
  */
 package org.jenkinsci.plugins.docker.commons;
 
-import hudson.ExtensionList;
 import hudson.ExtensionPoint;
 import hudson.model.Job;
+import org.jenkinsci.plugins.docker.commons.credentials.ImageNameNormalizer;
+import org.jenkinsci.plugins.docker.commons.impl.DockerImageExtractorCache;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.util.Collection;
@@ -41,6 +42,9 @@ public abstract class DockerImageExtractor implements ExtensionPoint {
     /**
      * Provides a collection of repository names {@code namespace/name} that the job uses as seen by the implementing class.
      * Return an empty collection if none is found.
+     * Called as {@link hudson.security.ACL#SYSTEM2}, whoever is asking, possibly on the caller's thread and
+     * concurrently with the other extractors. What is returned is shared by all callers, so implementations must not
+     * check permissions of the current user; callers check that the job may be read.
      *
      * @param job the job being queried.
      * @return a collection of names, or an empty collection.
@@ -52,14 +56,31 @@ public abstract class DockerImageExtractor implements ExtensionPoint {
      * Provides a set of repository names {@code namespace/name} that the job uses as seen by all the declared {@link DockerImageExtractor}s.
      * Returns an empty set if none is found.
      *
+     * <p>
+     * The extractors are asked in parallel, and what they report is remembered until the job changes.
+     * An extractor which takes too long is left out.
+     *
      * @param job the job being queried.
      * @return a set of names, or an empty set.
      */
     @NonNull
     public static Set<String> getDockerImagesUsedByJobFromAll(@NonNull Job<?,?> job) {
+        return new TreeSet<String>(DockerImageExtractorCache.get(job));
+    }
+
+    /**
+     * Like {@link #getDockerImagesUsedByJobFromAll}, but with every name in {@linkplain ImageNameNormalizer#normalize canonical form},
+     * so that different spellings of one image are reported once.
+     *
+     * @param job the job being queried.
+     * @return a set of canonical image references, or an empty set.
+     * @since TODO
+     */
+    @NonNull
+    public static Set<String> getNormalizedDockerImagesUsedByJobFromAll(@NonNull Job<?,?> job) {
         Set<String> names = new TreeSet<String>();
-        for (DockerImageExtractor extractor : ExtensionList.lookup(DockerImageExtractor.class)) {
-            names.addAll(extractor.getDockerImagesUsedByJob(job));
+        for (String name : DockerImageExtractorCache.get(job)) {
+            names.add(ImageNameNormalizer.normalize(name));
         }
         return names;
     }
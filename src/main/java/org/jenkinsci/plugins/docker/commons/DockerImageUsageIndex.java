@@ -0,0 +1,460 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.docker.commons;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.XmlFile;
+import hudson.init.Terminator;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.RootAction;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.HttpResponses;
+import hudson.util.NamingThreadFactory;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.docker.commons.credentials.ImageNameNormalizer;
+import org.jenkinsci.plugins.docker.commons.impl.DockerImageExtractorCache;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.QueryParameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Knows which jobs use an image, as reported by {@link DockerImageExtractor#getNormalizedDockerImagesUsedByJobFromAll},
+ * without asking every job.
+ *
+ * <p>
+ * A job is looked at again in the background whenever it is saved or one of its builds completes. The index is kept
+ * in {@code JENKINS_HOME}, so that only jobs it does not know yet are looked at on startup, unless the installed
+ * {@link DockerImageExtractor}s changed since. Until then, and shortly after a change, answers may be out of date.
+ *
+ * <p>
+ * Also available as {@code JENKINS_URL/docker-images/jobs?image=...}.
+ *
+ * @since TODO
+ */
+public final class DockerImageUsageIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(DockerImageUsageIndex.class.getName());
+
+    /** Kill switch to stop maintaining the index. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ boolean DISABLED = Boolean.getBoolean(DockerImageUsageIndex.class.getName() + ".DISABLED");
+
+    /** How long to collect changes before saving the index. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ long SAVE_DELAY_SECONDS = Long.getLong(DockerImageUsageIndex.class.getName() + ".SAVE_DELAY_SECONDS", 10);
+
+    /** Guards the maps and {@link #saving}. */
+    private static final Object LOCK = new Object();
+    private static final Map<String, SortedSet<String>> IMAGES_BY_JOB = new HashMap<>();
+    private static final Map<String, SortedSet<String>> JOBS_BY_IMAGE = new HashMap<>();
+    private static ScheduledFuture<?> saving;
+
+    /** Full names of the jobs waiting to be looked at. */
+    private static final Set<String> PENDING = ConcurrentHashMap.newKeySet();
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), DockerImageUsageIndex.class.getSimpleName()));
+
+    private DockerImageUsageIndex() {} // no instantiation
+
+    /**
+     * @param image an image name, in any spelling {@link ImageNameNormalizer} understands
+     * @return the sorted full names of the jobs using it, including those the current user cannot see
+     */
+    @NonNull
+    public static Set<String> getJobsUsing(@NonNull String image) {
+        synchronized (LOCK) {
+            SortedSet<String> jobs = JOBS_BY_IMAGE.get(ImageNameNormalizer.normalize(image));
+            return jobs == null ? Collections.emptySortedSet() : Collections.unmodifiableSortedSet(new TreeSet<>(jobs));
+        }
+    }
+
+    /**
+     * @param job the full name of a job
+     * @return the canonical names of the images it uses, as last indexed
+     */
+    @NonNull
+    public static Set<String> getImagesUsedBy(@NonNull String job) {
+        synchronized (LOCK) {
+            SortedSet<String> images = IMAGES_BY_JOB.get(job);
+            return images == null ? Collections.emptySortedSet() : Collections.unmodifiableSortedSet(new TreeSet<>(images));
+        }
+    }
+
+    /**
+     * Looks at {@code job} again in the background, unless that is already pending.
+     */
+    static void schedule(@NonNull Job<?, ?> job) {
+        if (DISABLED) {
+            return;
+        }
+        // the cache may not have heard of the change yet
+        DockerImageExtractorCache.invalidate(job);
+        String name = job.getFullName();
+        if (PENDING.add(name)) {
+            EXECUTOR.submit(() -> {
+                PENDING.remove(name);
+                update(name);
+            });
+        }
+    }
+
+    private static void update(String name) {
+        try (ACLContext context = ACL.as2(ACL.SYSTEM2)) {
+            Job<?, ?> job = Jenkins.get().getItemByFullName(name, Job.class);
+            if (job == null) {
+                remove(name);
+            } else {
+                put(name, DockerImageExtractor.getNormalizedDockerImagesUsedByJobFromAll(job));
+            }
+        } catch (RuntimeException x) {
+            LOGGER.log(Level.WARNING, "Could not index the images used by " + name, x);
+        }
+    }
+
+    private static void put(String job, Set<String> images) {
+        synchronized (LOCK) {
+            // jobs without images are kept as well, so that they are not looked at again on startup
+            SortedSet<String> old = IMAGES_BY_JOB.get(job);
+            if (images.equals(old)) {
+                return;
+            }
+            unlink(job, old);
+            IMAGES_BY_JOB.put(job, new TreeSet<>(images));
+            for (String image : images) {
+                JOBS_BY_IMAGE.computeIfAbsent(image, k -> new TreeSet<>()).add(job);
+            }
+            changed();
+        }
+    }
+
+    /**
+     * Forgets {@code name} and, as a folder, everything in it.
+     */
+    static void remove(@NonNull String name) {
+        synchronized (LOCK) {
+            boolean changed = false;
+            for (Iterator<Map.Entry<String, SortedSet<String>>> it = IMAGES_BY_JOB.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, SortedSet<String>> entry = it.next();
+                if (within(entry.getKey(), name)) {
+                    it.remove();
+                    unlink(entry.getKey(), entry.getValue());
+                    changed = true;
+                }
+            }
+            if (changed) {
+                changed();
+            }
+        }
+    }
+
+    /**
+     * Moves {@code oldName} and, as a folder, everything in it.
+     */
+    static void rename(@NonNull String oldName, @NonNull String newName) {
+        synchronized (LOCK) {
+            Map<String, SortedSet<String>> moved = new HashMap<>();
+            for (Iterator<Map.Entry<String, SortedSet<String>>> it = IMAGES_BY_JOB.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, SortedSet<String>> entry = it.next();
+                if (within(entry.getKey(), oldName)) {
+                    it.remove();
+                    unlink(entry.getKey(), entry.getValue());
+                    moved.put(newName + entry.getKey().substring(oldName.length()), entry.getValue());
+                }
+            }
+            if (moved.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<String, SortedSet<String>> entry : moved.entrySet()) {
+                IMAGES_BY_JOB.put(entry.getKey(), entry.getValue());
+                for (String image : entry.getValue()) {
+                    JOBS_BY_IMAGE.computeIfAbsent(image, k -> new TreeSet<>()).add(entry.getKey());
+                }
+            }
+            changed();
+        }
+    }
+
+    private static boolean within(String job, String name) {
+        return job.startsWith(name) && (job.length() == name.length() || job.charAt(name.length()) == '/');
+    }
+
+    /** Call with {@link #LOCK} held. */
+    private static void unlink(String job, @CheckForNull Set<String> images) {
+        if (images == null) {
+            return;
+        }
+        for (String image : images) {
+            SortedSet<String> jobs = JOBS_BY_IMAGE.get(image);
+            if (jobs != null && jobs.remove(job) && jobs.isEmpty()) {
+                JOBS_BY_IMAGE.remove(image);
+            }
+        }
+    }
+
+    /** Call with {@link #LOCK} held. */
+    private static void changed() {
+        if (saving == null || saving.isDone()) {
+            saving = Timer.get().schedule(DockerImageUsageIndex::save, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static XmlFile getConfigFile() {
+        return new XmlFile(Jenkins.XSTREAM2, new File(Jenkins.get().getRootDir(), DockerImageUsageIndex.class.getName() + ".xml"));
+    }
+
+    private static List<String> extractors() {
+        List<String> extractors = new ArrayList<>();
+        for (DockerImageExtractor extractor : ExtensionList.lookup(DockerImageExtractor.class)) {
+            extractors.add(extractor.getClass().getName());
+        }
+        Collections.sort(extractors);
+        return extractors;
+    }
+
+    /**
+     * Writes the index out now.
+     */
+    static void save() {
+        Persisted persisted;
+        synchronized (LOCK) {
+            if (saving != null) {
+                saving.cancel(false);
+                saving = null;
+            }
+            persisted = new Persisted(extractors(), new TreeMap<>(IMAGES_BY_JOB));
+        }
+        try {
+            getConfigFile().write(persisted);
+        } catch (IOException x) {
+            LOGGER.log(Level.WARNING, "Could not save the Docker image usage index", x);
+        }
+    }
+
+    /**
+     * Reads the index back, and looks at the jobs it does not know, or at all of them if the extractors changed.
+     */
+    static void load() {
+        if (DISABLED) {
+            return;
+        }
+        Persisted persisted = null;
+        XmlFile file = getConfigFile();
+        if (file.exists()) {
+            try {
+                persisted = (Persisted) file.read();
+            } catch (IOException | RuntimeException x) {
+                LOGGER.log(Level.WARNING, "Could not load the Docker image usage index; rebuilding it", x);
+            }
+        }
+        boolean current = persisted != null && persisted.images != null && extractors().equals(persisted.extractors);
+        List<Job<?, ?>> unknown = new ArrayList<>();
+        synchronized (LOCK) {
+            IMAGES_BY_JOB.clear();
+            JOBS_BY_IMAGE.clear();
+            Set<String> names = new HashSet<>();
+            for (Job<?, ?> job : Jenkins.get().allItems(Job.class)) {
+                String name = job.getFullName();
+                names.add(name);
+                List<String> images = current ? persisted.images.get(name) : null;
+                if (images == null) {
+                    unknown.add(job);
+                } else {
+                    IMAGES_BY_JOB.put(name, new TreeSet<>(images));
+                    for (String image : images) {
+                        JOBS_BY_IMAGE.computeIfAbsent(image, k -> new TreeSet<>()).add(name);
+                    }
+                }
+            }
+            if (!current || !names.containsAll(persisted.images.keySet())) {
+                changed();
+            }
+        }
+        LOGGER.log(Level.FINE, "Loaded the images of {0} jobs; looking at {1} more", new Object[] {IMAGES_BY_JOB.size(), unknown.size()});
+        for (Job<?, ?> job : unknown) {
+            schedule(job);
+        }
+    }
+
+    /**
+     * Waits for the jobs scheduled so far to be looked at.
+     */
+    static void awaitUpdates() throws InterruptedException, ExecutionException {
+        EXECUTOR.submit(() -> {}).get();
+    }
+
+    @Terminator
+    public static void saveOnShutdown() {
+        boolean pending;
+        synchronized (LOCK) {
+            pending = saving != null;
+        }
+        if (pending) {
+            save();
+        }
+    }
+
+    /**
+     * What is kept on disk, along with the extractors which found it.
+     */
+    private static final class Persisted {
+        private final List<String> extractors;
+        private final Map<String, List<String>> images;
+
+        Persisted(List<String> extractors, Map<String, SortedSet<String>> images) {
+            this.extractors = extractors;
+            this.images = new TreeMap<>();
+            for (Map.Entry<String, SortedSet<String>> entry : images.entrySet()) {
+                this.images.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+    }
+
+    @Restricted(NoExternalUse.class)
+    @Extension
+    public static final class JobListener extends ItemListener {
+        @Override
+        public void onLoaded() {
+            load();
+        }
+
+        @Override
+        public void onCreated(Item item) {
+            if (item instanceof Job<?, ?> job) {
+                schedule(job);
+            }
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            remove(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            rename(oldFullName, newFullName);
+        }
+    }
+
+    @Restricted(NoExternalUse.class)
+    @Extension
+    public static final class JobSaveListener extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof Job<?, ?> job) {
+                schedule(job);
+            }
+        }
+    }
+
+    @Restricted(NoExternalUse.class)
+    @Extension
+    public static final class BuildListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onCompleted(Run<?, ?> run, @NonNull TaskListener listener) {
+            schedule(run.getParent());
+        }
+    }
+
+    /**
+     * Serves {@code JENKINS_URL/docker-images/jobs?image=...}, listing the jobs the current user can see.
+     */
+    @Restricted(NoExternalUse.class)
+    @Extension
+    public static final class UsageAction implements RootAction {
+
+        @Override
+        public String getIconFileName() {
+            return null;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Docker Image Usage";
+        }
+
+        @Override
+        public String getUrlName() {
+            return "docker-images";
+        }
+
+        public HttpResponse doJobs(@QueryParameter String image) {
+            if (image == null || image.isEmpty()) {
+                return HttpResponses.errorJSON("Missing image parameter");
+            }
+            JSONArray jobs = new JSONArray();
+            Jenkins jenkins = Jenkins.get();
+            for (String name : getJobsUsing(image)) {
+                Job<?, ?> job;
+                // looked up as SYSTEM, as items which may be discovered but not read would be refused with an exception
+                try (ACLContext context = ACL.as2(ACL.SYSTEM2)) {
+                    job = jenkins.getItemByFullName(name, Job.class);
+                }
+                if (job != null && job.hasPermission(Item.READ)) {
+                    jobs.add(new JSONObject().element("name", name).element("url", job.getUrl()));
+                }
+            }
+            return HttpResponses.okJSON(new JSONObject().element("image", ImageNameNormalizer.normalize(image)).element("jobs", jobs));
+        }
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import com.cloudbees.plugins.credentials.CredentialsNameProvider;
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import com.cloudbees.plugins.credentials.common.StandardListBoxModel;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Item;
+import hudson.util.HttpResponses;
+import hudson.util.ListBoxModel;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.HttpResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Remembers, per item and user, which credentials the endpoint configuration forms offer, so that opening a form does not
+ * look up and convert every credential in reach each time.
+ *
+ * <p>
+ * Listings are dropped whenever a credentials store is saved, along with {@link CredentialsResolutionCache}, and
+ * after {@code TTL_SECONDS} for the sake of credentials providers which are not stored in Jenkins. At most
+ * {@code MAX_ITEMS} listings are kept, the least recently used going first.
+ */
+@Restricted(NoExternalUse.class)
+final class CredentialsListingIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(CredentialsListingIndex.class.getName());
+
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ long TTL_SECONDS = Long.getLong(CredentialsListingIndex.class.getName() + ".TTL_SECONDS", 300);
+
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int MAX_ITEMS = Integer.getInteger(CredentialsListingIndex.class.getName() + ".MAX_ITEMS", 1000);
+
+    /** The most {@link #search} returns at once. */
+    static final int MAX_PAGE = 100;
+
+    private static final Map<List<String>, Listing> INDEX = new LinkedHashMap<List<String>, Listing>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<String>, Listing> eldest) {
+            return size() > MAX_ITEMS;
+        }
+    };
+
+    /** Bumped whenever credentials may have changed; listings from an older generation are ignored. */
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    private CredentialsListingIndex() {} // no instantiation
+
+    /**
+     * @param item the item being configured, or null for global configuration; listings are kept per current user too
+     * @param kind what is being listed, including whatever {@code lookup} depends on besides {@code item}
+     * @param lookup finds the credentials to offer
+     * @return the credentials to offer, in the order found
+     */
+    @NonNull
+    static List<Entry> entries(@CheckForNull Item item, @NonNull String kind, @NonNull Supplier<? extends Iterable<? extends IdCredentials>> lookup) {
+        // lookups include the credentials of the current user, which must not be offered to others
+        List<String> key = Arrays.asList(item == null ? "" : item.getFullName(), kind, Jenkins.getAuthentication2().getName());
+        long generation = GENERATION.get();
+        long now = System.nanoTime();
+        Listing listing;
+        synchronized (INDEX) {
+            listing = INDEX.get(key);
+        }
+        if (listing != null && listing.generation == generation && now - listing.built < TimeUnit.SECONDS.toNanos(TTL_SECONDS)) {
+            return listing.entries;
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (IdCredentials c : lookup.get()) {
+            entries.add(new Entry(c.getId(), CredentialsNameProvider.name(c)));
+        }
+        entries = Collections.unmodifiableList(entries);
+        LOGGER.log(Level.FINE, "Indexed {0} credentials for {1}", new Object[] {entries.size(), key});
+        synchronized (INDEX) {
+            INDEX.put(key, new Listing(entries, generation, now));
+        }
+        return entries;
+    }
+
+    /**
+     * @return the entries as offered by a {@code c:select}
+     */
+    @NonNull
+    static ListBoxModel fill(@NonNull List<Entry> entries) {
+        StandardListBoxModel model = new StandardListBoxModel();
+        model.withEmptySelection();
+        for (Entry entry : entries) {
+            model.add(entry.name, entry.id);
+        }
+        return model;
+    }
+
+    /**
+     * Pages through the entries whose ID or name contains {@code query}, ignoring case.
+     *
+     * @return a JSON response whose data is {@code {"total": <matches>, "credentials": [{"id": ..., "name": ...}, ...]}}
+     */
+    @NonNull
+    static HttpResponse search(@NonNull List<Entry> entries, @CheckForNull String query, int offset, int limit) {
+        String needle = query == null ? "" : query.trim().toLowerCase(Locale.ENGLISH);
+        int from = Math.max(offset, 0);
+        int to = from + (limit <= 0 ? 20 : Math.min(limit, MAX_PAGE));
+        JSONArray page = new JSONArray();
+        int total = 0;
+        for (Entry entry : entries) {
+            if (needle.isEmpty() || entry.id.toLowerCase(Locale.ENGLISH).contains(needle)
+                    || entry.name.toLowerCase(Locale.ENGLISH).contains(needle)) {
+                if (total >= from && total < to) {
+                    page.add(new JSONObject().element("id", entry.id).element("name", entry.name));
+                }
+                total++;
+            }
+        }
+        return HttpResponses.okJSON(new JSONObject().element("total", total).element("credentials", page));
+    }
+
+    /**
+     * Forgets all listings.
+     */
+    static void invalidateAll() {
+        GENERATION.incrementAndGet();
+    }
+
+    static final class Entry {
+
+        final String id;
+        final String name;
+
+        Entry(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    private static final class Listing {
+
+        final List<Entry> entries;
+        final long generation;
+        final long built;
+
+        Listing(List<Entry> entries, long generation, long built) {
+            this.entries = entries;
+            this.generation = generation;
+            this.built = built;
+        }
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.domains.DomainRequirement;
+import com.cloudbees.plugins.credentials.domains.HostnamePortRequirement;
+import com.cloudbees.plugins.credentials.domains.HostnameRequirement;
+import com.cloudbees.plugins.credentials.domains.PathRequirement;
+import com.cloudbees.plugins.credentials.domains.SchemeRequirement;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.ItemGroup;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.User;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Memoizes credentials resolution for the duration of a {@link Run}, so that steps repeatedly wrapped in
+ * {@code withRegistry}/{@code withServer} do not go back to the credentials providers every time.
+ *
+ * <p>
+ * Entries are keyed by credentials ID, domain requirements and the requested type, and are dropped as soon as a
+ * credentials store is saved or the run completes.
+ */
+@Restricted(NoExternalUse.class)
+public final class CredentialsResolutionCache {
+
+    private static final Logger LOGGER = Logger.getLogger(CredentialsResolutionCache.class.getName());
+
+    /** Kill switch to resolve credentials on every call. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ boolean DISABLED = Boolean.getBoolean(CredentialsResolutionCache.class.getName() + ".DISABLED");
+
+    private static final Map<Run<?, ?>, Map<Key, Entry>> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /** Bumped whenever credentials may have changed; entries from an older generation are ignored. */
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private CredentialsResolutionCache() {} // no instantiation
+
+    /**
+     * Looks up a previously resolved value, calling {@code resolver} if there is none.
+     *
+     * @param run the run the credentials are being resolved for; if null nothing is cached
+     * @param credentialsId the ID of the credentials
+     * @param type the type of the value returned by {@code resolver}
+     * @param requirements the domain requirements used by {@code resolver}
+     * @param resolver does the actual resolution; a null result is cached as well
+     * @return the value, possibly cached
+     */
+    @CheckForNull
+    static <T> T resolve(@CheckForNull Run<?, ?> run, @NonNull String credentialsId, @NonNull Class<T> type,
+                         @NonNull List<DomainRequirement> requirements, @NonNull Supplier<T> resolver) {
+        if (run == null || DISABLED) {
+            return resolver.get();
+        }
+        Key key = new Key(credentialsId, type, requirements);
+        long generation = GENERATION.get();
+        Entry entry;
+        synchronized (CACHE) {
+            Map<Key, Entry> entries = CACHE.get(run);
+            entry = entries != null ? entries.get(key) : null;
+        }
+        if (entry != null && entry.generation == generation) {
+            HITS.incrementAndGet();
+            LOGGER.log(Level.FINER, "Using cached resolution of {0} for {1}", new Object[] {credentialsId, run});
+            return type.cast(entry.value);
+        }
+        MISSES.incrementAndGet();
+        T value = resolver.get();
+        if (!expiring(value)) {
+            synchronized (CACHE) {
+                CACHE.computeIfAbsent(run, r -> new HashMap<>()).put(key, new Entry(value, generation));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return how many resolutions were served from the cache since startup
+     */
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    /**
+     * @return how many resolutions had to go to the credentials providers since startup
+     */
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    /**
+     * Forgets everything resolved so far.
+     */
+    public static void invalidateAll() {
+        GENERATION.incrementAndGet();
+        RegistryTokenCache.invalidateAll();
+        ManifestDigestResolver.invalidateAll();
+        CredentialsListingIndex.invalidateAll();
+    }
+
+    /**
+     * Short-lived tokens must not be held for the whole run; {@link RegistryTokenCache} takes care of them instead,
+     * and needs to see every use to know which ones to refresh.
+     */
+    private static boolean expiring(@CheckForNull Object value) {
+        return value instanceof DockerRegistryToken token && token.getExpiration() != null;
+    }
+
+    /**
+     * Describes a requirement by value, as the credentials API types do not implement {@code equals}.
+     * Unknown types are described by identity so they never produce false hits.
+     */
+    private static String describe(DomainRequirement requirement) {
+        if (requirement instanceof HostnamePortRequirement r) {
+            return "hostname-port:" + r.getHostname() + ":" + r.getPort();
+        } else if (requirement instanceof HostnameRequirement r) {
+            return "hostname:" + r.getHostname();
+        } else if (requirement instanceof SchemeRequirement r) {
+            return "scheme:" + r.getScheme();
+        } else if (requirement instanceof PathRequirement r) {
+            return "path:" + r.getPath();
+        } else if (requirement instanceof DockerServerDomainRequirement) {
+            return "docker-server";
+        }
+        return requirement.getClass().getName() + "@" + System.identityHashCode(requirement);
+    }
+
+    private static final class Key {
+        private final String credentialsId;
+        private final Class<?> type;
+        private final List<String> requirements;
+
+        Key(String credentialsId, Class<?> type, List<DomainRequirement> requirements) {
+            this.credentialsId = credentialsId;
+            this.type = type;
+            this.requirements = new ArrayList<>(requirements.size());
+            for (DomainRequirement requirement : requirements) {
+                this.requirements.add(describe(requirement));
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return credentialsId.equals(that.credentialsId) && type == that.type && requirements.equals(that.requirements);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = credentialsId.hashCode();
+            hash = 31 * hash + type.hashCode();
+            hash = 31 * hash + requirements.hashCode();
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final @CheckForNull Object value;
+        private final long generation;
+
+        Entry(@CheckForNull Object value, long generation) {
+            this.value = value;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Invalidates the cache whenever something that may hold a credentials store is saved.
+     */
+    @Extension
+    public static final class CredentialsChangeListener extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof SystemCredentialsProvider || o instanceof ItemGroup || o instanceof User) {
+                invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Drops the entries of a run as soon as it is over.
+     */
+    @Extension
+    public static final class RunCompletionListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onFinalized(Run<?, ?> run) {
+            Map<Key, Entry> entries = CACHE.remove(run);
+            if (entries != null) {
+                LOGGER.log(Level.FINE, "Dropped {0} cached credentials resolutions of {1}; {2} hits and {3} misses overall",
+                        new Object[] {entries.size(), run, HITS.get(), MISSES.get()});
+            }
+        }
+    }
+
+}
@@ -23,6 +23,7 @@
  */
 package org.jenkinsci.plugins.docker.commons.credentials;
 
+import com.cloudbees.plugins.credentials.CredentialsMatchers;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.common.IdCredentials;
 import com.cloudbees.plugins.credentials.common.StandardCredentials;
@@ -40,30 +41,45 @@ import hudson.Launcher;
 import hudson.Util;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractDescribableImpl;
+import hudson.model.Cause;
 import hudson.model.Describable;
 import hudson.model.Descriptor;
 import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Node;
+import hudson.model.Queue;
 import hudson.model.Run;
 import hudson.model.TaskListener;
+import hudson.model.queue.Tasks;
 import hudson.remoting.VirtualChannel;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
 import hudson.slaves.WorkspaceList;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
 import jenkins.authentication.tokens.api.AuthenticationTokens;
 import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.docker.commons.impl.RegistryMirrorSelector;
 import org.jenkinsci.plugins.docker.commons.tools.DockerTool;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.QueryParameter;
+import org.springframework.security.core.Authentication;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static com.cloudbees.plugins.credentials.CredentialsMatchers.allOf;
 import static com.cloudbees.plugins.credentials.CredentialsMatchers.firstOrNull;
@@ -81,35 +97,34 @@ import static org.jenkinsci.plugins.docker.commons.credentials.ImageNameValidato
  */
 public class DockerRegistryEndpoint extends AbstractDescribableImpl<DockerRegistryEndpoint> {
 
-    /**
-     * Some regex magic to parse docker registry:port/namespace/name:tag into parts, using the same constraints as
-     * docker push.
-     * 
-     * registry must not contain /, may contain dashes and must contain a .
-     * 
-     * everything but name is optional
-     * 
-     * See also https://github.com/docker/distribution/blob/release/2.7/reference/regexp.go
-     */
-    private static final Pattern DOCKER_REGISTRY_PATTERN = Pattern
-        .compile("^" +
-            // Domain
-            "(?:([a-zA-Z0-9]+(?:(?:[-.][a-zA-Z0-9]+)+)?(?::([0-9]+))?)/)?" +
-            // Repo
-            "([a-z0-9-_.]+)(?:/([a-z0-9-_.]+))*" +
-            // Tag
-            "(:[a-zA-Z0-9-_.]+)?" +
-            // Digest
-            "(@[A-Za-z][A-Za-z0-9]*(?:[-_+.][A-Za-z][A-Za-z0-9]*)*[:][A-Za-z0-9]*)?$");
-    
-
     private static final Logger LOGGER = Logger.getLogger(DockerRegistryEndpoint.class.getName());
 
+    private static final String DOCKER_HUB_URL = "https://index.docker.io/v1/";
+
+    /** Where Docker Hub serves the registry API, as opposed to {@link #DOCKER_HUB_URL} used to log in. */
+    private static final String DOCKER_HUB_API_URL = "https://registry-1.docker.io/";
+
     /**
      * Null if this is on the public docker hub.
      */
     private final String url;
     private final @CheckForNull String credentialsId;
+    private @CheckForNull List<RegistryMirror> mirrors;
+
+    /**
+     * For an endpoint returned by {@link #getMirrorsFor}, the registry it mirrors; not persisted.
+     */
+    private transient @CheckForNull DockerRegistryEndpoint origin;
+
+    /**
+     * {@link #url} parsed once, on first use; not persisted.
+     */
+    private transient volatile Resolved resolved;
+
+    /**
+     * Cached {@link #hashCode}, or 0 if not computed yet.
+     */
+    private transient int hash;
 
     @DataBoundConstructor
     public DockerRegistryEndpoint(String url, String credentialsId) {
@@ -128,38 +143,29 @@ public class DockerRegistryEndpoint extends AbstractDescribableImpl<DockerRegist
      * @throws IllegalArgumentException
      *             if string can't be parsed
      * @return The DockerRegistryEndpoint corresponding to the registry:port part of the string
+     * @see ImageReference
      */
     public static DockerRegistryEndpoint fromImageName(String s, @CheckForNull String credentialsId) {
-        Matcher matcher = DOCKER_REGISTRY_PATTERN.matcher(s);
-        if (!matcher.matches() || matcher.groupCount() < 5) {
-            throw new IllegalArgumentException(s + " does not match regex " + DOCKER_REGISTRY_PATTERN);
-        }
-        String url;
-        try {
-            // docker push always uses https
-            String domain = matcher.group(1);
-            url = (domain == null || !(domain.contains(".") || domain.contains(":") || "localhost".equalsIgnoreCase(domain))) 
-                ? null
-                : new URL("https://" + matcher.group(1)).toString();
-        } catch (MalformedURLException e) {
-            throw new IllegalArgumentException(s + " can not be parsed as URL: " + e.getMessage());
-        }
-        // not used, but could be
-        /*String namespace = matcher.group(4);
-        String repoName = matcher.group(5);
-        String tag = matcher.group(7);*/
-        return new DockerRegistryEndpoint(url, credentialsId);
+        String registry = ImageReference.parse(s).getRegistry();
+        // docker push always uses https
+        return new DockerRegistryEndpoint(registry == null ? null : "https://" + registry, credentialsId);
     }
 
     /**
      * Gets the endpoint URL, such as "https://index.docker.io/v1/"
      */
     public @NonNull URL getEffectiveUrl() throws IOException {
-        if (url != null) {
-            return new URL(url);
-        } else {
-            return new URL("https://index.docker.io/v1/");
+        return resolve().url;
+    }
+
+    private @NonNull Resolved resolve() throws MalformedURLException {
+        Resolved r = resolved;
+        if (r == null) {
+            // racy but idempotent; a malformed URL is not cached, and fails again on every call
+            r = new Resolved(url != null ? url : DOCKER_HUB_URL);
+            resolved = r;
         }
+        return r;
     }
 
     /**
@@ -176,6 +182,49 @@ public class DockerRegistryEndpoint extends AbstractDescribableImpl<DockerRegist
         return credentialsId;
     }
 
+    /**
+     * Pull-through caches of this registry.
+     *
+     * @since TODO
+     */
+    public @NonNull List<RegistryMirror> getMirrors() {
+        return mirrors == null ? Collections.emptyList() : Collections.unmodifiableList(mirrors);
+    }
+
+    /**
+     * @since TODO
+     */
+    @DataBoundSetter
+    public void setMirrors(@CheckForNull List<RegistryMirror> mirrors) {
+        this.mirrors = mirrors == null || mirrors.isEmpty() ? null : new ArrayList<>(mirrors);
+        this.hash = 0;
+    }
+
+    /**
+     * Picks the {@linkplain #getMirrors mirrors} to pull through on an agent: those meant for it by label first,
+     * then the others it can reach, fastest first.
+     * The endpoints returned use the same credentials ID, looked up against the domain of each mirror, and their
+     * {@link #imageName} names images on the mirror.
+     *
+     * @param agent the agent docker(1) runs on
+     * @return endpoints to try in turn, should one fail, ending with this one
+     * @since TODO
+     */
+    public @NonNull List<DockerRegistryEndpoint> getMirrorsFor(@NonNull Node agent) throws InterruptedException {
+        if (mirrors == null) {
+            return Collections.singletonList(this);
+        }
+        List<String> ranked = RegistryMirrorSelector.rank(agent, mirrors);
+        List<DockerRegistryEndpoint> endpoints = new ArrayList<>(ranked.size() + 1);
+        for (String mirrorUrl : ranked) {
+            DockerRegistryEndpoint mirror = new DockerRegistryEndpoint(mirrorUrl, credentialsId);
+            mirror.origin = this;
+            endpoints.add(mirror);
+        }
+        endpoints.add(this);
+        return endpoints;
+    }
+
     /**
      * Plugins that want to refer to a {@link IdCredentials} should do so via ID string,
      * and use this method to resolve it and convert to {@link DockerRegistryToken}.
@@ -201,7 +250,8 @@ public class DockerRegistryEndpoint extends AbstractDescribableImpl<DockerRegist
 
         List<DomainRequirement> requirements = Collections.emptyList();
         try {
-            requirements = Collections.<DomainRequirement>singletonList(new HostnameRequirement(getEffectiveUrl().getHost()));
+            // mirrors use the same credentials ID, but only credentials also meant for the mirror's own host are sent to it
+            requirements = resolve().requirements;
         } catch (IOException e) {
             // shrug off this error and move on. We are matching with ID anyway.
             LOGGER.log(Level.FINE, "Unable to add domain requirement for endpoint URL", e);
@@ -229,13 +279,55 @@ public class DockerRegistryEndpoint extends AbstractDescribableImpl<DockerRegist
 
         List<DomainRequirement> requirements = Collections.emptyList();
         try {
-            requirements = Collections.<DomainRequirement>singletonList(new HostnameRequirement(getEffectiveUrl().getHost()));
+            // mirrors use the same credentials ID, but only credentials also meant for the mirror's own host are sent to it
+            requirements = resolve().requirements;
         } catch (IOException e) {
             LOGGER.log(Level.FINE, "Unable to add domain requirement for endpoint URL", e);
         }
 
-        return AuthenticationTokens.convert(DockerRegistryToken.class,
-                CredentialsProvider.findCredentialById(credentialsId, IdCredentials.class, context, requirements));
+        final List<DomainRequirement> domainRequirements = requirements;
+        Supplier<DockerRegistryToken> minter = () -> AuthenticationTokens.convert(DockerRegistryToken.class,
+                CredentialsProvider.findCredentialById(credentialsId, IdCredentials.class, context, domainRequirements));
+        if (context != null) {
+            // short-lived tokens are shared by the runs of a job running as the same user, and refreshed ahead of their expiration
+            Job<?, ?> job = context.getParent();
+            String authentication = authenticationOf(job).getName();
+            Cause.UserIdCause cause = context.getCause(Cause.UserIdCause.class);
+            String user = cause != null && cause.getUserId() != null ? cause.getUserId() : "";
+            List<String> key = Arrays.asList(job.getFullName(), credentialsId, getUrl(), authentication, user);
+            Supplier<DockerRegistryToken> mint = minter;
+            Supplier<DockerRegistryToken> refresher = refresher(context.getExternalizableId(), credentialsId, domainRequirements, authentication);
+            minter = () -> RegistryTokenCache.get(key, mint, refresher);
+        }
+        return CredentialsResolutionCache.resolve(context, credentialsId, DockerRegistryToken.class, domainRequirements, minter);
+    }
+
+    /**
+     * @return the authentication {@link CredentialsProvider#findCredentialById(String, Class, Run, List)} looks
+     *         credentials up with for the runs of {@code job}
+     */
+    private static @NonNull Authentication authenticationOf(@NonNull Job<?, ?> job) {
+        return job instanceof Queue.Task task ? Tasks.getAuthenticationOf2(task) : ACL.SYSTEM2;
+    }
+
+    /**
+     * Mints tokens again for {@link RegistryTokenCache}, in the background, resolving the credentials just like
+     * {@link #getToken(Run)} did for the run that last used the token. Only its ID is held on to; nothing is minted
+     * if the run is gone or its job now runs as somebody else.
+     */
+    private static @NonNull Supplier<DockerRegistryToken> refresher(@NonNull String runId, @NonNull String credentialsId,
+                                                                    @NonNull List<DomainRequirement> requirements, @NonNull String authentication) {
+        return () -> {
+            Run<?, ?> run;
+            try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+                run = Run.fromExternalizableId(runId);
+            }
+            if (run == null || !authenticationOf(run.getParent()).getName().equals(authentication)) {
+                return null;
+            }
+            return AuthenticationTokens.convert(DockerRegistryToken.class,
+                    CredentialsProvider.findCredentialById(credentialsId, IdCredentials.class, run, requirements));
+        };
     }
 
     /**
@@ -333,35 +425,98 @@ public class DockerRegistryEndpoint extends AbstractDescribableImpl<DockerRegist
             throw validation;
         }
 
+        if (origin != null) {
+            return mirrorImageName(userAndRepo);
+        }
         if (url == null) {
             return userAndRepo;
         }
-        URL effectiveUrl = getEffectiveUrl();
+        Resolved r = resolve();
+        if (userAndRepo.startsWith(r.authority)) {
+            return userAndRepo;
+        }
+        return r.prefix.concat(userAndRepo);
+    }
 
-        StringBuilder s = new StringBuilder(effectiveUrl.getHost());
-        if (effectiveUrl.getPort() > 0 ) {
-            s.append(':').append(effectiveUrl.getPort());
+    /**
+     * Looks up which digest a tag currently points to, without pulling the image, e.g. to pin a deployment.
+     * Answers are cached for the whole controller, see {@link ManifestDigestResolver}.
+     *
+     * @param context the build doing the lookup, as for {@link #getToken(Run)}
+     * @param userAndRepo the image, as for {@link #imageName}; the tag defaults to {@code latest}, and a digest
+     *                    given along is returned as is
+     * @return the digest, such as {@code sha256:...}
+     * @throws AbortException if there is no such image, or the credentials are missing or refused
+     * @since TODO
+     */
+    public @NonNull String resolveDigest(@CheckForNull Run context, @NonNull String userAndRepo) throws IOException {
+        ImageReference reference = ImageReference.parse(imageName(userAndRepo));
+        if (reference.getDigest() != null) {
+            return reference.getDigest();
         }
-        if (userAndRepo.startsWith(String.valueOf(s))) {
-            return userAndRepo;
+        String repository = reference.getRepository();
+        URL base;
+        if (url == null && origin == null) {
+            base = new URL(DOCKER_HUB_API_URL);
+            if (reference.getNamespace() == null) {
+                repository = "library/" + repository;
+            }
+        } else {
+            base = getEffectiveUrl();
+        }
+        DockerRegistryToken token = null;
+        if (credentialsId != null) {
+            token = getToken(context);
+            if (token == null) {
+                throw new AbortException("Could not find credentials matching " + credentialsId);
+            }
+        }
+        String tag = reference.getTag();
+        return ManifestDigestResolver.resolve(base, repository, tag != null ? tag : "latest", token);
+    }
+
+    /**
+     * Moves an image of {@link #origin} to this mirror, as docker(1) does for {@code registry-mirrors}:
+     * official images of Docker Hub are under {@code library/}.
+     */
+    private String mirrorImageName(String userAndRepo) throws IOException {
+        String path = userAndRepo;
+        if (origin.url == null) {
+            ImageReference reference = ImageReference.tryParse(userAndRepo);
+            if (reference != null && reference.getRegistry() == null && reference.getNamespace() == null) {
+                path = "library/" + userAndRepo;
+            }
+        } else if (userAndRepo.startsWith(origin.resolve().prefix)) {
+            path = userAndRepo.substring(origin.resolve().prefix.length());
         }
-        return s.append('/').append(userAndRepo).toString();
+        Resolved r = resolve();
+        return path.startsWith(r.prefix) ? path : r.prefix.concat(path);
     }
 
     @Override public String toString() {
-        return "DockerRegistryEndpoint[" + url + ";credentialsId=" + credentialsId + "]";
+        return "DockerRegistryEndpoint[" + url + ";credentialsId=" + credentialsId + (mirrors != null ? ";mirrors=" + mirrors : "") + "]";
     }
 
     @Override
     public int hashCode() {
-        int hash = 3;
-        hash = 31 * hash + (this.url != null ? this.url.hashCode() : 0);
-        hash = 31 * hash + (this.credentialsId != null ? this.credentialsId.hashCode() : 0);
+        int hash = this.hash;
+        if (hash == 0) {
+            hash = 3;
+            hash = 31 * hash + (this.url != null ? this.url.hashCode() : 0);
+            hash = 31 * hash + (this.credentialsId != null ? this.credentialsId.hashCode() : 0);
+            if (this.mirrors != null) {
+                hash = 31 * hash + this.mirrors.hashCode();
+            }
+            this.hash = hash;
+        }
         return hash;
     }
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj == null) {
             return false;
         }
@@ -369,15 +524,38 @@ public class DockerRegistryEndpoint extends AbstractDescribableImpl<DockerRegist
             return false;
         }
         final DockerRegistryEndpoint other = (DockerRegistryEndpoint) obj;
+        if (hashCode() != other.hashCode()) {
+            return false;
+        }
         if ((this.url == null) ? (other.url != null) : !this.url.equals(other.url)) {
             return false;
         }
         if ((this.credentialsId == null) ? (other.credentialsId != null) : !this.credentialsId.equals(other.credentialsId)) {
             return false;
         }
-        return true;
+        return Objects.equals(this.mirrors, other.mirrors);
     }
     
+    /**
+     * What callers need from the endpoint URL, so that they do not parse it again and again.
+     * All fields are immutable and may be handed out as they are.
+     */
+    private static final class Resolved {
+        private final URL url;
+        /** {@code host[:port]}, as found at the start of image names. */
+        private final String authority;
+        /** {@link #authority} followed by a slash. */
+        private final String prefix;
+        private final List<DomainRequirement> requirements;
+
+        Resolved(String spec) throws MalformedURLException {
+            url = new URL(spec);
+            authority = url.getPort() > 0 ? url.getHost() + ':' + url.getPort() : url.getHost();
+            prefix = authority + '/';
+            requirements = Collections.singletonList(new HostnameRequirement(url.getHost()));
+        }
+    }
+
     @Extension
     public static class DescriptorImpl extends Descriptor<DockerRegistryEndpoint> {
         @NonNull
@@ -391,17 +569,31 @@ public class DockerRegistryEndpoint extends AbstractDescribableImpl<DockerRegist
                 item != null && !item.hasPermission(Item.EXTENDED_READ)) {
                 return new StandardListBoxModel();
             }
+            return CredentialsListingIndex.fill(credentials(item));
+        }
+
+        /**
+         * Pages through the credentials offered by {@link #doFillCredentialsIdItems}, for type-ahead selection.
+         *
+         * @param q text the ID or name should contain
+         * @param offset how many matches to skip
+         * @param limit how many matches to return, at most 100
+         * @since TODO
+         */
+        public HttpResponse doSearchCredentials(@AncestorInPath Item item, @QueryParameter String q,
+                                                @QueryParameter int offset, @QueryParameter int limit) {
+            if (item == null && !Jenkins.get().hasPermission(Jenkins.ADMINISTER) ||
+                item != null && !item.hasPermission(Item.EXTENDED_READ)) {
+                return HttpResponses.forbidden();
+            }
+            return CredentialsListingIndex.search(credentials(item), q, offset, limit);
+        }
+
+        private static List<CredentialsListingIndex.Entry> credentials(@CheckForNull Item item) {
             // TODO may also need to specify a specific authentication and domain requirements
-            return new StandardListBoxModel()
-                    .withEmptySelection()
-                    .withMatching(AuthenticationTokens.matcher(DockerRegistryToken.class),
-                            CredentialsProvider.lookupCredentialsInItem(
-                                    StandardCredentials.class,
-                                    item,
-                                    null,
-                                    Collections.emptyList()
-                            )
-                    );
+            return CredentialsListingIndex.entries(item, "registry", () -> CredentialsMatchers.filter(
+                    CredentialsProvider.lookupCredentialsInItem(StandardCredentials.class, item, null, Collections.emptyList()),
+                    AuthenticationTokens.matcher(DockerRegistryToken.class)));
         }
 
     }
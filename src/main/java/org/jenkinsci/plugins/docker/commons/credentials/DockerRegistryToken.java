@@ -37,6 +37,8 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
 import jenkins.authentication.tokens.api.AuthenticationTokens;
 import jenkins.security.MasterToSlaveCallable;
@@ -56,10 +58,24 @@ public final class DockerRegistryToken implements Serializable {
     private static final long serialVersionUID = 1L;
     private final String email;
     private final String token;
+    private final @CheckForNull Instant expiration;
+    private final @CheckForNull String identityToken;
 
     public DockerRegistryToken(String email, String token) {
+        this(email, token, null, null);
+    }
+
+    /**
+     * @param expiration when the token stops being accepted by the registry, if it is short-lived
+     * @param identityToken a refresh token which docker(1) exchanges for access tokens on its own,
+     *                      used in place of {@code token} for logging in
+     * @since TODO
+     */
+    public DockerRegistryToken(String email, String token, @CheckForNull Instant expiration, @CheckForNull String identityToken) {
         this.email = email;
         this.token = token;
+        this.expiration = expiration;
+        this.identityToken = identityToken;
     }
 
     public String getEmail() {
@@ -70,6 +86,32 @@ public final class DockerRegistryToken implements Serializable {
         return token;
     }
 
+    /**
+     * @return when the token expires, or null if it does not
+     * @since TODO
+     */
+    @CheckForNull
+    public Instant getExpiration() {
+        return expiration;
+    }
+
+    /**
+     * @return the refresh token to be passed to docker(1) as {@code identitytoken}, if any
+     * @since TODO
+     */
+    @CheckForNull
+    public String getIdentityToken() {
+        return identityToken;
+    }
+
+    /**
+     * @return whether the token will still be valid after the given amount of time
+     * @since TODO
+     */
+    public boolean isValidFor(@NonNull Duration duration) {
+        return expiration == null || Instant.now().plus(duration).isBefore(expiration);
+    }
+
     /**
      * @deprecated use {@link #newKeyMaterialFactory(URL, FilePath, Launcher, EnvVars, TaskListener, String)}
      */
@@ -95,7 +137,14 @@ public final class DockerRegistryToken implements Serializable {
      * @param dockerExecutable as in {@link DockerTool#getExecutable}, with a 1.8+ client
      */
     public KeyMaterialFactory newKeyMaterialFactory(@NonNull URL endpoint, @NonNull FilePath workspace, @NonNull Launcher launcher, @NonNull EnvVars env, @NonNull TaskListener listener, @NonNull String dockerExecutable) throws InterruptedException, IOException {
-        if (!USE_CUSTOM_LOGIN) {
+        if (identityToken != null) {
+            FilePath tempDir = WorkspaceList.tempDir(workspace);
+            if (tempDir != null) {
+                return new RegistryKeyMaterialFactory(RegistryKeyMaterialFactory.IDENTITY_TOKEN_USERNAME, identityToken, endpoint, launcher, env, listener, dockerExecutable).
+                        contextualize(new KeyMaterialContext(tempDir));
+            }
+            listener.getLogger().println("Failed to create temporary directory for docker login");
+        } else if (!USE_CUSTOM_LOGIN) {
             try {
                 // see UsernamePasswordDockerRegistryTokenSource for example
                 String usernameColonPassword = new String(Base64.getDecoder().decode(token), StandardCharsets.UTF_8);
@@ -151,9 +200,13 @@ public final class DockerRegistryToken implements Serializable {
                             auths = json = new JSONObject();
                         }
                     }
-                    auths.put(endpoint.toString(), new JSONObject()
+                    JSONObject auth = new JSONObject()
                             .accumulate("auth", getToken())
-                            .accumulate("email", getEmail()));
+                            .accumulate("email", getEmail());
+                    if (identityToken != null) {
+                        auth.accumulate("identitytoken", identityToken);
+                    }
+                    auths.put(endpoint.toString(), auth);
                     
                     FileUtils.writeStringToFile(config, json.toString(2), "UTF-8");
                     listener.getLogger().println("Wrote authentication to " + config);
@@ -34,6 +34,7 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import hudson.Extension;
 import hudson.FilePath;
+import hudson.Util;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractDescribableImpl;
 import hudson.model.Describable;
@@ -42,15 +43,23 @@ import hudson.model.Item;
 import hudson.model.Run;
 import hudson.remoting.VirtualChannel;
 import hudson.util.ListBoxModel;
+import hudson.util.Secret;
 import jenkins.authentication.tokens.api.AuthenticationTokens;
 import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.docker.commons.impl.AgentFacts;
+import org.jenkinsci.plugins.docker.commons.impl.DockerContextKeyMaterialFactory;
 import org.jenkinsci.plugins.docker.commons.impl.ServerHostKeyMaterialFactory;
+import org.jenkinsci.plugins.docker.commons.impl.SshControlMasterKeyMaterialFactory;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
 import org.kohsuke.stapler.QueryParameter;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static hudson.Util.fixEmpty;
 
@@ -141,13 +150,7 @@ public class DockerServerEndpoint extends AbstractDescribableImpl<DockerServerEn
      * needed to access it.
      */
     public KeyMaterialFactory newKeyMaterialFactory(@NonNull Run context, @NonNull VirtualChannel target) throws IOException, InterruptedException {
-        DockerServerCredentials creds=null;
-        if (credentialsId!=null) {
-            List<DomainRequirement> domainRequirements = URIRequirementBuilder.fromUri(getUri()).build();
-            domainRequirements.add(new DockerServerDomainRequirement());
-            creds = CredentialsProvider.findCredentialById(credentialsId, DockerServerCredentials.class, context,
-                    domainRequirements);
-        }
+        DockerServerCredentials creds = getCredentials(context);
 
         // the directory needs to be outside workspace to avoid prying eyes
         FilePath dotDocker = dotDocker(target);
@@ -156,16 +159,60 @@ public class DockerServerEndpoint extends AbstractDescribableImpl<DockerServerEn
         return newKeyMaterialFactory(dotDocker, creds);
     }
 
+    /**
+     * Makes several daemons available at once, as named Docker contexts in a {@code DOCKER_CONFIG},
+     * so that they can be addressed concurrently with {@code docker --context <name>}.
+     *
+     * @param context the build accessing the daemons
+     * @param target the agent docker(1) runs on
+     * @param endpoints the daemons, keyed by context name; all must have a {@link #getUri}
+     * @since TODO
+     */
+    public static KeyMaterialFactory newContextKeyMaterialFactory(@NonNull Run context, @NonNull VirtualChannel target,
+                                                                  @NonNull Map<String, DockerServerEndpoint> endpoints) throws IOException, InterruptedException {
+        List<DockerContextKeyMaterialFactory.Context> contexts = new ArrayList<>(endpoints.size());
+        for (Map.Entry<String, DockerServerEndpoint> entry : endpoints.entrySet()) {
+            DockerServerEndpoint endpoint = entry.getValue();
+            if (endpoint.getUri() == null) {
+                throw new IllegalArgumentException("No daemon URI for Docker context " + entry.getKey());
+            }
+            DockerServerCredentials creds = endpoint.getCredentials(context);
+            contexts.add(creds != null
+                    ? new DockerContextKeyMaterialFactory.Context(entry.getKey(), endpoint.getUri(),
+                            Secret.toString(creds.getClientKeySecret()), creds.getClientCertificate(), creds.getServerCaCertificate())
+                    : new DockerContextKeyMaterialFactory.Context(entry.getKey(), endpoint.getUri(), null, null, null));
+        }
+        FilePath dotDocker = dotDocker(target);
+        dotDocker.mkdirs();
+        return new DockerContextKeyMaterialFactory(contexts).contextualize(new KeyMaterialContext(dotDocker));
+    }
+
+    @CheckForNull
+    DockerServerCredentials getCredentials(@NonNull Run context) {
+        if (credentialsId == null) {
+            return null;
+        }
+        List<DomainRequirement> domainRequirements = URIRequirementBuilder.fromUri(getUri()).build();
+        domainRequirements.add(new DockerServerDomainRequirement());
+        return CredentialsResolutionCache.resolve(context, credentialsId, DockerServerCredentials.class, domainRequirements,
+                () -> CredentialsProvider.findCredentialById(credentialsId, DockerServerCredentials.class, context,
+                        domainRequirements));
+    }
+
     static FilePath dotDocker(@NonNull VirtualChannel target) throws IOException, InterruptedException {
         // TODO this is wrong, should be using WorkspaceList.tempDir
-        return FilePath.getHomeDirectory(target).child(".docker");
+        return AgentFacts.of(target).getHomeDirectory(target).child(".docker");
     }
 
     /**
      * Create a {@link KeyMaterialFactory} for connecting to the docker server/host. 
      */
     public KeyMaterialFactory newKeyMaterialFactory(FilePath dir, @Nullable DockerServerCredentials credentials) throws IOException, InterruptedException {
-        return (uri == null ? KeyMaterialFactory.NULL : new ServerHostKeyMaterialFactory(uri))
+        KeyMaterialFactory factory = uri == null ? KeyMaterialFactory.NULL : new ServerHostKeyMaterialFactory(uri);
+        if (SshControlMasterKeyMaterialFactory.applies(uri)) {
+            factory = factory.plus(new SshControlMasterKeyMaterialFactory(uri));
+        }
+        return factory
                 .plus(AuthenticationTokens.convert(KeyMaterialFactory.class, credentials))
                 .contextualize(new KeyMaterialContext(dir));
     }
@@ -213,15 +260,35 @@ public class DockerServerEndpoint extends AbstractDescribableImpl<DockerServerEn
                 item != null && !item.hasPermission(Item.EXTENDED_READ)) {
                 return new StandardListBoxModel();
             }
-            List<DomainRequirement> domainRequirements = URIRequirementBuilder.fromUri(uri).build();
-            domainRequirements.add(new DockerServerDomainRequirement());
-            return new StandardListBoxModel()
-                    .withEmptySelection()
-                    .withMatching(
-                            AuthenticationTokens.matcher(KeyMaterialFactory.class),
-                            CredentialsProvider
-                                    .lookupCredentialsInItem(BASE_CREDENTIAL_TYPE, item, null, domainRequirements)
-                    );
+            return CredentialsListingIndex.fill(credentials(item, uri));
+        }
+
+        /**
+         * Pages through the credentials offered by {@link #doFillCredentialsIdItems}, for type-ahead selection.
+         *
+         * @param q text the ID or name should contain
+         * @param offset how many matches to skip
+         * @param limit how many matches to return, at most 100
+         * @since TODO
+         */
+        public HttpResponse doSearchCredentials(@AncestorInPath Item item, @QueryParameter String uri, @QueryParameter String q,
+                                                @QueryParameter int offset, @QueryParameter int limit) {
+            if (item == null && !Jenkins.get().hasPermission(Jenkins.ADMINISTER) ||
+                item != null && !item.hasPermission(Item.EXTENDED_READ)) {
+                return HttpResponses.forbidden();
+            }
+            return CredentialsListingIndex.search(credentials(item, uri), q, offset, limit);
+        }
+
+        private static List<CredentialsListingIndex.Entry> credentials(@CheckForNull Item item, @CheckForNull String uri) {
+            // the domain requirements only depend on the URI
+            return CredentialsListingIndex.entries(item, "server:" + Util.fixNull(uri), () -> {
+                List<DomainRequirement> domainRequirements = URIRequirementBuilder.fromUri(uri).build();
+                domainRequirements.add(new DockerServerDomainRequirement());
+                return CredentialsMatchers.filter(
+                        CredentialsProvider.lookupCredentialsInItem(BASE_CREDENTIAL_TYPE, item, null, domainRequirements),
+                        AuthenticationTokens.matcher(KeyMaterialFactory.class));
+            });
         }
 
     }
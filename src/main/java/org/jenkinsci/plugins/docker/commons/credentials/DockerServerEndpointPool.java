@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.model.Run;
+import hudson.remoting.VirtualChannel;
+import org.jenkinsci.plugins.docker.commons.impl.PooledServerKeyMaterialFactory;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Several interchangeable Docker daemons, of which each build gets whichever is healthy and least busy.
+ *
+ * @see DockerServerEndpoint
+ * @since TODO
+ */
+public class DockerServerEndpointPool extends AbstractDescribableImpl<DockerServerEndpointPool> {
+
+    private final List<DockerServerEndpoint> endpoints;
+
+    @DataBoundConstructor
+    public DockerServerEndpointPool(List<DockerServerEndpoint> endpoints) {
+        this.endpoints = endpoints == null ? Collections.emptyList() : new ArrayList<>(endpoints);
+    }
+
+    /**
+     * The daemons, in order of preference when equally busy.
+     */
+    public @NonNull List<DockerServerEndpoint> getEndpoints() {
+        return Collections.unmodifiableList(endpoints);
+    }
+
+    /**
+     * Picks a daemon upon {@link KeyMaterialFactory#materialize2}, skipping those which are down,
+     * and returns a {@link KeyMaterialFactory} that gives you the parameters needed to access it.
+     * The daemon counts as busy with the build until the {@link KeyMaterial2} is closed.
+     */
+    public KeyMaterialFactory newKeyMaterialFactory(@NonNull Run context, @NonNull VirtualChannel target) throws IOException, InterruptedException {
+        // the directory needs to be outside workspace to avoid prying eyes
+        FilePath dotDocker = DockerServerEndpoint.dotDocker(target);
+        dotDocker.mkdirs();
+        List<PooledServerKeyMaterialFactory.Candidate> candidates = new ArrayList<>(endpoints.size());
+        for (DockerServerEndpoint endpoint : endpoints) {
+            if (endpoint.getUri() == null) {
+                throw new IllegalArgumentException("No daemon URI for " + endpoint + " in pool");
+            }
+            DockerServerCredentials creds = endpoint.getCredentials(context);
+            candidates.add(new PooledServerKeyMaterialFactory.Candidate(endpoint.getUri(), creds != null,
+                    endpoint.newKeyMaterialFactory(dotDocker, creds)));
+        }
+        return new PooledServerKeyMaterialFactory(context.getExternalizableId(), candidates)
+                .contextualize(new KeyMaterialContext(dotDocker));
+    }
+
+    @Override public String toString() {
+        return "DockerServerEndpointPool" + endpoints;
+    }
+
+    @Override
+    public int hashCode() {
+        return endpoints.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return endpoints.equals(((DockerServerEndpointPool) obj).endpoints);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<DockerServerEndpointPool> {
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return "Docker Daemon Pool";
+        }
+    }
+
+}
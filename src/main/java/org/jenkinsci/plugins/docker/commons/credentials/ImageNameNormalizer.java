@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns the many spellings of an image reference into one, so that {@code ubuntu}, {@code library/ubuntu},
+ * {@code docker.io/library/ubuntu:latest} and {@code index.docker.io/library/ubuntu} compare equal.
+ *
+ * <p>
+ * The canonical form is fully qualified, {@code registry/path/name:tag[@digest]}: references without a registry
+ * are on Docker Hub, as with {@link DockerRegistryEndpoint#getEffectiveUrl}, which is written {@code docker.io};
+ * single component names on Docker Hub are official images, under {@code library/}; references with neither tag
+ * nor digest are for {@code latest}. Registry host names are case-insensitive and get lower-cased.
+ *
+ * <p>
+ * Results are kept in a bounded least-recently-used cache, and canonical forms are interned, so that normalizing
+ * a name seen recently is a hash lookup and equal names share one string.
+ *
+ * @since TODO
+ */
+public final class ImageNameNormalizer {
+
+    /** Docker Hub, as docker(1) writes it in normalized references. */
+    public static final String DOCKER_HUB = "docker.io";
+
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int CACHE_SIZE = Integer.getInteger(ImageNameNormalizer.class.getName() + ".CACHE_SIZE", 4096);
+
+    private static final Map<String, String> CACHE = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private ImageNameNormalizer() {} // no instantiation
+
+    /**
+     * @param reference an image reference, as written in a job or given to docker(1)
+     * @return its canonical form, or {@code reference} itself if it is not a valid image reference
+     */
+    @NonNull
+    public static String normalize(@NonNull String reference) {
+        synchronized (CACHE) {
+            String cached = CACHE.get(reference);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        String normalized = compute(reference);
+        synchronized (CACHE) {
+            CACHE.put(reference, normalized);
+        }
+        return normalized;
+    }
+
+    private static String compute(String reference) {
+        ImageReference parsed = ImageReference.tryParse(reference);
+        if (parsed == null) {
+            return reference;
+        }
+        String registry = parsed.getRegistry();
+        if (registry == null || isDockerHub(registry)) {
+            registry = DOCKER_HUB;
+        } else {
+            registry = registry.toLowerCase(Locale.ENGLISH);
+        }
+        String tag = parsed.getTag();
+        String digest = parsed.getDigest();
+        StringBuilder b = new StringBuilder(reference.length() + 24).append(registry).append('/');
+        if (registry.equals(DOCKER_HUB) && parsed.getNamespace() == null) {
+            b.append("library/");
+        }
+        b.append(parsed.getRepository());
+        if (tag != null) {
+            b.append(':').append(tag);
+        } else if (digest == null) {
+            b.append(":latest");
+        }
+        if (digest != null) {
+            b.append('@').append(digest);
+        }
+        return b.toString().intern();
+    }
+
+    private static boolean isDockerHub(String registry) {
+        return registry.equalsIgnoreCase(DOCKER_HUB) || registry.equalsIgnoreCase("index.docker.io")
+                || registry.equalsIgnoreCase("registry-1.docker.io");
+    }
+
+    /**
+     * For tests.
+     */
+    static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+}
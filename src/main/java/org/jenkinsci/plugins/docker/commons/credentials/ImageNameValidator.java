@@ -29,6 +29,10 @@ import hudson.util.FormValidation;
 import org.apache.commons.lang.StringUtils;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 public class ImageNameValidator {
@@ -62,6 +66,24 @@ public class ImageNameValidator {
         if (StringUtils.isEmpty(userAndRepo)) {
             return args;
         }
+        long offsets = ImageReference.scan(userAndRepo, false);
+        if (offsets >= 0) {
+            int nameStart = ImageReference.offset(offsets, 2);
+            int pathEnd = ImageReference.offset(offsets, 3);
+            int tagEnd = ImageReference.offset(offsets, 4);
+            if (nameStart > 0) {
+                args[0] = userAndRepo.substring(0, nameStart - 1);
+            }
+            args[1] = userAndRepo.substring(nameStart, pathEnd);
+            if (pathEnd < tagEnd) {
+                args[2] = userAndRepo.substring(pathEnd, tagEnd);
+            }
+            if (tagEnd < userAndRepo.length()) {
+                args[3] = userAndRepo.substring(tagEnd);
+            }
+            return args;
+        }
+        // not even well formed, so split the way validation messages have always described it
         int slashIdx = userAndRepo.lastIndexOf('/');
         int tagIdx = userAndRepo.lastIndexOf(':');
         int digestIdx = userAndRepo.lastIndexOf('@');
@@ -107,6 +129,19 @@ public class ImageNameValidator {
         if (SKIP) {
             return FormValidation.ok();
         }
+        if (userAndRepo != null) {
+            // well formed and valid names, the usual case, are checked in place
+            long offsets = ImageReference.scan(userAndRepo, false);
+            if (offsets >= 0) {
+                int pathEnd = ImageReference.offset(offsets, 3);
+                int tagEnd = ImageReference.offset(offsets, 4);
+                if (isNameComponent(userAndRepo, ImageReference.offset(offsets, 2), pathEnd)
+                        && (pathEnd == tagEnd || isTag(userAndRepo, pathEnd, tagEnd))
+                        && (tagEnd == userAndRepo.length() || isDigest(userAndRepo, tagEnd, userAndRepo.length()))) {
+                    return FormValidation.ok();
+                }
+            }
+        }
         final String[] args = splitUserAndRepo(userAndRepo);
         if (StringUtils.isBlank(args[0]) && StringUtils.isBlank(args[1]) && StringUtils.isBlank(args[2])
                 && StringUtils.isBlank(args[3])) {
@@ -144,6 +179,31 @@ public class ImageNameValidator {
         }
     }
 
+    /**
+     * Validates many image names at once, such as all those used by a job, each distinct name once.
+     *
+     * @param userAndRepos the image ids
+     * @return the result of {@link #validateUserAndRepo(String)} for each name which is not OK, in encounter order;
+     *         empty, without allocation, if all are
+     * @since TODO
+     */
+    public static @NonNull Map<String, FormValidation> validateAll(@NonNull Collection<String> userAndRepos) {
+        Map<String, FormValidation> failures = null;
+        for (String userAndRepo : userAndRepos) {
+            if (failures != null && failures.containsKey(userAndRepo)) {
+                continue;
+            }
+            FormValidation validation = validateUserAndRepo(userAndRepo);
+            if (validation.kind != FormValidation.Kind.OK) {
+                if (failures == null) {
+                    failures = new LinkedHashMap<>();
+                }
+                failures.put(userAndRepo, validation);
+            }
+        }
+        return failures == null ? Collections.emptyMap() : Collections.unmodifiableMap(failures);
+    }
+
     /**
      * A content digest specified by open container spec.
      *
@@ -188,7 +248,7 @@ public class ImageNameValidator {
             if (digest.length() != 72) {
                 return FormValidation.error("Digest length != 72");
             }
-            if (!VALID_DIGEST_SHA256.matcher(digest).matches()) {
+            if (!isDigest(digest, 0, digest.length())) {
                 return FormValidation.error("Digest must follow the pattern '%s' for sha-256 algorithm", VALID_DIGEST_SHA256.pattern());
             }
             return FormValidation.ok();
@@ -197,18 +257,67 @@ public class ImageNameValidator {
             if (digest.length() != 136) {
                 return FormValidation.error("Digest length != 136");
             }
-            if (!VALID_DIGEST_SHA512.matcher(digest).matches()) {
+            if (!isDigest(digest, 0, digest.length())) {
                 return FormValidation.error("Digest must follow the pattern '%s' for sha-512 algorithm", VALID_DIGEST_SHA512.pattern());
             }
             return FormValidation.ok();
         }
-        if (VALID_DIGEST.matcher(digest).matches()) {
+        if (isDigest(digest, 0, digest.length())) {
             return FormValidation.ok();
         } else {
             return FormValidation.error("Digest must follow the pattern '%s'", VALID_DIGEST.pattern());
         }
     }
 
+    /**
+     * Matches {@code s[from, to)} against {@link #VALID_DIGEST}, or {@link #VALID_DIGEST_SHA256} and
+     * {@link #VALID_DIGEST_SHA512} for these algorithms, without allocating.
+     */
+    static boolean isDigest(@NonNull String s, int from, int to) {
+        if (to - from < 2 || s.charAt(from) != '@') {
+            return false;
+        }
+        if (s.startsWith("@sha256", from) || s.startsWith("@sha512", from)) {
+            int hex = s.charAt(from + 4) == '2' ? 64 : 128;
+            if (to - from != hex + 8 || s.charAt(from + 7) != ':') {
+                return false;
+            }
+            for (int i = from + 8; i < to; i++) {
+                char c = s.charAt(i);
+                if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9')) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        // algorithm, [a-z0-9]+ components separated by one of +._-
+        boolean separated = true;
+        int i = from + 1;
+        for (; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9') {
+                separated = false;
+            } else if ((c == '+' || c == '.' || c == '_' || c == '-') && !separated) {
+                separated = true;
+            } else if (c == ':' && !separated) {
+                break;
+            } else {
+                return false;
+            }
+        }
+        // encoded, [a-zA-Z0-9=_-]+
+        if (i + 1 >= to) {
+            return false;
+        }
+        for (i++; i < to; i++) {
+            char c = s.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '=' || c == '_' || c == '-')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * A tag name must be valid ASCII and may contain
      * lowercase and uppercase letters, digits, underscores, periods and dashes.
@@ -238,13 +347,30 @@ public class ImageNameValidator {
         if (tag.length() > 128) {
             return FormValidation.error("Tag length > 128");
         }
-        if (VALID_TAG.matcher(tag).matches()) {
+        if (isTag(tag, 0, tag.length())) {
             return FormValidation.ok();
         } else {
             return FormValidation.error("Tag must follow the pattern '%s'", VALID_TAG.pattern());
         }
     }
 
+    /**
+     * Matches {@code s[from, to)} against {@link #VALID_TAG}, within the length {@link #validateTag} allows,
+     * without allocating.
+     */
+    static boolean isTag(@NonNull String s, int from, int to) {
+        if (to - from < 2 || to - from > 128 || s.charAt(from) != ':') {
+            return false;
+        }
+        for (int i = from + 1; i < to; i++) {
+            char c = s.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || (c == '.' || c == '-') && i > from + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Calls {@link #validateTag(String)} and if not OK throws the exception.
      *
@@ -283,13 +409,41 @@ public class ImageNameValidator {
         if (StringUtils.isEmpty(name)) {
             return FormValidation.error("Missing name.");
         }
-        if (VALID_NAME_COMPONENT.matcher(name).matches()) {
+        if (isNameComponent(name, 0, name.length())) {
             return FormValidation.ok();
         } else {
             return FormValidation.error("Name must follow the pattern '%s'", VALID_NAME_COMPONENT.pattern());
         }
     }
 
+    /**
+     * Matches {@code s[from, to)} against {@link #VALID_NAME_COMPONENT} without allocating.
+     */
+    static boolean isNameComponent(@NonNull String s, int from, int to) {
+        // the separator being run, if any, and how many times it was repeated
+        char separator = 0;
+        int run = 0;
+        boolean separated = true;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9') {
+                separator = 0;
+                run = 0;
+                separated = false;
+            } else if ((c == '.' || c == '_' || c == '-') && !(separated && separator == 0)) {
+                if (separator != 0 && (separator != c || c == '.' || c == '_' && run == 2)) {
+                    return false;
+                }
+                separator = c;
+                run++;
+                separated = true;
+            } else {
+                return false;
+            }
+        }
+        return !separated;
+    }
+
     /**
      * Calls {@link #validateName(String)} and if not OK throws the exception.
      *
@@ -0,0 +1,337 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A parsed image reference, {@code [registry[:port]/]path/to/name[:tag][@digest]}.
+ *
+ * <p>
+ * Parsing looks at every character once and keeps only offsets into the original string, so it costs the same on
+ * crafted input as on ordinary names. The grammar is the one {@link DockerRegistryEndpoint#fromImageName} has always
+ * accepted, with docker's rule for telling a registry from a path: the first component is a registry if it contains
+ * a {@code .} or a port, or is {@code localhost}.
+ *
+ * @see <a href="https://github.com/distribution/reference/blob/main/regexp.go">reference grammar</a>
+ * @since TODO
+ */
+public final class ImageReference {
+
+    /** Longer references are rejected without being looked at. */
+    public static final int MAX_LENGTH = 1024;
+
+    private final @NonNull String reference;
+    /** The slash after the registry, or -1. */
+    private final int registryEnd;
+    /** The end of the host name, which is {@link #registryEnd} or the colon before the port. */
+    private final int hostEnd;
+    private final int port;
+    /** The start of the last path component. */
+    private final int nameStart;
+    /** The end of the path, at the tag, digest or end of string. */
+    private final int pathEnd;
+    /** The end of the tag, at the digest or end of string. */
+    private final int tagEnd;
+
+    private ImageReference(String reference, long offsets) {
+        this.reference = reference;
+        this.registryEnd = offset(offsets, 0) - 1;
+        this.hostEnd = offset(offsets, 1) - 1;
+        this.nameStart = offset(offsets, 2);
+        this.pathEnd = offset(offsets, 3);
+        this.tagEnd = offset(offsets, 4);
+        this.port = hostEnd < registryEnd ? port(reference, hostEnd + 1, registryEnd) : -1;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code reference} is not a valid image reference
+     */
+    @NonNull
+    public static ImageReference parse(@NonNull String reference) {
+        return new ImageReference(reference, scan(reference, true));
+    }
+
+    /**
+     * @return the parsed reference, or null if {@code reference} is not valid
+     */
+    @CheckForNull
+    public static ImageReference tryParse(@CheckForNull String reference) {
+        if (reference == null) {
+            return null;
+        }
+        long offsets = scan(reference, false);
+        return offsets < 0 ? null : new ImageReference(reference, offsets);
+    }
+
+    /**
+     * Extracts an offset packed by {@link #scan}: the slash after the registry plus one, the end of the host plus
+     * one, the start of the name, the end of the path, and the end of the tag, in eleven bits each.
+     */
+    static int offset(long offsets, int index) {
+        return (int) (offsets >>> (index * 11)) & 0x7FF;
+    }
+
+    private static long pack(int registryEnd, int hostEnd, int nameStart, int pathEnd, int tagEnd) {
+        return (registryEnd + 1L) | (hostEnd + 1L) << 11 | (long) nameStart << 22 | (long) pathEnd << 33 | (long) tagEnd << 44;
+    }
+
+    /**
+     * Checks a reference without allocating anything when it is valid.
+     *
+     * @param strict whether to throw rather than return -1 if {@code s} is not valid
+     * @return the offsets of its parts, see {@link #offset}
+     */
+    static long scan(@NonNull String s, boolean strict) {
+        int length = s.length();
+        if (length == 0) {
+            return fail(s, "empty", strict);
+        }
+        if (length > MAX_LENGTH) {
+            return fail(s, "longer than " + MAX_LENGTH + " characters", strict);
+        }
+
+        // registry
+        int registryEnd = -1;
+        int hostEnd = -1;
+        int slash = s.indexOf('/');
+        if (slash > 0) {
+            int end = hostEnd(s, slash);
+            int candidatePort = end > 0 && end < slash ? port(s, end + 1, slash) : -1;
+            if (end == slash && (s.lastIndexOf('.', end) >= 0 || end == 9 && s.regionMatches(true, 0, "localhost", 0, 9))
+                    || end > 0 && candidatePort >= 0) {
+                registryEnd = slash;
+                hostEnd = end;
+            }
+        }
+
+        // path, lower case components separated by slashes
+        int i = registryEnd + 1;
+        int nameStart = i;
+        char c = 0;
+        for (; i < length; i++) {
+            c = s.charAt(i);
+            if (c == '/') {
+                if (i == nameStart) {
+                    return fail(s, "empty path component", strict);
+                }
+                nameStart = i + 1;
+            } else if (c == ':' || c == '@') {
+                break;
+            } else if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_' || c == '.')) {
+                return fail(s, "invalid character '" + c + "' in repository", strict);
+            }
+        }
+        int pathEnd = i;
+        if (pathEnd == nameStart) {
+            return fail(s, "missing name", strict);
+        }
+
+        // tag
+        if (i < length && c == ':') {
+            for (i++; i < length; i++) {
+                c = s.charAt(i);
+                if (c == '@') {
+                    break;
+                } else if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_' || c == '.')) {
+                    return fail(s, "invalid character '" + c + "' in tag", strict);
+                }
+            }
+            if (i == pathEnd + 1) {
+                return fail(s, "empty tag", strict);
+            }
+        }
+        int tagEnd = i;
+
+        // digest, algorithm[+-._algorithm]*:hex
+        if (i < length) {
+            boolean separated = true;
+            for (i++; i < length; i++) {
+                c = s.charAt(i);
+                if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z') {
+                    separated = false;
+                } else if (c >= '0' && c <= '9' && !separated) {
+                    // continues a component
+                } else if ((c == '-' || c == '_' || c == '+' || c == '.') && !separated) {
+                    separated = true;
+                } else if (c == ':' && !separated) {
+                    break;
+                } else {
+                    return fail(s, "invalid digest algorithm", strict);
+                }
+            }
+            if (i == length) {
+                return fail(s, "missing digest", strict);
+            }
+            for (i++; i < length; i++) {
+                c = s.charAt(i);
+                if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9')) {
+                    return fail(s, "invalid character '" + c + "' in digest", strict);
+                }
+            }
+        }
+
+        return pack(registryEnd, hostEnd, nameStart, pathEnd, tagEnd);
+    }
+
+    /**
+     * @return where a valid host name starting the string ends, at {@code slash} or a colon, or -1
+     */
+    private static int hostEnd(String s, int slash) {
+        boolean separated = true;
+        for (int i = 0; i < slash; i++) {
+            char c = s.charAt(i);
+            if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9') {
+                separated = false;
+            } else if ((c == '-' || c == '.') && !separated) {
+                separated = true;
+            } else if (c == ':' && !separated) {
+                return i;
+            } else {
+                return -1;
+            }
+        }
+        return separated ? -1 : slash;
+    }
+
+    /**
+     * @return the port in {@code s[from, to)}, or -1 if it is not one
+     */
+    private static int port(String s, int from, int to) {
+        if (to == from || to - from > 5) {
+            return -1;
+        }
+        int port = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            port = port * 10 + (c - '0');
+        }
+        return port <= 65535 ? port : -1;
+    }
+
+    private static long fail(String s, String reason, boolean strict) {
+        if (strict) {
+            throw new IllegalArgumentException(s + " is not a valid image reference: " + reason);
+        }
+        return -1;
+    }
+
+    /**
+     * @return the registry, as {@code host[:port]}, or null for the default one
+     */
+    public @CheckForNull String getRegistry() {
+        return registryEnd < 0 ? null : reference.substring(0, registryEnd);
+    }
+
+    /**
+     * @return the host name of the registry, or null for the default one
+     */
+    public @CheckForNull String getHost() {
+        return registryEnd < 0 ? null : reference.substring(0, hostEnd);
+    }
+
+    /**
+     * @return the port of the registry, or -1 if none was given
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return the path within the registry, such as {@code jenkinsci/workflow-demo}
+     */
+    public @NonNull String getRepository() {
+        return reference.substring(registryEnd + 1, pathEnd);
+    }
+
+    /**
+     * @return the components of {@link #getRepository}
+     */
+    public @NonNull List<String> getPath() {
+        List<String> path = new ArrayList<>(2);
+        int start = registryEnd + 1;
+        for (int i = start; i < pathEnd; i++) {
+            if (reference.charAt(i) == '/') {
+                path.add(reference.substring(start, i));
+                start = i + 1;
+            }
+        }
+        path.add(reference.substring(start, pathEnd));
+        return Collections.unmodifiableList(path);
+    }
+
+    /**
+     * @return the path without its last component, such as {@code jenkinsci}, or null if the path has only one
+     */
+    public @CheckForNull String getNamespace() {
+        return nameStart > registryEnd + 1 ? reference.substring(registryEnd + 1, nameStart - 1) : null;
+    }
+
+    /**
+     * @return the last path component, such as {@code workflow-demo}
+     */
+    public @NonNull String getName() {
+        return reference.substring(nameStart, pathEnd);
+    }
+
+    /**
+     * @return the tag, without colon, or null
+     */
+    public @CheckForNull String getTag() {
+        return pathEnd < tagEnd ? reference.substring(pathEnd + 1, tagEnd) : null;
+    }
+
+    /**
+     * @return the digest, such as {@code sha256:...}, or null
+     */
+    public @CheckForNull String getDigest() {
+        return tagEnd < reference.length() ? reference.substring(tagEnd + 1) : null;
+    }
+
+    /**
+     * @return the reference as it was parsed
+     */
+    @Override
+    public String toString() {
+        return reference;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof ImageReference && reference.equals(((ImageReference) obj).reference);
+    }
+
+    @Override
+    public int hashCode() {
+        return reference.hashCode();
+    }
+}
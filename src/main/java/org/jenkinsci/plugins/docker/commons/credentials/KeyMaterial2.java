@@ -51,20 +51,52 @@ public abstract class KeyMaterial2 implements Serializable {
     public static final KeyMaterial2 NULL = new NullKeyMaterial();
 
     /**
-     * The environment variables
+     * The environment variables, unless they are recomputed by {@link #computeEnv}.
      */
     private final EnvVars envVars;
 
+    /**
+     * The environment variables as recomputed by {@link #computeEnv}, not kept in the serial form.
+     */
+    private transient EnvVars computedEnv;
+
     protected KeyMaterial2(EnvVars envVars) {
         this.envVars = envVars;
     }
 
+    /**
+     * For implementations which only keep what they need to {@link #close} and recompute their environment from that,
+     * keeping their serial form (e.g. in Pipeline program state) small.
+     *
+     * @see #computeEnv
+     * @since TODO
+     */
+    protected KeyMaterial2() {
+        this.envVars = null;
+    }
+
     /**
      * Get the environment variables needed to be passed when docker runs, to access
      * {@link DockerServerCredentials} that this object was created from.
      */
     public final EnvVars env() {
-        return envVars;
+        if (envVars != null) {
+            return envVars;
+        }
+        synchronized (this) {
+            if (computedEnv == null) {
+                computedEnv = computeEnv();
+            }
+            return computedEnv;
+        }
+    }
+
+    /**
+     * Computes the environment variables of an implementation constructed through {@link #KeyMaterial2()}.
+     * Called at most once per instance, and again after deserialization.
+     */
+    protected EnvVars computeEnv() {
+        return new EnvVars();
     }
 
     /**
@@ -36,6 +36,8 @@ import java.util.List;
 import java.util.UUID;
 import org.jenkinsci.plugins.docker.commons.impl.CompositeKeyMaterialFactory;
 import org.jenkinsci.plugins.docker.commons.impl.NullKeyMaterialFactory;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Represents a locally extracted credentials information.
@@ -51,6 +53,12 @@ import org.jenkinsci.plugins.docker.commons.impl.NullKeyMaterialFactory;
 public abstract class KeyMaterialFactory {
 
     public static final KeyMaterialFactory NULL = new NullKeyMaterialFactory();
+
+    /**
+     * Starts the name of every {@link #createSecretsDirectory}, so that leftovers can be told apart from directories of other plugins.
+     */
+    @Restricted(NoExternalUse.class)
+    public static final String SECRETS_DIRECTORY_PREFIX = "docker-commons-";
     
     private /* write once */ KeyMaterialContext context;
     
@@ -120,7 +128,7 @@ public abstract class KeyMaterialFactory {
      * Be sure to {@link FilePath#deleteRecursive} this in {@link KeyMaterial#close}.
      */
     protected final FilePath createSecretsDirectory() throws IOException, InterruptedException {
-        FilePath dir = new FilePath(getContext().getBaseDir(), UUID.randomUUID().toString());
+        FilePath dir = new FilePath(getContext().getBaseDir(), SECRETS_DIRECTORY_PREFIX + UUID.randomUUID());
         dir.mkdirs();
         dir.chmod(0700);
         return dir;
@@ -0,0 +1,367 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.AbortException;
+import hudson.ProxyConfiguration;
+import hudson.Util;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asks a registry which digest a tag points to, with {@code HEAD /v2/<repository>/manifests/<tag>}.
+ *
+ * <p>
+ * Answers are kept for the whole controller, keyed by registry, repository, tag and a digest of the credentials used. Within
+ * {@code TTL_SECONDS} they are reused as they are; after that the registry is asked again, conditionally on the
+ * {@code ETag} it gave, so that an unchanged tag costs a {@code 304}. Bearer tokens obtained from the registry's
+ * authorization service are kept until they expire, and sent right away with the next requests. At most
+ * {@code MAX_ITEMS} digests and as many tokens are kept, the least recently used going first.
+ *
+ * <p>
+ * The registry API is looked for at the root of the registry host, as docker(1) does; a path of the endpoint URL,
+ * such as the {@code /v1/} of Docker Hub, is ignored.
+ */
+@Restricted(NoExternalUse.class)
+final class ManifestDigestResolver {
+
+    private static final Logger LOGGER = Logger.getLogger(ManifestDigestResolver.class.getName());
+
+    /** How long a digest is used without asking the registry again. */
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ long TTL_SECONDS = Long.getLong(ManifestDigestResolver.class.getName() + ".TTL_SECONDS", 30);
+
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ int MAX_ITEMS = Integer.getInteger(ManifestDigestResolver.class.getName() + ".MAX_ITEMS", 1000);
+
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int TIMEOUT_MILLIS = Integer.getInteger(ManifestDigestResolver.class.getName() + ".TIMEOUT_MILLIS", 10000);
+
+    /** Manifest lists come first, so that the digest is the one {@code docker pull} would report on any platform. */
+    private static final String ACCEPT = String.join(", ",
+            "application/vnd.docker.distribution.manifest.list.v2+json",
+            "application/vnd.oci.image.index.v1+json",
+            "application/vnd.docker.distribution.manifest.v2+json",
+            "application/vnd.oci.image.manifest.v1+json");
+
+    private static final Map<List<String>, Entry> DIGESTS = lru();
+
+    /** {@code Authorization} headers keyed by registry, scope and credentials. */
+    private static final Map<List<String>, Authorization> AUTHORIZATIONS = lru();
+
+    private ManifestDigestResolver() {} // no instantiation
+
+    private static <V> Map<List<String>, V> lru() {
+        return Collections.synchronizedMap(new LinkedHashMap<List<String>, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<String>, V> eldest) {
+                return size() > MAX_ITEMS;
+            }
+        });
+    }
+
+    /**
+     * @param base the registry, such as {@code https://registry.example.com/}; only its scheme and authority are used
+     * @param repository such as {@code library/ubuntu}
+     * @param tag such as {@code latest}
+     * @param token the credentials to use, if any
+     * @return the digest, such as {@code sha256:...}
+     */
+    @NonNull
+    static String resolve(@NonNull URL base, @NonNull String repository, @NonNull String tag,
+                          @CheckForNull DockerRegistryToken token) throws IOException {
+        URL root = new URL(base.getProtocol(), base.getHost(), base.getPort(), "/");
+        String credentialsKey = credentialsKey(token);
+        List<String> key = Arrays.asList(root.toString(), repository, tag, credentialsKey);
+        Entry entry = DIGESTS.get(key);
+        long now = System.nanoTime();
+        if (entry != null && now - entry.checked < TimeUnit.SECONDS.toNanos(TTL_SECONDS)) {
+            return entry.digest;
+        }
+        URL manifest = new URL(root, "v2/" + repository + "/manifests/" + tag);
+        String scope = "repository:" + repository + ":pull";
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Accept", ACCEPT);
+        if (entry != null && entry.etag != null) {
+            headers.put("If-None-Match", entry.etag);
+        }
+        HttpURLConnection connection = request(manifest, "HEAD", headers, token, credentialsKey, scope);
+        try {
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && entry != null) {
+                LOGGER.log(Level.FINER, "{0}:{1} still is {2}", new Object[] {repository, tag, entry.digest});
+                DIGESTS.put(key, new Entry(entry.digest, entry.etag, now));
+                return entry.digest;
+            }
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                throw new AbortException("No such image " + repository + ":" + tag + " in " + root);
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Failed to look up " + repository + ":" + tag + " in " + root + ": HTTP " + status);
+            }
+            String digest = connection.getHeaderField("Docker-Content-Digest");
+            if (digest == null) {
+                // not all registries send it; the digest is that of the manifest itself
+                digest = digestOfManifest(manifest, token, credentialsKey, scope);
+            }
+            DIGESTS.put(key, new Entry(digest, connection.getHeaderField("ETag"), now));
+            LOGGER.log(Level.FINE, "{0}:{1} in {2} is {3}", new Object[] {repository, tag, root, digest});
+            return digest;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String digestOfManifest(URL manifest, @CheckForNull DockerRegistryToken token, String credentialsKey, String scope) throws IOException {
+        HttpURLConnection connection = request(manifest, "GET", Map.of("Accept", ACCEPT), token, credentialsKey, scope);
+        try (InputStream in = connection.getInputStream()) {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                sha256.update(buffer, 0, read);
+            }
+            StringBuilder digest = new StringBuilder("sha256:");
+            for (byte b : sha256.digest()) {
+                digest.append(String.format("%02x", b));
+            }
+            return digest.toString();
+        } catch (NoSuchAlgorithmException x) {
+            throw new IOException(x);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Sends a request, answering the registry's authentication challenge if there is one.
+     */
+    private static HttpURLConnection request(URL url, String method, Map<String, String> headers,
+                                             @CheckForNull DockerRegistryToken token, String credentialsKey, String scope) throws IOException {
+        List<String> key = Arrays.asList(url.getProtocol() + "://" + url.getAuthority(), scope, credentialsKey);
+        Authorization known = AUTHORIZATIONS.get(key);
+        if (known != null && known.isExpired()) {
+            AUTHORIZATIONS.remove(key, known);
+            known = null;
+        }
+        HttpURLConnection connection = open(url, method, headers, known != null ? known.header : null);
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_UNAUTHORIZED) {
+            return connection;
+        }
+        String challenge = connection.getHeaderField("WWW-Authenticate");
+        connection.disconnect();
+        if (challenge == null) {
+            throw new AbortException("Registry at " + url.getHost() + " refused access without saying how to authenticate");
+        }
+        int space = challenge.indexOf(' ');
+        String scheme = (space < 0 ? challenge : challenge.substring(0, space)).toLowerCase(Locale.ENGLISH);
+        Authorization authorization;
+        if (scheme.equals("basic")) {
+            if (token == null) {
+                throw new AbortException("Registry at " + url.getHost() + " requires credentials");
+            }
+            authorization = new Authorization("Basic " + token.getToken(), null);
+        } else if (scheme.equals("bearer")) {
+            Map<String, String> params = parameters(challenge.substring(space + 1));
+            if (params.get("scope") == null) {
+                params.put("scope", scope);
+            }
+            authorization = bearer(params, token);
+        } else {
+            throw new AbortException("Registry at " + url.getHost() + " asks for unsupported authentication " + scheme);
+        }
+        AUTHORIZATIONS.put(key, authorization);
+        connection = open(url, method, headers, authorization.header);
+        if (connection.getResponseCode() == HttpURLConnection.HTTP_UNAUTHORIZED) {
+            connection.disconnect();
+            AUTHORIZATIONS.remove(key, authorization);
+            throw new AbortException("Registry at " + url.getHost() + " refused access to " + scope);
+        }
+        return connection;
+    }
+
+    /**
+     * Identifies credentials in cache keys by a digest of the secret itself, as the same credentials ID may denote
+     * different credentials in different folders.
+     */
+    private static String credentialsKey(@CheckForNull DockerRegistryToken token) throws IOException {
+        if (token == null) {
+            return "";
+        }
+        try {
+            return Util.toHexString(MessageDigest.getInstance("SHA-256").digest(token.getToken().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException x) {
+            throw new IOException(x);
+        }
+    }
+
+    private static HttpURLConnection open(URL url, String method, Map<String, String> headers, @CheckForNull String authorization) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) ProxyConfiguration.open(url);
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        headers.forEach(connection::setRequestProperty);
+        if (authorization != null) {
+            connection.setRequestProperty("Authorization", authorization);
+        }
+        return connection;
+    }
+
+    /**
+     * Gets a token from the authorization service named in a {@code Bearer} challenge.
+     */
+    private static Authorization bearer(Map<String, String> params, @CheckForNull DockerRegistryToken token) throws IOException {
+        String realm = params.get("realm");
+        if (realm == null) {
+            throw new AbortException("Registry authentication challenge lacks a realm");
+        }
+        String service = params.get("service");
+        String scope = params.get("scope");
+        StringBuilder query = new StringBuilder(realm).append(realm.indexOf('?') < 0 ? '?' : '&');
+        if (service != null) {
+            query.append("service=").append(URLEncoder.encode(service, StandardCharsets.UTF_8)).append('&');
+        }
+        query.append("scope=").append(URLEncoder.encode(scope, StandardCharsets.UTF_8));
+        HttpURLConnection connection = open(new URL(query.toString()), "GET", Map.of("Accept", "application/json"),
+                token != null ? "Basic " + token.getToken() : null);
+        try {
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new AbortException("Registry authorization service " + realm + " refused " + scope + ": HTTP " + status);
+            }
+            JSONObject json;
+            try (InputStream in = connection.getInputStream()) {
+                json = JSONObject.fromObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            } catch (JSONException x) {
+                throw new IOException("Malformed answer from registry authorization service " + realm, x);
+            }
+            String bearer = Util.fixEmpty(json.optString("token", json.optString("access_token")));
+            if (bearer == null) {
+                throw new IOException("No token from registry authorization service " + realm);
+            }
+            // tokens last 60 seconds unless said otherwise; give up on them a bit early
+            long lifetime = json.optLong("expires_in", 60);
+            return new Authorization("Bearer " + bearer, System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(0, lifetime - 10)));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Parses the {@code key="value"} pairs of an authentication challenge.
+     */
+    static Map<String, String> parameters(String s) {
+        Map<String, String> params = new HashMap<>();
+        int i = 0;
+        int length = s.length();
+        while (i < length) {
+            while (i < length && (s.charAt(i) == ' ' || s.charAt(i) == ',')) {
+                i++;
+            }
+            int equals = s.indexOf('=', i);
+            if (equals < 0) {
+                break;
+            }
+            String name = s.substring(i, equals).trim().toLowerCase(Locale.ENGLISH);
+            StringBuilder value = new StringBuilder();
+            i = equals + 1;
+            if (i < length && s.charAt(i) == '"') {
+                for (i++; i < length && s.charAt(i) != '"'; i++) {
+                    char c = s.charAt(i);
+                    if (c == '\\' && i + 1 < length) {
+                        c = s.charAt(++i);
+                    }
+                    value.append(c);
+                }
+                i++;
+            } else {
+                for (; i < length && s.charAt(i) != ','; i++) {
+                    value.append(s.charAt(i));
+                }
+            }
+            params.put(name, value.toString().trim());
+        }
+        return params;
+    }
+
+    /**
+     * Forgets all digests and tokens, e.g. as the credentials they were obtained with may have changed.
+     */
+    static void invalidateAll() {
+        DIGESTS.clear();
+        AUTHORIZATIONS.clear();
+    }
+
+    private static final class Entry {
+
+        final String digest;
+        final @CheckForNull String etag;
+        final long checked;
+
+        Entry(String digest, @CheckForNull String etag, long checked) {
+            this.digest = digest;
+            this.etag = etag;
+            this.checked = checked;
+        }
+    }
+
+    private static final class Authorization {
+
+        final String header;
+        /** In terms of {@link System#nanoTime}, or null if it does not expire. */
+        final @CheckForNull Long expires;
+
+        Authorization(String header, @CheckForNull Long expires) {
+            this.header = header;
+            this.expires = expires;
+        }
+
+        boolean isExpired() {
+            return expires != null && System.nanoTime() - expires >= 0;
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.model.Label;
+import hudson.model.Node;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A pull-through cache of a {@link DockerRegistryEndpoint}, such as one per datacenter.
+ *
+ * @since TODO
+ */
+public class RegistryMirror extends AbstractDescribableImpl<RegistryMirror> {
+
+    private static final Logger LOGGER = Logger.getLogger(RegistryMirror.class.getName());
+
+    private final String url;
+    private final @CheckForNull String label;
+
+    /**
+     * @param url the URL of the mirror, such as "https://mirror.dc2.acme.com:5000/"
+     * @param label a label expression for the agents the mirror is meant for, or null if meant for any agent
+     *              close enough to it
+     */
+    @DataBoundConstructor
+    public RegistryMirror(String url, String label) {
+        this.url = Util.fixEmpty(url);
+        this.label = Util.fixEmptyAndTrim(label);
+    }
+
+    public @CheckForNull String getUrl() {
+        return url;
+    }
+
+    public @CheckForNull String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return whether the mirror is meant for {@code agent} by its {@link #getLabel}
+     */
+    public boolean isFor(@NonNull Node agent) {
+        if (label == null) {
+            return false;
+        }
+        try {
+            return Label.parseExpression(label).matches(agent);
+        } catch (IllegalArgumentException x) {
+            LOGGER.log(Level.WARNING, "Invalid label expression for registry mirror " + url, x);
+            return false;
+        }
+    }
+
+    @Override public String toString() {
+        return "RegistryMirror[" + url + ";label=" + label + "]";
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(url, label);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        RegistryMirror other = (RegistryMirror) obj;
+        return Objects.equals(url, other.url) && Objects.equals(label, other.label);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<RegistryMirror> {
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return "Registry Mirror";
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.util.Timer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps short-lived {@link DockerRegistryToken}s across runs and mints them again in the background before they
+ * expire, so that builds do not wait on token minting.
+ *
+ * <p>
+ * Only tokens with an {@link DockerRegistryToken#getExpiration} are kept. A token is refreshed only if it was minted
+ * or used since it was last refreshed, and dropped otherwise. {@link CredentialsResolutionCache} does not hold on to
+ * such tokens, so every use within a run comes through here.
+ */
+@Restricted(NoExternalUse.class)
+final class RegistryTokenCache {
+
+    private static final Logger LOGGER = Logger.getLogger(RegistryTokenCache.class.getName());
+
+    /** Kill switch to mint tokens on every call. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ boolean DISABLED = Boolean.getBoolean(RegistryTokenCache.class.getName() + ".DISABLED");
+
+    /** How long before their expiration tokens get refreshed, at most half of their lifetime. */
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ long REFRESH_AHEAD_SECONDS = Long.getLong(RegistryTokenCache.class.getName() + ".REFRESH_AHEAD_SECONDS", 300);
+
+    /** Tokens closer than this to their expiration are not handed out any more. */
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ long MIN_VALIDITY_SECONDS = Long.getLong(RegistryTokenCache.class.getName() + ".MIN_VALIDITY_SECONDS", 60);
+
+    private static final Map<List<String>, Entry> CACHE = new ConcurrentHashMap<>();
+
+    private RegistryTokenCache() {} // no instantiation
+
+    /**
+     * Returns a cached token, or mints one.
+     *
+     * @param key identifies the token, including the context and authentication it was minted for so it is never
+     *            handed out elsewhere
+     * @param minter mints the token
+     * @param refresher mints the token again from a background thread, as {@code minter} would; must not hold on to
+     *                  the run it is minted for. The one of the latest caller is kept.
+     * @return the token, possibly cached
+     */
+    @CheckForNull
+    static DockerRegistryToken get(@NonNull List<String> key, @NonNull Supplier<DockerRegistryToken> minter,
+                                   @NonNull Supplier<DockerRegistryToken> refresher) {
+        if (DISABLED) {
+            return minter.get();
+        }
+        Entry entry = CACHE.get(key);
+        if (entry != null) {
+            DockerRegistryToken token = entry.use(refresher);
+            if (token.isValidFor(Duration.ofSeconds(MIN_VALIDITY_SECONDS))) {
+                return token;
+            }
+            CACHE.remove(key, entry);
+        }
+        DockerRegistryToken token = minter.get();
+        if (token != null && token.getExpiration() != null) {
+            Entry fresh = new Entry(token, refresher);
+            CACHE.put(key, fresh);
+            fresh.schedule(key);
+        }
+        return token;
+    }
+
+    /**
+     * Forgets all tokens, e.g. as the credentials they were minted from may have changed.
+     */
+    static void invalidateAll() {
+        CACHE.clear();
+    }
+
+    private static final class Entry {
+
+        private volatile Supplier<DockerRegistryToken> refresher;
+        private volatile DockerRegistryToken token;
+        /** Whether the token was handed out since it was last refreshed; minting it counts. */
+        private volatile boolean used = true;
+
+        Entry(DockerRegistryToken token, Supplier<DockerRegistryToken> refresher) {
+            this.token = token;
+            this.refresher = refresher;
+        }
+
+        DockerRegistryToken use(Supplier<DockerRegistryToken> refresher) {
+            this.refresher = refresher;
+            used = true;
+            return token;
+        }
+
+        void schedule(List<String> key) {
+            Instant expiration = token.getExpiration();
+            if (expiration == null) {
+                CACHE.remove(key, this);
+                return;
+            }
+            long lifetime = Math.max(0, Duration.between(Instant.now(), expiration).toMillis());
+            long delay = lifetime - Math.min(TimeUnit.SECONDS.toMillis(REFRESH_AHEAD_SECONDS), lifetime / 2);
+            Timer.get().schedule(() -> refresh(key), delay, TimeUnit.MILLISECONDS);
+        }
+
+        private void refresh(List<String> key) {
+            if (CACHE.get(key) != this) {
+                return; // invalidated or replaced
+            }
+            if (!used) {
+                LOGGER.log(Level.FINE, "Dropping unused registry token {0}", key);
+                CACHE.remove(key, this);
+                return;
+            }
+            try {
+                DockerRegistryToken fresh = refresher.get();
+                if (fresh == null) {
+                    CACHE.remove(key, this);
+                    return;
+                }
+                token = fresh;
+                used = false;
+                LOGGER.log(Level.FINE, "Refreshed registry token {0}, now expiring at {1}", new Object[] {key, fresh.getExpiration()});
+                schedule(key);
+            } catch (RuntimeException x) {
+                LOGGER.log(Level.WARNING, "Failed to refresh registry token " + key + "; it will be minted again on next use", x);
+                CACHE.remove(key, this);
+            }
+        }
+    }
+
+}
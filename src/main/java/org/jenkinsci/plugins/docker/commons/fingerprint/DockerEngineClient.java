@@ -0,0 +1,185 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.docker.commons.fingerprint;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.EnvVars;
+import hudson.remoting.VirtualChannel;
+import jenkins.security.MasterToSlaveCallable;
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
+import org.jenkinsci.plugins.docker.commons.impl.EngineConnection;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inspects containers and images through the Docker Engine API rather than by running {@code docker inspect}.
+ *
+ * <p>
+ * The daemon is reached the way docker(1) would with the given environment, typically
+ * {@link KeyMaterial2#env} of a materialized server endpoint, from the agent at the other end of the channel.
+ * All lookups of a call go over a single connection.
+ *
+ * @since TODO
+ */
+public final class DockerEngineClient {
+
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int TIMEOUT_SECONDS = Integer.getInteger(DockerEngineClient.class.getName() + ".TIMEOUT_SECONDS", 30);
+
+    private DockerEngineClient() {} // no instantiation
+
+    /**
+     * Gathers what {@link DockerFingerprints#addRunFacet} needs about containers.
+     *
+     * @param channel the agent on which docker(1) would be run
+     * @param env the environment docker(1) would be run with
+     * @param containers container IDs or names
+     * @return records of the containers found, keyed by the ID or name they were asked for, in the same order;
+     *         containers which do not exist are left out
+     */
+    @NonNull
+    public static Map<String, ContainerRecord> inspectContainers(@NonNull VirtualChannel channel, @NonNull EnvVars env,
+                                                                 @NonNull Collection<String> containers) throws IOException, InterruptedException {
+        if (containers.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String[]> inspected = channel.call(new InspectContainers(env, containers, (int) TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS)));
+        Map<String, ContainerRecord> records = new LinkedHashMap<>();
+        // built here rather than on the agent, as the image ID of a ContainerRecord is not serialized
+        inspected.forEach((container, fields) -> records.put(container,
+                new ContainerRecord(fields[0], fields[1], fields[2], fields[3], Long.parseLong(fields[4]), Collections.emptyMap())));
+        return records;
+    }
+
+    /**
+     * Resolves images to their IDs.
+     *
+     * @param channel the agent on which docker(1) would be run
+     * @param env the environment docker(1) would be run with
+     * @param images image references or IDs
+     * @return the image IDs, such as {@code sha256:...}, keyed by the reference they were asked for, in the same order;
+     *         images which do not exist are left out
+     */
+    @NonNull
+    public static Map<String, String> inspectImages(@NonNull VirtualChannel channel, @NonNull EnvVars env,
+                                                    @NonNull Collection<String> images) throws IOException, InterruptedException {
+        if (images.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return channel.call(new InspectImages(env, images, (int) TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS)));
+    }
+
+    /**
+     * Returns, for each container found, its host name, ID, image ID, name and creation time.
+     */
+    private static final class InspectContainers extends MasterToSlaveCallable<Map<String, String[]>, IOException> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final EnvVars env;
+        private final List<String> containers;
+        private final int timeout;
+
+        InspectContainers(EnvVars env, Collection<String> containers, int timeout) {
+            this.env = env;
+            this.containers = new ArrayList<>(containers);
+            this.timeout = timeout;
+        }
+
+        @Override
+        public Map<String, String[]> call() throws IOException {
+            Map<String, String[]> result = new LinkedHashMap<>();
+            try (EngineConnection connection = EngineConnection.open(env, timeout)) {
+                for (String container : containers) {
+                    EngineConnection.Response response = connection.request("GET", "/containers/" + EngineConnection.segment(container) + "/json");
+                    if (response.status == 404) {
+                        continue;
+                    } else if (response.status != 200) {
+                        throw new IOException("Failed to inspect container " + container + ": " + response.message());
+                    }
+                    JSONObject json = response.json();
+                    JSONObject config = json.optJSONObject("Config");
+                    result.put(container, new String[] {
+                        config != null ? config.optString("Hostname") : "",
+                        json.getString("Id"),
+                        json.getString("Image"),
+                        json.optString("Name"),
+                        Long.toString(created(json.optString("Created")))
+                    });
+                }
+            }
+            return result;
+        }
+
+        private static long created(String timestamp) {
+            try {
+                return Instant.parse(timestamp).toEpochMilli();
+            } catch (DateTimeParseException x) {
+                return 0;
+            }
+        }
+    }
+
+    private static final class InspectImages extends MasterToSlaveCallable<Map<String, String>, IOException> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final EnvVars env;
+        private final List<String> images;
+        private final int timeout;
+
+        InspectImages(EnvVars env, Collection<String> images, int timeout) {
+            this.env = env;
+            this.images = new ArrayList<>(images);
+            this.timeout = timeout;
+        }
+
+        @Override
+        public Map<String, String> call() throws IOException {
+            Map<String, String> result = new LinkedHashMap<>();
+            try (EngineConnection connection = EngineConnection.open(env, timeout)) {
+                for (String image : images) {
+                    EngineConnection.Response response = connection.request("GET", "/images/" + EngineConnection.segment(image) + "/json");
+                    if (response.status == 404) {
+                        continue;
+                    } else if (response.status != 200) {
+                        throw new IOException("Failed to inspect image " + image + ": " + response.message());
+                    }
+                    result.put(image, response.json().getString("Id"));
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.ComputerListener;
+import hudson.slaves.OfflineCause;
+import jenkins.security.MasterToSlaveCallable;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Facts about an agent which do not change for as long as it stays connected, looked up once per connection.
+ *
+ * <p>
+ * Facts are keyed by {@link VirtualChannel}, so a reconnected agent, which gets a new channel, is looked up again.
+ */
+@Restricted(NoExternalUse.class)
+public final class AgentFacts implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = Logger.getLogger(AgentFacts.class.getName());
+
+    private static final Map<VirtualChannel, AgentFacts> FACTS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final String home;
+    private final String osName;
+    private final String osArch;
+
+    AgentFacts(String home, String osName, String osArch) {
+        this.home = home;
+        this.osName = osName;
+        this.osArch = osArch;
+    }
+
+    /**
+     * @return the facts about the agent behind {@code channel}, looked up if not known yet
+     */
+    @NonNull
+    public static AgentFacts of(@NonNull VirtualChannel channel) throws IOException, InterruptedException {
+        AgentFacts facts = FACTS.get(channel);
+        if (facts == null) {
+            facts = channel.call(new Collect());
+            FACTS.put(channel, facts);
+        }
+        return facts;
+    }
+
+    /**
+     * @return the home directory of the user running the agent, as {@link FilePath#getHomeDirectory} would
+     */
+    @NonNull
+    public FilePath getHomeDirectory(@NonNull VirtualChannel channel) {
+        return new FilePath(channel, home);
+    }
+
+    /**
+     * @return the {@code os.name} of the agent JVM
+     */
+    @NonNull
+    public String getOsName() {
+        return osName;
+    }
+
+    /**
+     * @return the {@code os.arch} of the agent JVM
+     */
+    @NonNull
+    public String getOsArch() {
+        return osArch;
+    }
+
+    private static final class Collect extends MasterToSlaveCallable<AgentFacts, IOException> {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public AgentFacts call() throws IOException {
+            return new AgentFacts(System.getProperty("user.home"), System.getProperty("os.name"), System.getProperty("os.arch"));
+        }
+    }
+
+    /**
+     * Looks facts up as soon as an agent connects, and forgets them when it disconnects.
+     */
+    @Extension
+    public static final class Listener extends ComputerListener {
+
+        @Override
+        public void onOnline(Computer c, TaskListener listener) {
+            VirtualChannel channel = c.getChannel();
+            if (channel == null) {
+                return;
+            }
+            FACTS.remove(channel);
+            Computer.threadPoolForRemoting.submit(() -> {
+                try {
+                    of(channel);
+                } catch (IOException | InterruptedException x) {
+                    LOGGER.log(Level.FINE, "Could not look up facts about " + c.getName(), x);
+                }
+            });
+        }
+
+        @Override
+        public void onOffline(@NonNull Computer c, @CheckForNull OfflineCause cause) {
+            VirtualChannel channel = c.getChannel();
+            if (channel != null) {
+                FACTS.remove(channel);
+            }
+        }
+    }
+
+}
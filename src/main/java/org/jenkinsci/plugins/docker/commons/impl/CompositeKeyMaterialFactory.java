@@ -36,6 +36,9 @@ import org.kohsuke.accmod.restrictions.NoExternalUse;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Composes multiple {@link org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialFactory}s into one.
@@ -49,7 +52,22 @@ public class CompositeKeyMaterialFactory extends KeyMaterialFactory {
     public CompositeKeyMaterialFactory(KeyMaterialFactory... factories) {
         this.factories = factories == null || factories.length == 0
                 ? new KeyMaterialFactory[]{new NullKeyMaterialFactory()}
-                : factories.clone();
+                : flatten(factories);
+    }
+
+    /**
+     * Inlines nested composites, so that all registry logins are visible to {@link #materialize2}.
+     */
+    private static KeyMaterialFactory[] flatten(KeyMaterialFactory[] factories) {
+        List<KeyMaterialFactory> flattened = new ArrayList<>(factories.length);
+        for (KeyMaterialFactory factory : factories) {
+            if (factory instanceof CompositeKeyMaterialFactory composite) {
+                Collections.addAll(flattened, composite.factories);
+            } else {
+                flattened.add(factory);
+            }
+        }
+        return flattened.toArray(new KeyMaterialFactory[0]);
     }
 
     @Override
@@ -65,14 +83,50 @@ public class CompositeKeyMaterialFactory extends KeyMaterialFactory {
     @Override
     public KeyMaterial2 materialize2() throws IOException, InterruptedException {
 
+        // logins to several registries share a single DOCKER_CONFIG, as only one can be exported
+        List<RegistryKeyMaterialFactory> registries = new ArrayList<>();
+        for (KeyMaterialFactory factory : factories) {
+            if (factory instanceof RegistryKeyMaterialFactory registry) {
+                registries.add(registry);
+            }
+        }
+        boolean merge = RegistryKeyMaterialFactory.mergeable(registries);
+
         KeyMaterial2[] keyMaterials = new KeyMaterial2[factories.length];
-        EnvVars env = new EnvVars();
         try {
+            String dockerConfig = null;
+            VirtualChannel dockerConfigChannel = null;
             for (int index = 0; index < factories.length; index++) {
-                keyMaterials[index] = factories[index].materialize2();
-                env.putAll(keyMaterials[index].env());
+                if (factories[index] instanceof DockerContextKeyMaterialFactory) {
+                    continue;
+                }
+                if (merge && factories[index] instanceof RegistryKeyMaterialFactory) {
+                    if (factories[index] != registries.get(0)) {
+                        continue;
+                    }
+                    keyMaterials[index] = RegistryKeyMaterialFactory.materializeMerged(registries);
+                } else {
+                    keyMaterials[index] = factories[index].materialize2();
+                }
+                if (factories[index] instanceof RegistryKeyMaterialFactory registry) {
+                    // the last one wins when the environments are put together
+                    dockerConfig = keyMaterials[index].env().get("DOCKER_CONFIG");
+                    dockerConfigChannel = registry.channel();
+                }
             }
-            return new CompositeKeyMaterial2(env, keyMaterials);
+            // likewise, Docker contexts are written into the DOCKER_CONFIG of the registry logins, if any
+            for (int index = 0; index < factories.length; index++) {
+                if (factories[index] instanceof DockerContextKeyMaterialFactory contexts) {
+                    if (dockerConfig != null) {
+                        keyMaterials[index] = contexts.materializeInto(dockerConfig, dockerConfigChannel);
+                    } else {
+                        keyMaterials[index] = contexts.materialize2();
+                        dockerConfig = keyMaterials[index].env().get("DOCKER_CONFIG");
+                        dockerConfigChannel = contexts.channel();
+                    }
+                }
+            }
+            return new CompositeKeyMaterial2(keyMaterials);
         } catch (Throwable e) {
             for (int index = keyMaterials.length - 1; index >= 0; index--) {
                 try {
@@ -101,17 +155,34 @@ public class CompositeKeyMaterialFactory extends KeyMaterialFactory {
 
         private final KeyMaterial2[] keyMaterials;
 
-        CompositeKeyMaterial2(EnvVars envVars, KeyMaterial2... keyMaterials) {
-            super(envVars);
+        CompositeKeyMaterial2(KeyMaterial2... keyMaterials) {
             this.keyMaterials = keyMaterials;
         }
 
+        /**
+         * Recomputed from the nested materials rather than stored, as these are serialized along anyway.
+         */
+        @Override
+        protected EnvVars computeEnv() {
+            EnvVars env = new EnvVars();
+            for (KeyMaterial2 keyMaterial : keyMaterials) {
+                if (keyMaterial != null) {
+                    env.putAll(keyMaterial.env());
+                }
+            }
+            return env;
+        }
+
         @Override
         public void close(VirtualChannel channel) throws IOException, InterruptedException {
             Throwable first = null;
+            // directories of all nested materials are handed over to the reaper in a single call
+            List<String> reapable = new ArrayList<>();
             for (int index = keyMaterials.length - 1; index >= 0; index--) {
                 try {
-                    if (keyMaterials[index] != null) {
+                    if (keyMaterials[index] instanceof KeyMaterialReaper.Reapable r) {
+                        reapable.addAll(r.getReapablePaths());
+                    } else if (keyMaterials[index] != null) {
                         keyMaterials[index].close(channel);
                     }
                 } catch (Throwable e) {
@@ -122,6 +193,15 @@ public class CompositeKeyMaterialFactory extends KeyMaterialFactory {
                     }
                 }
             }
+            try {
+                KeyMaterialReaper.discard(channel, reapable);
+            } catch (Throwable e) {
+                if (first == null) {
+                    first = e;
+                } else {
+                    first.addSuppressed(e);
+                }
+            }
             if (first != null) {
                 if (first instanceof IOException ioe) {
                     throw ioe;
@@ -0,0 +1,232 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialFactory;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sets up a {@code DOCKER_CONFIG} holding one named Docker context per daemon, with its TLS material,
+ * so that a single step can address any of several daemons with {@code docker --context <name>}.
+ *
+ * <p>
+ * Unlike {@link ServerHostKeyMaterialFactory} and {@link ServerKeyMaterialFactory}, which export a single
+ * {@code DOCKER_HOST}/{@code DOCKER_CERT_PATH}, several daemons do not overwrite one another.
+ *
+ * <p>
+ * The directory is seeded with the user's config file, like the one of {@link RegistryKeyMaterialFactory}. Composed
+ * with registry logins, the contexts are written into the directory of the latter instead, see
+ * {@link CompositeKeyMaterialFactory}.
+ */
+@Restricted(NoExternalUse.class)
+public class DockerContextKeyMaterialFactory extends KeyMaterialFactory {
+
+    private final List<Context> contexts;
+
+    public DockerContextKeyMaterialFactory(@NonNull List<Context> contexts) {
+        this.contexts = new ArrayList<>(contexts);
+    }
+
+    @Override
+    public KeyMaterial2 materialize2() throws IOException, InterruptedException {
+        FilePath dockerConfig = createSecretsDirectory();
+        try {
+            // keeps settings such as proxies, credHelpers or currentContext
+            RegistryKeyMaterialFactory.seedDockerConfig(dockerConfig, getChannel());
+            dockerConfig.act(new WriteContexts(data()));
+        } catch (IOException | InterruptedException | RuntimeException x) {
+            try {
+                dockerConfig.deleteRecursive();
+            } catch (Exception x2) {
+                x.addSuppressed(x2);
+            }
+            throw x;
+        }
+        return new ContextKeyMaterial2(dockerConfig.getRemote());
+    }
+
+    /**
+     * Writes the contexts into a {@code DOCKER_CONFIG} set up by another material, which takes care of deleting it.
+     *
+     * @param channel the agent {@code dockerConfig} is on, which must be the one of this factory
+     */
+    KeyMaterial2 materializeInto(@NonNull String dockerConfig, @NonNull VirtualChannel channel) throws IOException, InterruptedException {
+        if (channel != getChannel()) {
+            throw new IllegalArgumentException("Docker contexts cannot share the DOCKER_CONFIG of registry logins on another agent");
+        }
+        new FilePath(channel, dockerConfig).act(new WriteContexts(data()));
+        return KeyMaterial2.NULL;
+    }
+
+    /**
+     * @return the agent the contexts are written on, see {@link CompositeKeyMaterialFactory}
+     */
+    VirtualChannel channel() {
+        return getChannel();
+    }
+
+    private String[][] data() {
+        String[][] data = new String[contexts.size()][];
+        for (int index = 0; index < data.length; index++) {
+            Context c = contexts.get(index);
+            data[index] = new String[] {c.name, c.host, c.key, c.cert, c.ca};
+        }
+        return data;
+    }
+
+    /**
+     * A named daemon endpoint.
+     */
+    public static final class Context {
+
+        private final @NonNull String name;
+        private final @NonNull String host;
+        private final @CheckForNull String key;
+        private final @CheckForNull String cert;
+        private final @CheckForNull String ca;
+
+        /**
+         * @param name the name to pass to {@code --context}
+         * @param host the daemon address, as in {@code DOCKER_HOST}
+         * @param key client key, if TLS is used
+         * @param cert client certificate, if TLS is used
+         * @param ca server CA certificate, if TLS is used
+         */
+        public Context(@NonNull String name, @NonNull String host, @CheckForNull String key, @CheckForNull String cert, @CheckForNull String ca) {
+            if (name.equals("default") || !name.matches("[a-zA-Z0-9][a-zA-Z0-9_.+-]+")) {
+                throw new IllegalArgumentException("Invalid Docker context name: " + name);
+            }
+            this.name = name;
+            this.host = host;
+            this.key = key;
+            this.cert = cert;
+            this.ca = ca;
+        }
+    }
+
+    /**
+     * Lays the contexts out the way docker(1) stores them: {@code contexts/meta/<digest>/meta.json} and
+     * {@code contexts/tls/<digest>/docker/*.pem}, where the digest is the SHA-256 of the context name.
+     */
+    private static final class WriteContexts extends MasterToSlaveFileCallable<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        /** name, host, key, cert and ca of each context */
+        private final String[][] contexts;
+
+        WriteContexts(String[][] contexts) {
+            this.contexts = contexts;
+        }
+
+        @Override
+        public Void invoke(File dockerConfig, VirtualChannel channel) throws IOException, InterruptedException {
+            for (String[] context : contexts) {
+                String digest = digest(context[0]);
+                boolean tls = context[2] != null && context[3] != null && context[4] != null;
+
+                JSONObject docker = new JSONObject();
+                docker.put("Host", context[1]);
+                docker.put("SkipTLSVerify", false);
+                JSONObject endpoints = new JSONObject();
+                endpoints.put("docker", docker);
+                JSONObject meta = new JSONObject();
+                meta.put("Name", context[0]);
+                meta.put("Metadata", new JSONObject());
+                meta.put("Endpoints", endpoints);
+                write(new File(dockerConfig, "contexts/meta/" + digest + "/meta.json"), meta.toString());
+
+                if (tls) {
+                    File dir = new File(dockerConfig, "contexts/tls/" + digest + "/docker");
+                    write(new File(dir, "key.pem"), context[2]);
+                    write(new File(dir, "cert.pem"), context[3]);
+                    write(new File(dir, "ca.pem"), context[4]);
+                }
+            }
+            return null;
+        }
+
+        private static void write(File file, String content) throws IOException {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static String digest(String name) {
+            try {
+                return Util.toHexString(MessageDigest.getInstance("SHA-256").digest(name.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException x) {
+                throw new AssertionError(x);
+            }
+        }
+    }
+
+    private static final class ContextKeyMaterial2 extends KeyMaterial2 implements KeyMaterialReaper.Reapable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String dockerConfig;
+
+        ContextKeyMaterial2(String dockerConfig) {
+            this.dockerConfig = dockerConfig;
+        }
+
+        @Override
+        protected EnvVars computeEnv() {
+            return new EnvVars("DOCKER_CONFIG", dockerConfig);
+        }
+
+        @Override
+        public void close(VirtualChannel channel) throws IOException, InterruptedException {
+            KeyMaterialReaper.discard(channel, getReapablePaths());
+        }
+
+        @NonNull
+        @Override
+        public Collection<String> getReapablePaths() {
+            return Collections.singletonList(dockerConfig);
+        }
+    }
+}
@@ -0,0 +1,436 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.EnvVars;
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import net.sf.json.JSONObject;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves registry credentials to docker(1) through a {@code docker-credential-jenkins} helper instead of
+ * {@code docker login} writing them into {@code config.json}.
+ *
+ * <p>
+ * The per-build {@code DOCKER_CONFIG} references the helper through {@code credHelpers}. The helper is a shell script
+ * which forwards {@code get} requests, using {@code curl}, to a Unix domain socket served from the agent JVM for as
+ * long as the {@link KeyMaterial2} is open; the credentials only ever live in memory.
+ *
+ * <p>
+ * Enabled by setting {@value #DOCKER_REGISTRY_CREDENTIAL_HELPER} to {@code true} in the build environment.
+ * Agents which cannot run the helper (Windows, no {@code curl}) fall back to {@code docker login}.
+ */
+@Restricted(NoExternalUse.class)
+public final class DockerCredentialHelper {
+
+    private static final Logger LOGGER = Logger.getLogger(DockerCredentialHelper.class.getName());
+
+    static final String DOCKER_REGISTRY_CREDENTIAL_HELPER = "DOCKER_REGISTRY_CREDENTIAL_HELPER";
+
+    /** Name of the helper as referenced from {@code credHelpers}; docker(1) runs {@code docker-credential-<name>}. */
+    static final String NAME = "jenkins";
+
+    private static final String DOCKER_CONFIG_FILENAME = "config.json";
+
+    private DockerCredentialHelper() {} // no instantiation
+
+    static boolean enabled(@NonNull EnvVars env) {
+        return Boolean.parseBoolean(env.get(DOCKER_REGISTRY_CREDENTIAL_HELPER, "false"));
+    }
+
+    /**
+     * @return the directory holding the helper, to be put on the {@code PATH}
+     */
+    static String binDirectory(@NonNull String dockerConfig) {
+        return dockerConfig + "/bin";
+    }
+
+    /**
+     * Reduces a server address as passed by docker(1) to the host[:port] used to key credentials.
+     */
+    static String authority(@NonNull String serverUrl) {
+        String authority = serverUrl.trim();
+        int scheme = authority.indexOf("://");
+        if (scheme >= 0) {
+            authority = authority.substring(scheme + 3);
+        }
+        int slash = authority.indexOf('/');
+        if (slash >= 0) {
+            authority = authority.substring(0, slash);
+        }
+        return authority.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Starts serving credentials and sets up the helper in the {@code DOCKER_CONFIG} directory it is invoked on.
+     * Returns the path of the socket, or null if the helper cannot be used on this agent.
+     */
+    static final class Start extends MasterToSlaveFileCallable<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        /** username, password and server URL, keyed by {@link #authority} */
+        private final Map<String, String[]> credentials;
+
+        Start(Map<String, String[]> credentials) {
+            this.credentials = new HashMap<>(credentials);
+        }
+
+        @Override
+        public String invoke(File dockerConfig, VirtualChannel channel) throws IOException, InterruptedException {
+            if (File.pathSeparatorChar != ':' || !onPath("curl")) {
+                return null;
+            }
+            // socket paths are limited to ~100 characters, so not in the possibly deep DOCKER_CONFIG; still owner only
+            Path socketDir = Files.createTempDirectory("docker-credential-jenkins");
+            String socket = socketDir.resolve("s").toString();
+            Server.start(socket, credentials);
+            KeyMaterialReaper.register(dockerConfig, () -> Server.stop(socket));
+            try {
+                File bin = new File(binDirectory(dockerConfig.getAbsolutePath()));
+                bin.mkdirs();
+                File helper = new File(bin, "docker-credential-" + NAME);
+                Files.write(helper.toPath(), script(socket).getBytes(StandardCharsets.UTF_8));
+                if (!helper.setExecutable(true, true)) {
+                    throw new IOException("Could not make " + helper + " executable");
+                }
+
+                File configJson = new File(dockerConfig, DOCKER_CONFIG_FILENAME);
+                JSONObject json = new JSONObject();
+                if (configJson.isFile()) {
+                    String content = new String(Files.readAllBytes(configJson.toPath()), StandardCharsets.UTF_8);
+                    if (StringUtils.isNotBlank(content)) {
+                        json = JSONObject.fromObject(content);
+                    }
+                }
+                JSONObject credHelpers = new JSONObject();
+                for (Map.Entry<String, String[]> entry : credentials.entrySet()) {
+                    credHelpers.put(entry.getKey(), NAME);
+                    // Docker Hub is looked up by its full index URL
+                    credHelpers.put(entry.getValue()[2], NAME);
+                }
+                json.put("credHelpers", credHelpers);
+                Files.write(configJson.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException | RuntimeException x) {
+                try {
+                    Server.stop(socket);
+                } catch (IOException x2) {
+                    x.addSuppressed(x2);
+                }
+                throw x;
+            }
+            return socket;
+        }
+
+        private static boolean onPath(String command) {
+            String path = System.getenv("PATH");
+            if (path == null) {
+                return false;
+            }
+            for (String dir : path.split(File.pathSeparator)) {
+                if (new File(dir, command).canExecute()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String script(String socket) {
+            return "#!/bin/sh\n" +
+                    "# Serves registry credentials from the Jenkins agent; nothing is stored\n" +
+                    "case \"$1\" in\n" +
+                    "  get)\n" +
+                    "    curl -sf --unix-socket '" + socket + "' --data-binary @- http://localhost/get && exit 0\n" +
+                    "    echo 'credentials not found in native keychain'\n" +
+                    "    exit 1\n" +
+                    "    ;;\n" +
+                    "  list)\n" +
+                    "    echo '{}'\n" +
+                    "    ;;\n" +
+                    "  *)\n" +
+                    "    cat > /dev/null\n" +
+                    "    ;;\n" +
+                    "esac\n";
+        }
+    }
+
+    /**
+     * Agent-side socket answering {@code POST /get} with the credentials for the server address in the body.
+     *
+     * <p>
+     * Requests are served concurrently, each by a pooled thread which gives up on a client not done sending its request
+     * within {@link #READ_TIMEOUT_MILLIS}. Servers are registered with {@link KeyMaterialReaper} along with their
+     * {@code DOCKER_CONFIG}, so that they are stopped when it is discarded or swept.
+     */
+    static final class Server implements Runnable {
+
+        /** Largest request body accepted; server addresses are far shorter. */
+        static final int MAX_BODY = 8192;
+
+        /** Longest request line or header accepted. */
+        private static final int MAX_LINE = 8192;
+
+        /** How many requests may be served at once, across all servers of the agent. */
+        private static final int MAX_CONCURRENT = 16;
+
+        /** How long a client may take to send its request. */
+        @SuppressWarnings("FieldMayBeFinal")
+        static /* not final */ long READ_TIMEOUT_MILLIS = Long.getLong(DockerCredentialHelper.class.getName() + ".READ_TIMEOUT_MILLIS", 10000);
+
+        private static final Map<String, Server> SERVERS = new ConcurrentHashMap<>();
+
+        private static final ExecutorService WORKERS = new ThreadPoolExecutor(0, MAX_CONCURRENT, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), daemon("docker-credential-jenkins request"));
+
+        private static final ScheduledExecutorService TIMEOUTS = Executors.newSingleThreadScheduledExecutor(daemon("docker-credential-jenkins timeout"));
+
+        private final ServerSocketChannel channel;
+        private final Map<String, String[]> credentials;
+
+        private Server(ServerSocketChannel channel, Map<String, String[]> credentials) {
+            this.channel = channel;
+            this.credentials = Collections.unmodifiableMap(new HashMap<>(credentials));
+        }
+
+        private static ThreadFactory daemon(String name) {
+            return r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+
+        static void start(@NonNull String socket, @NonNull Map<String, String[]> credentials) throws IOException {
+            ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            try {
+                channel.bind(UnixDomainSocketAddress.of(socket));
+            } catch (IOException x) {
+                channel.close();
+                throw x;
+            }
+            Server server = new Server(channel, credentials);
+            SERVERS.put(socket, server);
+            Thread thread = new Thread(server, "docker-credential-jenkins " + socket);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        static void stop(@NonNull String socket) throws IOException {
+            Server server = SERVERS.remove(socket);
+            if (server != null) {
+                server.channel.close();
+            }
+            File file = new File(socket);
+            Files.deleteIfExists(file.toPath());
+            File dir = file.getParentFile();
+            if (dir != null && dir.getName().startsWith("docker-credential-jenkins")) {
+                Util.deleteRecursive(dir);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (channel.isOpen()) {
+                SocketChannel connection;
+                try {
+                    connection = channel.accept();
+                } catch (IOException x) {
+                    if (channel.isOpen()) {
+                        LOGGER.log(Level.FINE, "Failed to accept credential helper request", x);
+                    }
+                    continue;
+                }
+                try {
+                    WORKERS.execute(() -> serve(connection));
+                } catch (RejectedExecutionException x) {
+                    LOGGER.log(Level.FINE, "Too many concurrent credential helper requests, dropping one");
+                    try {
+                        connection.close();
+                    } catch (IOException x2) {
+                        // ignore
+                    }
+                }
+            }
+        }
+
+        private void serve(SocketChannel connection) {
+            ScheduledFuture<?> timeout = TIMEOUTS.schedule(() -> {
+                try {
+                    connection.close();
+                } catch (IOException x) {
+                    // ignore
+                }
+            }, READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            try (connection) {
+                handle(connection);
+            } catch (IOException | RuntimeException x) {
+                LOGGER.log(Level.FINE, "Failed to serve credential helper request", x);
+            } finally {
+                timeout.cancel(false);
+            }
+        }
+
+        private void handle(SocketChannel connection) throws IOException {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(connection));
+            int contentLength = -1;
+            String line = readLine(in);
+            if (line == null) {
+                return;
+            }
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                if (line.regionMatches(true, 0, "content-length:", 0, "content-length:".length())) {
+                    try {
+                        contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+                    } catch (NumberFormatException x) {
+                        respond(connection, "400 Bad Request", "");
+                        return;
+                    }
+                }
+            }
+            if (contentLength < 0 || contentLength > MAX_BODY) {
+                respond(connection, contentLength < 0 ? "411 Length Required" : "413 Payload Too Large", "");
+                return;
+            }
+            byte[] body = in.readNBytes(contentLength);
+            if (body.length < contentLength) {
+                return;
+            }
+            String serverUrl = new String(body, StandardCharsets.UTF_8).trim();
+            String[] entry = credentials.get(authority(serverUrl));
+            if (entry != null) {
+                JSONObject json = new JSONObject();
+                json.put("ServerURL", serverUrl);
+                json.put("Username", entry[0]);
+                json.put("Secret", entry[1]);
+                respond(connection, "200 OK", json.toString());
+            } else {
+                respond(connection, "404 Not Found", "");
+            }
+        }
+
+        /**
+         * Reads an ASCII line ending in LF or CRLF, without its end.
+         *
+         * @return null at the end of the stream
+         */
+        @CheckForNull
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c < 0) {
+                    return line.length() > 0 ? line.toString() : null;
+                }
+                if (line.length() == MAX_LINE) {
+                    throw new IOException("Request line longer than " + MAX_LINE + " bytes");
+                }
+                line.append((char) c);
+            }
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') {
+                line.setLength(length - 1);
+            }
+            return line.toString();
+        }
+
+        private static void respond(SocketChannel connection, String status, String response) throws IOException {
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            OutputStream out = Channels.newOutputStream(connection);
+            out.write(("HTTP/1.0 " + status + "\r\nContent-Type: application/json\r\nContent-Length: " + bytes.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(bytes);
+            out.flush();
+        }
+    }
+
+    /**
+     * Discards the {@code DOCKER_CONFIG} directory holding the helper, which stops the server.
+     */
+    static final class HelperKeyMaterial2 extends KeyMaterial2 implements KeyMaterialReaper.Reapable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String dockerConfig;
+
+        HelperKeyMaterial2(String dockerConfig) {
+            this.dockerConfig = dockerConfig;
+        }
+
+        @Override
+        protected EnvVars computeEnv() {
+            EnvVars env = new EnvVars("DOCKER_CONFIG", dockerConfig);
+            env.put("PATH+DOCKER_CREDENTIAL_JENKINS", binDirectory(dockerConfig));
+            return env;
+        }
+
+        @Override
+        public void close(VirtualChannel channel) throws IOException, InterruptedException {
+            KeyMaterialReaper.discard(channel, getReapablePaths());
+        }
+
+        @NonNull
+        @Override
+        public Collection<String> getReapablePaths() {
+            return Collections.singletonList(dockerConfig);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.ExtensionListListener;
+import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.util.ClassLoaderSanityThreadFactory;
+import org.jenkinsci.plugins.docker.commons.DockerImageExtractor;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Remembers what {@link DockerImageExtractor#getDockerImagesUsedByJobFromAll} found for each job, until the job is
+ * saved, updated, renamed or deleted, or one of its builds completes (as a Jenkinsfile is only known once it ran).
+ *
+ * <p>
+ * The extractors are asked as {@link ACL#SYSTEM2}, whoever is calling, as what they find is shared by all callers;
+ * callers are to check that the job may be read first. They are asked in parallel on a bounded pool, each with
+ * {@link #TIMEOUT_MILLIS} to answer. One that does not is left out, and the incomplete result is not remembered, so
+ * that it is asked again next time; it is not asked again though until its hung call returns.
+ */
+@Restricted(NoExternalUse.class)
+public final class DockerImageExtractorCache {
+
+    private static final Logger LOGGER = Logger.getLogger(DockerImageExtractorCache.class.getName());
+
+    /** Kill switch to ask the extractors on every call. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ boolean DISABLED = Boolean.getBoolean(DockerImageExtractorCache.class.getName() + ".DISABLED");
+
+    /** How long each extractor may take. */
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ long TIMEOUT_MILLIS = Long.getLong(DockerImageExtractorCache.class.getName() + ".TIMEOUT_MILLIS", 10000);
+
+    private static final Map<Job<?, ?>, Set<String>> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /** Bumped on every invalidation, so that a result computed meanwhile is not stored. */
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    private static final int MAX_THREADS = 4;
+
+    private static final ExecutorService EXECUTOR;
+
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new ClassLoaderSanityThreadFactory(new DaemonThreadFactory()), DockerImageExtractorCache.class.getSimpleName()));
+        executor.allowCoreThreadTimeOut(true);
+        EXECUTOR = executor;
+    }
+
+    /** Extractors which did not answer in time, with their call that may still be running. */
+    private static final Map<DockerImageExtractor, Extraction> HUNG = new ConcurrentHashMap<>();
+
+    private DockerImageExtractorCache() {} // no instantiation
+
+    /**
+     * @return the sorted repository names reported by all extractors for {@code job}; not to be modified
+     */
+    @NonNull
+    public static Set<String> get(@NonNull Job<?, ?> job) {
+        if (DISABLED) {
+            Set<String> names = new TreeSet<>();
+            extract(job, names);
+            return Collections.unmodifiableSet(names);
+        }
+        Set<String> names = CACHE.get(job);
+        if (names != null) {
+            return names;
+        }
+        long generation = GENERATION.get();
+        names = new TreeSet<>();
+        boolean complete = extract(job, names);
+        names = Collections.unmodifiableSet(names);
+        if (complete) {
+            synchronized (CACHE) {
+                if (GENERATION.get() == generation) {
+                    CACHE.put(job, names);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Asks all extractors, as {@link ACL#SYSTEM2}.
+     *
+     * @return whether all of them answered in time
+     */
+    private static boolean extract(Job<?, ?> job, Set<String> names) {
+        List<DockerImageExtractor> extractors = ExtensionList.lookup(DockerImageExtractor.class);
+        if (extractors.size() < 2) {
+            try (ACLContext context = ACL.as2(ACL.SYSTEM2)) {
+                for (DockerImageExtractor extractor : extractors) {
+                    names.addAll(extractor.getDockerImagesUsedByJob(job));
+                }
+            }
+            return true;
+        }
+        boolean complete = true;
+        List<Extraction> extractions = new ArrayList<>(extractors.size());
+        for (DockerImageExtractor extractor : extractors) {
+            Extraction hung = HUNG.get(extractor);
+            if (hung != null) {
+                if (!hung.done) {
+                    LOGGER.log(Level.FINE, "{0} is still busy with an earlier job; leaving it out", extractor.getClass().getName());
+                    complete = false;
+                    continue;
+                }
+                HUNG.remove(extractor, hung);
+            }
+            Extraction extraction = new Extraction(extractor, job);
+            extraction.future = EXECUTOR.submit(extraction);
+            extractions.add(extraction);
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        try {
+            for (Extraction extraction : extractions) {
+                try {
+                    names.addAll(extraction.future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+                } catch (TimeoutException x) {
+                    extraction.future.cancel(true);
+                    if (!extraction.done) {
+                        HUNG.put(extraction.extractor, extraction);
+                    }
+                    complete = false;
+                    LOGGER.log(Level.WARNING, "{0} took more than {1}ms to look at {2}; leaving it out",
+                            new Object[] {extraction.extractor.getClass().getName(), TIMEOUT_MILLIS, job.getFullName()});
+                } catch (ExecutionException x) {
+                    Throwable cause = x.getCause();
+                    if (cause instanceof RuntimeException re) {
+                        throw re;
+                    } else if (cause instanceof Error e) {
+                        throw e;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            complete = false;
+        } finally {
+            for (Extraction extraction : extractions) {
+                extraction.future.cancel(true);
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * A call to an extractor, which tells when it returned even if it was cancelled meanwhile.
+     */
+    private static final class Extraction implements Callable<Collection<String>> {
+
+        final DockerImageExtractor extractor;
+        private final Job<?, ?> job;
+        volatile boolean done;
+        Future<Collection<String>> future;
+
+        Extraction(DockerImageExtractor extractor, Job<?, ?> job) {
+            this.extractor = extractor;
+            this.job = job;
+        }
+
+        @Override
+        public Collection<String> call() {
+            try (ACLContext context = ACL.as2(ACL.SYSTEM2)) {
+                return extractor.getDockerImagesUsedByJob(job);
+            } finally {
+                done = true;
+            }
+        }
+    }
+
+    /**
+     * Forgets what was found for {@code job}.
+     */
+    public static void invalidate(@NonNull Job<?, ?> job) {
+        synchronized (CACHE) {
+            GENERATION.incrementAndGet();
+            CACHE.remove(job);
+        }
+    }
+
+    /**
+     * Forgets everything found so far.
+     */
+    public static void invalidateAll() {
+        synchronized (CACHE) {
+            GENERATION.incrementAndGet();
+            CACHE.clear();
+        }
+    }
+
+    /**
+     * Starts over when extractors are added or removed along with their plugins.
+     */
+    @Initializer(after = InitMilestone.EXTENSIONS_AUGMENTED)
+    public static void listenToExtractors() {
+        ExtensionList.lookup(DockerImageExtractor.class).addListener(new ExtensionListListener() {
+            @Override
+            public void onChange() {
+                invalidateAll();
+            }
+        });
+    }
+
+    @Extension
+    public static final class JobSaveListener extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof Job<?, ?> job) {
+                invalidate(job);
+            }
+        }
+    }
+
+    @Extension
+    public static final class JobListener extends ItemListener {
+        @Override
+        public void onUpdated(Item item) {
+            if (item instanceof Job<?, ?> job) {
+                invalidate(job);
+            }
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            if (item instanceof Job<?, ?> job) {
+                invalidate(job);
+            }
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            if (item instanceof Job<?, ?> job) {
+                invalidate(job);
+            }
+        }
+    }
+
+    @Extension
+    public static final class BuildListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onCompleted(Run<?, ?> run, @NonNull TaskListener listener) {
+            invalidate(run.getParent());
+        }
+    }
+
+}
@@ -0,0 +1,455 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.EnvVars;
+import net.sf.json.JSONObject;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A connection to the Docker Engine API, as docker(1) would open it, carrying any number of requests in turn.
+ *
+ * <p>
+ * Supports {@code unix://} sockets, and {@code tcp://} with or without TLS ({@code DOCKER_TLS_VERIFY} mode, with
+ * {@code key.pem}, {@code cert.pem} and {@code ca.pem} in {@code DOCKER_CERT_PATH}).
+ * Only meant to run where the daemon address was materialized, i.e. on the agent.
+ */
+@Restricted(NoExternalUse.class)
+public final class EngineConnection implements Closeable {
+
+    static final String DEFAULT_HOST = "unix:///var/run/docker.sock";
+
+    private final Closeable transport;
+    private final InputStream in;
+    private final OutputStream out;
+    private final int timeout;
+    private boolean open = true;
+
+    private EngineConnection(Closeable transport, InputStream in, OutputStream out, int timeout) {
+        this.transport = transport;
+        this.in = new BufferedInputStream(in);
+        this.out = out;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Connects to the daemon designated by {@code DOCKER_HOST}, {@code DOCKER_TLS_VERIFY} and {@code DOCKER_CERT_PATH}.
+     *
+     * @param timeout how long in milliseconds to wait for connecting, and for each response
+     */
+    @NonNull
+    public static EngineConnection open(@NonNull EnvVars env, int timeout) throws IOException {
+        String host = env.get("DOCKER_HOST");
+        if (host == null || host.isEmpty()) {
+            host = DEFAULT_HOST;
+        }
+        File certPath = null;
+        String verify = env.get("DOCKER_TLS_VERIFY");
+        if (verify != null && !verify.isEmpty()) {
+            String path = env.get("DOCKER_CERT_PATH");
+            certPath = path != null && !path.isEmpty() ? new File(path) : new File(System.getProperty("user.home"), ".docker");
+        } else if (env.get("DOCKER_TLS") != null) {
+            throw new IOException("TLS without verification of the daemon is not supported");
+        }
+        return open(host, certPath, timeout);
+    }
+
+    /**
+     * @param host the daemon address, as in {@code DOCKER_HOST}
+     * @param certPath where to find the TLS material, or null to connect in the clear
+     * @param timeout how long in milliseconds to wait for connecting, and for each response
+     */
+    @NonNull
+    public static EngineConnection open(@NonNull String host, @CheckForNull File certPath, int timeout) throws IOException {
+        return open(host, certPath, certPath != null, timeout);
+    }
+
+    /**
+     * @param host the daemon address, as in {@code DOCKER_HOST}
+     * @param certPath where to find the TLS material, or null to connect in the clear
+     * @param tls whether the daemon expects TLS, which picks the default port; without {@code certPath} the
+     *            connection is only established, and no request can be made over it
+     * @param timeout how long in milliseconds to wait for connecting, and for each response
+     */
+    @NonNull
+    static EngineConnection open(@NonNull String host, @CheckForNull File certPath, boolean tls, int timeout) throws IOException {
+        URI uri = URI.create(host);
+        if ("unix".equals(uri.getScheme())) {
+            SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            try {
+                channel.connect(UnixDomainSocketAddress.of(uri.getPath()));
+            } catch (IOException x) {
+                channel.close();
+                throw x;
+            }
+            return new EngineConnection(channel, Channels.newInputStream(channel), Channels.newOutputStream(channel), timeout);
+        } else if ("tcp".equals(uri.getScheme()) && uri.getHost() != null) {
+            int port = port(uri, tls);
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(uri.getHost(), port), timeout);
+                socket.setSoTimeout(timeout);
+                if (certPath != null) {
+                    SSLSocket ssl = (SSLSocket) sslContext(certPath).getSocketFactory().createSocket(socket, uri.getHost(), port, true);
+                    SSLParameters parameters = ssl.getSSLParameters();
+                    parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                    ssl.setSSLParameters(parameters);
+                    ssl.startHandshake();
+                    socket = ssl;
+                }
+            } catch (IOException x) {
+                socket.close();
+                throw x;
+            }
+            return new EngineConnection(socket, socket.getInputStream(), socket.getOutputStream(), timeout);
+        } else {
+            throw new IOException("Unsupported Docker daemon address " + host);
+        }
+    }
+
+    /**
+     * @return the port of a {@code tcp://} address, defaulting like docker(1) does
+     */
+    static int port(@NonNull URI uri, boolean tls) {
+        return uri.getPort() != -1 ? uri.getPort() : tls ? 2376 : 2375;
+    }
+
+    /**
+     * The status and body of a response.
+     */
+    public static final class Response {
+
+        public final int status;
+        public final @NonNull byte[] body;
+
+        Response(int status, @NonNull byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public @NonNull String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+
+        public @NonNull JSONObject json() {
+            return JSONObject.fromObject(text());
+        }
+
+        /**
+         * @return the error message of the daemon, or the body as is
+         */
+        public @NonNull String message() {
+            try {
+                return json().optString("message", text());
+            } catch (RuntimeException x) {
+                return text();
+            }
+        }
+    }
+
+    /**
+     * Sends a request without body, and reads the response.
+     *
+     * @param path the path and query, already escaped, e.g. {@code /containers/abc/json}
+     */
+    @NonNull
+    public synchronized Response request(@NonNull String method, @NonNull String path) throws IOException {
+        if (!open) {
+            throw new IOException("Connection closed by the Docker daemon");
+        }
+        // unix sockets cannot time out reads, so the transport gets closed under them instead
+        CompletableFuture<Void> watchdog = CompletableFuture.runAsync(this::closeQuietly,
+                CompletableFuture.delayedExecutor(timeout, TimeUnit.MILLISECONDS));
+        try {
+            out.write((method + " " + path + " HTTP/1.1\r\n" +
+                    "Host: docker\r\n" +
+                    "User-Agent: Jenkins docker-commons\r\n" +
+                    (method.equals("GET") || method.equals("HEAD") ? "" : "Content-Length: 0\r\n") +
+                    "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            return readResponse(method.equals("HEAD"));
+        } finally {
+            watchdog.cancel(false);
+        }
+    }
+
+    private Response readResponse(boolean head) throws IOException {
+        String statusLine = readLine();
+        if (statusLine == null || !statusLine.startsWith("HTTP/1.") || statusLine.length() < 12) {
+            throw new IOException("Unexpected response from the Docker daemon: " + statusLine);
+        }
+        int status;
+        try {
+            status = Integer.parseInt(statusLine.substring(9, 12));
+        } catch (NumberFormatException x) {
+            throw new IOException("Unexpected response from the Docker daemon: " + statusLine, x);
+        }
+        long length = -1;
+        boolean chunked = false;
+        boolean close = statusLine.startsWith("HTTP/1.0");
+        String header;
+        while ((header = readLine()) != null && !header.isEmpty()) {
+            int colon = header.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String name = header.substring(0, colon).trim().toLowerCase(Locale.ENGLISH);
+            String value = header.substring(colon + 1).trim();
+            if (name.equals("content-length")) {
+                length = Long.parseLong(value);
+            } else if (name.equals("transfer-encoding")) {
+                chunked = value.toLowerCase(Locale.ENGLISH).contains("chunked");
+            } else if (name.equals("connection")) {
+                close = value.equalsIgnoreCase("close");
+            }
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (head || status == 204 || status == 304) {
+            // no body
+        } else if (chunked) {
+            while (true) {
+                String size = readLine();
+                if (size == null) {
+                    throw new IOException("Truncated response from the Docker daemon");
+                }
+                int semicolon = size.indexOf(';');
+                long chunk = Long.parseLong((semicolon >= 0 ? size.substring(0, semicolon) : size).trim(), 16);
+                if (chunk == 0) {
+                    while ((header = readLine()) != null && !header.isEmpty()) {
+                        // trailers
+                    }
+                    break;
+                }
+                copy(chunk, body);
+                readLine();
+            }
+        } else if (length >= 0) {
+            copy(length, body);
+        } else {
+            in.transferTo(body);
+            close = true;
+        }
+        if (close) {
+            closeQuietly();
+        }
+        return new Response(status, body.toByteArray());
+    }
+
+    private void copy(long length, OutputStream body) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (length > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, length));
+            if (read < 0) {
+                throw new IOException("Truncated response from the Docker daemon");
+            }
+            body.write(buffer, 0, read);
+            length -= read;
+        }
+    }
+
+    @CheckForNull
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                return line.size() == 0 ? null : line.toString(StandardCharsets.US_ASCII);
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Escapes a path segment, such as an image reference, which docker(1) passes unescaped when safe.
+     */
+    @NonNull
+    public static String segment(@NonNull String value) {
+        StringBuilder b = new StringBuilder(value.length());
+        for (byte c : value.getBytes(StandardCharsets.UTF_8)) {
+            if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '.' || c == '_'
+                    || c == ':' || c == '/' || c == '@') {
+                b.append((char) c);
+            } else {
+                b.append('%').append(Character.toUpperCase(Character.forDigit((c >> 4) & 0xF, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xF, 16)));
+            }
+        }
+        return b.toString();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        open = false;
+        transport.close();
+    }
+
+    private void closeQuietly() {
+        open = false;
+        try {
+            transport.close();
+        } catch (IOException x) {
+            // ignore
+        }
+    }
+
+    private static SSLContext sslContext(File certPath) throws IOException {
+        try {
+            CertificateFactory certificates = CertificateFactory.getInstance("X.509");
+            char[] password = new char[0];
+
+            KeyStore keys = KeyStore.getInstance(KeyStore.getDefaultType());
+            keys.load(null, null);
+            Certificate[] chain;
+            try (InputStream cert = Files.newInputStream(new File(certPath, "cert.pem").toPath())) {
+                chain = certificates.generateCertificates(cert).toArray(new Certificate[0]);
+            }
+            keys.setKeyEntry("client", privateKey(new File(certPath, "key.pem")), password, chain);
+            KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagers.init(keys, password);
+
+            TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            File ca = new File(certPath, "ca.pem");
+            if (ca.isFile()) {
+                KeyStore trusted = KeyStore.getInstance(KeyStore.getDefaultType());
+                trusted.load(null, null);
+                try (InputStream in = Files.newInputStream(ca.toPath())) {
+                    int index = 0;
+                    for (Certificate certificate : certificates.generateCertificates(in)) {
+                        trusted.setCertificateEntry("ca" + index++, certificate);
+                    }
+                }
+                trustManagers.init(trusted);
+            } else {
+                trustManagers.init((KeyStore) null);
+            }
+
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+            return context;
+        } catch (GeneralSecurityException x) {
+            throw new IOException("Could not load the TLS material in " + certPath, x);
+        }
+    }
+
+    /**
+     * Reads a PKCS#8 ({@code PRIVATE KEY}) or PKCS#1 ({@code RSA PRIVATE KEY}) key, as generated by the usual tools.
+     */
+    private static PrivateKey privateKey(File pem) throws IOException, GeneralSecurityException {
+        String text = new String(Files.readAllBytes(pem.toPath()), StandardCharsets.US_ASCII);
+        int begin = text.indexOf("-----BEGIN ");
+        int type = begin + "-----BEGIN ".length();
+        int typeEnd = text.indexOf("-----", type);
+        int end = text.indexOf("-----END ", typeEnd);
+        if (begin < 0 || typeEnd < 0 || end < 0) {
+            throw new IOException("No private key found in " + pem);
+        }
+        String kind = text.substring(type, typeEnd);
+        byte[] der = Base64.getMimeDecoder().decode(text.substring(typeEnd + 5, end));
+        if (kind.equals("RSA PRIVATE KEY")) {
+            return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(pkcs1ToPkcs8(der)));
+        } else if (kind.equals("PRIVATE KEY")) {
+            PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(der);
+            try {
+                return KeyFactory.getInstance("RSA").generatePrivate(spec);
+            } catch (GeneralSecurityException x) {
+                return KeyFactory.getInstance("EC").generatePrivate(spec);
+            }
+        } else {
+            throw new IOException("Unsupported private key type " + kind + " in " + pem + "; convert it to PKCS#8");
+        }
+    }
+
+    /**
+     * Wraps an RSA key into a PKCS#8 {@code PrivateKeyInfo}.
+     */
+    private static byte[] pkcs1ToPkcs8(byte[] pkcs1) {
+        byte[] version = {0x02, 0x01, 0x00};
+        // SEQUENCE { OID 1.2.840.113549.1.1.1, NULL }
+        byte[] algorithm = {0x30, 0x0D, 0x06, 0x09, 0x2A, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xF7, 0x0D, 0x01, 0x01, 0x01, 0x05, 0x00};
+        byte[] key = der(0x04, pkcs1);
+        byte[] content = new byte[version.length + algorithm.length + key.length];
+        System.arraycopy(version, 0, content, 0, version.length);
+        System.arraycopy(algorithm, 0, content, version.length, algorithm.length);
+        System.arraycopy(key, 0, content, version.length + algorithm.length, key.length);
+        return der(0x30, content);
+    }
+
+    private static byte[] der(int tag, byte[] content) {
+        ByteArrayOutputStream b = new ByteArrayOutputStream(content.length + 6);
+        b.write(tag);
+        int length = content.length;
+        if (length < 0x80) {
+            b.write(length);
+        } else {
+            int bytes = length > 0xFFFFFF ? 4 : length > 0xFFFF ? 3 : length > 0xFF ? 2 : 1;
+            b.write(0x80 | bytes);
+            for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+                b.write(length >> shift);
+            }
+        }
+        b.writeBytes(content);
+        return b.toByteArray();
+    }
+}
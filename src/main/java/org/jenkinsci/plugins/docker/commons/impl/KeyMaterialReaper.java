@@ -0,0 +1,377 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.Slave;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.ComputerListener;
+import jenkins.security.MasterToSlaveCallable;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialFactory;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Removes secrets directories created by {@link org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialFactory}
+ * implementations without keeping the build waiting.
+ *
+ * <p>
+ * {@link KeyMaterial2#close} only renames the directories out of the way in a single remoting call;
+ * the actual deletion is done in batches by a daemon thread living in the agent JVM.
+ * Directories left behind by builds that never got to close their key material (aborted builds, agent disconnects)
+ * are swept when the agent connects again.
+ */
+@Restricted(NoExternalUse.class)
+public final class KeyMaterialReaper {
+
+    private static final Logger LOGGER = Logger.getLogger(KeyMaterialReaper.class.getName());
+
+    /**
+     * Suffix given to a secrets directory once it has been handed over to the reaper.
+     */
+    static final String TOMBSTONE_SUFFIX = ".reap";
+
+    /**
+     * Names of the directories created by {@code KeyMaterialFactory.createSecretsDirectory}, possibly already tombstoned,
+     * and of the directories shared by {@link ServerKeyMaterialFactory#SHARED_DIRECTORIES}.
+     * Both carry a prefix of this plugin, as workspace {@code @tmp} directories also hold UUID-named directories of others.
+     */
+    private static final Pattern SECRETS_DIRECTORY;
+
+    static {
+        String uuid = "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}";
+        SECRETS_DIRECTORY = Pattern.compile("(?:" + Pattern.quote(KeyMaterialFactory.SECRETS_DIRECTORY_PREFIX) + uuid
+                + "|" + Pattern.quote(ServerKeyMaterialFactory.SHARED_DIRECTORY_PREFIX) + "[0-9a-f]{64}(?:-" + uuid + ")?)"
+                + "(?:" + Pattern.quote(TOMBSTONE_SUFFIX) + ")?");
+    }
+
+    /** Kill switch to delete secrets directories synchronously from {@link KeyMaterial2#close}. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ boolean SYNCHRONOUS = Boolean.getBoolean(KeyMaterialReaper.class.getName() + ".SYNCHRONOUS");
+
+    /**
+     * Age after which a secrets directory found while an agent connects is considered orphaned.
+     * Zero or negative disables the sweep.
+     */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ long ORPHAN_AGE_HOURS = Long.getLong(KeyMaterialReaper.class.getName() + ".ORPHAN_AGE_HOURS", 72);
+
+    /**
+     * Agent-side resources living as long as the secrets directory they are registered with, by absolute path.
+     */
+    private static final Map<String, List<Closeable>> RESOURCES = new HashMap<>();
+
+    private KeyMaterialReaper() {} // no instantiation
+
+    /**
+     * Ties a resource of the agent JVM, such as a {@link DockerCredentialHelper} server, to a secrets directory,
+     * so that it is closed when the directory is discarded or swept, even if {@link KeyMaterial2#close} never comes.
+     * Must be called in the agent JVM.
+     */
+    static void register(@NonNull File dir, @NonNull Closeable resource) {
+        synchronized (RESOURCES) {
+            RESOURCES.computeIfAbsent(dir.getAbsolutePath(), k -> new ArrayList<>()).add(resource);
+        }
+    }
+
+    /**
+     * Closes the resources registered with {@code dir}, if any.
+     */
+    private static void release(File dir) {
+        List<Closeable> resources;
+        synchronized (RESOURCES) {
+            resources = RESOURCES.remove(dir.getAbsolutePath());
+        }
+        if (resources != null) {
+            for (Closeable resource : resources) {
+                try {
+                    resource.close();
+                } catch (IOException x) {
+                    LOGGER.log(Level.WARNING, "Failed to release a resource of " + dir, x);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the resources of directories which were deleted by other means.
+     */
+    private static void releaseMissing() {
+        List<String> missing = new ArrayList<>();
+        synchronized (RESOURCES) {
+            for (String dir : RESOURCES.keySet()) {
+                if (!new File(dir).isDirectory()) {
+                    missing.add(dir);
+                }
+            }
+        }
+        for (String dir : missing) {
+            release(new File(dir));
+        }
+    }
+
+    /**
+     * Implemented by key materials whose {@link KeyMaterial2#close} amounts to deleting some directories,
+     * so that {@link CompositeKeyMaterialFactory} can hand all of them over in one go.
+     */
+    interface Reapable {
+        /**
+         * @return the remote paths of the directories to delete
+         */
+        @NonNull Collection<String> getReapablePaths();
+    }
+
+    /**
+     * Hands the given directories over to the reaper of the agent behind {@code channel}.
+     * When this method returns the directories are no longer present under their original names.
+     *
+     * @param channel the channel the paths are relative to
+     * @param dirs remote paths of the directories to delete
+     */
+    public static void discard(@NonNull VirtualChannel channel, @NonNull Collection<String> dirs) throws IOException, InterruptedException {
+        if (dirs.isEmpty()) {
+            return;
+        }
+        channel.call(new Discard(dirs.toArray(new String[0]), !SYNCHRONOUS));
+    }
+
+    /**
+     * Deletes orphaned secrets directories.
+     *
+     * @param dotDocker the {@code ~/.docker} directory of the agent
+     * @param workspaceRoot the workspace root of the agent, if known; secrets directories are searched for in its {@code @tmp} children
+     * @param cutoff directories last modified before this time are deleted; tombstoned directories are deleted regardless
+     * @return the number of directories deleted
+     */
+    static int sweep(@NonNull File dotDocker, @CheckForNull File workspaceRoot, long cutoff) {
+        List<File> parents = new ArrayList<>();
+        parents.add(dotDocker);
+        if (workspaceRoot != null) {
+            File[] workspaces = workspaceRoot.listFiles();
+            if (workspaces != null) {
+                for (File workspace : workspaces) {
+                    if (workspace.getName().endsWith("@tmp") && workspace.isDirectory()) {
+                        parents.add(workspace);
+                    }
+                }
+            }
+        }
+        int count = 0;
+        for (File parent : parents) {
+            File[] children = parent.listFiles();
+            if (children == null) {
+                continue;
+            }
+            for (File child : children) {
+                if (!SECRETS_DIRECTORY.matcher(child.getName()).matches() || !child.isDirectory()) {
+                    continue;
+                }
+                if (child.getName().endsWith(TOMBSTONE_SUFFIX) || child.lastModified() < cutoff) {
+                    release(child);
+                    try {
+                        Util.deleteRecursive(child);
+                        count++;
+                    } catch (IOException x) {
+                        LOGGER.log(Level.WARNING, "Failed to delete orphaned secrets directory " + child, x);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static final class Discard extends MasterToSlaveCallable<Void, IOException> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String[] dirs;
+        private final boolean async;
+
+        Discard(String[] dirs, boolean async) {
+            this.dirs = dirs;
+            this.async = async;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            IOException failure = null;
+            for (String dir : dirs) {
+                File f = new File(dir);
+                release(f);
+                if (!f.exists()) {
+                    continue;
+                }
+                if (async) {
+                    File tombstone = new File(f.getParentFile(), f.getName() + TOMBSTONE_SUFFIX);
+                    if (f.renameTo(tombstone)) {
+                        PendingDeletions.add(tombstone);
+                        continue;
+                    }
+                    // could not rename (e.g. files held open on Windows), fall back to deleting in place
+                }
+                try {
+                    Util.deleteRecursive(f);
+                } catch (IOException x) {
+                    if (failure == null) {
+                        failure = x;
+                    } else {
+                        failure.addSuppressed(x);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Agent-side queue of tombstoned directories, drained by a daemon thread which exits when idle.
+     */
+    private static final class PendingDeletions {
+
+        private static final BlockingQueue<File> QUEUE = new LinkedBlockingQueue<>();
+
+        private static Thread worker;
+
+        static synchronized void add(File dir) {
+            QUEUE.add(dir);
+            if (worker == null || !worker.isAlive()) {
+                worker = new Thread(PendingDeletions::run, "Docker key material reaper");
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }
+
+        private static void run() {
+            List<File> batch = new ArrayList<>();
+            while (true) {
+                try {
+                    File next = QUEUE.poll(1, TimeUnit.MINUTES);
+                    if (next == null) {
+                        synchronized (PendingDeletions.class) {
+                            if (QUEUE.isEmpty()) {
+                                worker = null;
+                                return;
+                            }
+                        }
+                        continue;
+                    }
+                    batch.add(next);
+                    QUEUE.drainTo(batch);
+                    for (File dir : batch) {
+                        try {
+                            Util.deleteRecursive(dir);
+                        } catch (IOException x) {
+                            LOGGER.log(Level.WARNING, "Failed to delete secrets directory " + dir, x);
+                        }
+                    }
+                    batch.clear();
+                } catch (InterruptedException x) {
+                    synchronized (PendingDeletions.class) {
+                        worker = null;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class SweepOrphans extends MasterToSlaveCallable<Integer, IOException> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final @CheckForNull String workspaceRoot;
+        private final long maxAge;
+
+        SweepOrphans(@CheckForNull String workspaceRoot, long maxAge) {
+            this.workspaceRoot = workspaceRoot;
+            this.maxAge = maxAge;
+        }
+
+        @Override
+        public Integer call() throws IOException {
+            // same location as DockerServerEndpoint.dotDocker
+            File dotDocker = new File(System.getProperty("user.home"), ".docker");
+            int count = sweep(dotDocker, workspaceRoot != null ? new File(workspaceRoot) : null, System.currentTimeMillis() - maxAge);
+            releaseMissing();
+            if (count > 0) {
+                LOGGER.log(Level.INFO, "Deleted {0} orphaned Docker secrets directories", count);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Sweeps orphaned secrets directories whenever an agent comes online.
+     */
+    @Extension
+    public static final class OrphanSweeper extends ComputerListener {
+
+        @Override
+        public void onOnline(Computer c, TaskListener listener) {
+            if (ORPHAN_AGE_HOURS <= 0) {
+                return;
+            }
+            VirtualChannel channel = c.getChannel();
+            Node node = c.getNode();
+            if (channel == null || node == null) {
+                return;
+            }
+            FilePath workspaceRoot = node instanceof Slave slave ? slave.getWorkspaceRoot() : null;
+            try {
+                // do not hold up the connection
+                channel.callAsync(new SweepOrphans(workspaceRoot != null ? workspaceRoot.getRemote() : null, TimeUnit.HOURS.toMillis(ORPHAN_AGE_HOURS)));
+            } catch (IOException x) {
+                LOGGER.log(Level.FINE, "Could not sweep orphaned secrets directories on " + c.getName(), x);
+            }
+        }
+    }
+
+}
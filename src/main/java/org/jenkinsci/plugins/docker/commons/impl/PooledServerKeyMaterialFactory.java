@@ -0,0 +1,354 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.security.MasterToSlaveCallable;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialFactory;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Picks one daemon out of several for each materialization, and hands out the key material of that daemon.
+ *
+ * <p>
+ * Daemons known to be down are skipped; health is checked with {@code GET /_ping} from the agent and remembered for
+ * {@code HEALTH_TTL_SECONDS}. Among the healthy daemons, the one with the fewest key materials currently open
+ * through this controller is chosen, and with {@code CONTAINER_COUNTS} its running containers count as well.
+ * Should materializing the chosen daemon fail, the next one is tried.
+ */
+@Restricted(NoExternalUse.class)
+public class PooledServerKeyMaterialFactory extends KeyMaterialFactory {
+
+    private static final Logger LOGGER = Logger.getLogger(PooledServerKeyMaterialFactory.class.getName());
+
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ long HEALTH_TTL_SECONDS = Long.getLong(PooledServerKeyMaterialFactory.class.getName() + ".HEALTH_TTL_SECONDS", 10);
+
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int PROBE_TIMEOUT_MILLIS = Integer.getInteger(PooledServerKeyMaterialFactory.class.getName() + ".PROBE_TIMEOUT_MILLIS", 2000);
+
+    /** Whether to also ask each daemon for its running containers ({@code GET /info}) when weighing load. */
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ boolean CONTAINER_COUNTS = Boolean.getBoolean(PooledServerKeyMaterialFactory.class.getName() + ".CONTAINER_COUNTS");
+
+    /** Last known health, keyed by daemon URI. */
+    private static final Map<String, Health> HEALTH = new ConcurrentHashMap<>();
+
+    /** Open key materials, keyed by lease ID. */
+    private static final Map<String, Lease> LEASES = new ConcurrentHashMap<>();
+
+    private final @CheckForNull String run;
+    private final @NonNull List<Candidate> candidates;
+
+    /**
+     * @param run the {@link Run#getExternalizableId} of the build using the daemon, so that leases left open are
+     *            dropped when it completes; may be null
+     * @param candidates the daemons to choose from, in order of preference when equally loaded
+     */
+    public PooledServerKeyMaterialFactory(@CheckForNull String run, @NonNull List<Candidate> candidates) {
+        this.run = run;
+        this.candidates = new ArrayList<>(candidates);
+    }
+
+    /**
+     * One daemon of the pool.
+     */
+    public static final class Candidate {
+
+        final @NonNull String uri;
+        final boolean tls;
+        final @NonNull KeyMaterialFactory factory;
+
+        /**
+         * @param uri the daemon address, as in {@code DOCKER_HOST}
+         * @param tls whether the daemon expects TLS client authentication, in which case it is only checked for
+         *            accepting connections, as the client certificate is not on the agent yet
+         * @param factory a contextualized factory of the key material for this daemon
+         */
+        public Candidate(@NonNull String uri, boolean tls, @NonNull KeyMaterialFactory factory) {
+            this.uri = uri;
+            this.tls = tls;
+            this.factory = factory;
+        }
+    }
+
+    @Override
+    public KeyMaterial2 materialize2() throws IOException, InterruptedException {
+        if (candidates.isEmpty()) {
+            throw new AbortException("No Docker daemons in the pool");
+        }
+        refreshHealth();
+        List<Candidate> tried = new ArrayList<>();
+        IOException failure = null;
+        while (true) {
+            Candidate chosen;
+            String lease;
+            synchronized (LEASES) {
+                chosen = choose(tried);
+                if (chosen == null) {
+                    break;
+                }
+                lease = UUID.randomUUID().toString();
+                LEASES.put(lease, new Lease(chosen.uri, run));
+            }
+            tried.add(chosen);
+            try {
+                return new PooledKeyMaterial2(chosen.factory.materialize2(), lease);
+            } catch (IOException x) {
+                release(lease);
+                HEALTH.put(chosen.uri, new Health(false, 0, System.nanoTime()));
+                LOGGER.log(Level.FINE, "Could not use Docker daemon " + chosen.uri + ", trying the next one", x);
+                if (failure == null) {
+                    failure = x;
+                } else {
+                    failure.addSuppressed(x);
+                }
+            } catch (InterruptedException | RuntimeException x) {
+                release(lease);
+                throw x;
+            }
+        }
+        List<String> uris = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            uris.add(candidate.uri);
+        }
+        AbortException x = new AbortException("None of the Docker daemons " + uris + " is available");
+        if (failure != null) {
+            x.initCause(failure);
+        }
+        throw x;
+    }
+
+    /**
+     * Probes, in a single call to the agent, the daemons whose health is not known or too old.
+     */
+    private void refreshHealth() throws IOException, InterruptedException {
+        long now = System.nanoTime();
+        Map<String, Boolean> stale = new HashMap<>();
+        for (Candidate candidate : candidates) {
+            Health health = HEALTH.get(candidate.uri);
+            if (health == null || now - health.checked > TimeUnit.SECONDS.toNanos(HEALTH_TTL_SECONDS)) {
+                stale.put(candidate.uri, candidate.tls);
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> probed = getContext().getBaseDir().act(new Probe(stale, CONTAINER_COUNTS, PROBE_TIMEOUT_MILLIS));
+        long checked = System.nanoTime();
+        probed.forEach((uri, containers) -> {
+            HEALTH.put(uri, new Health(containers >= 0, Math.max(containers, 0), checked));
+            if (containers < 0) {
+                LOGGER.log(Level.FINE, "Docker daemon {0} is down", uri);
+            }
+        });
+    }
+
+    /**
+     * @return the healthy daemon not tried yet with the lowest load, or null if there is none left
+     */
+    @CheckForNull
+    private Candidate choose(List<Candidate> tried) {
+        Map<String, Integer> leases = leasesByUri();
+        return candidates.stream()
+                .filter(c -> !tried.contains(c))
+                .filter(c -> {
+                    Health health = HEALTH.get(c.uri);
+                    return health == null || health.up;
+                })
+                // stable, so that the configured order breaks ties
+                .min(Comparator.comparingInt(c -> load(c.uri, leases)))
+                .orElse(null);
+    }
+
+    private static int load(String uri, Map<String, Integer> leases) {
+        int load = leases.getOrDefault(uri, 0);
+        Health health = HEALTH.get(uri);
+        if (CONTAINER_COUNTS && health != null) {
+            load += health.containers;
+        }
+        return load;
+    }
+
+    private static Map<String, Integer> leasesByUri() {
+        Map<String, Integer> leases = new HashMap<>();
+        for (Lease lease : LEASES.values()) {
+            leases.merge(lease.uri, 1, Integer::sum);
+        }
+        return leases;
+    }
+
+    /**
+     * @return the number of key materials open through this controller for each daemon
+     */
+    @NonNull
+    public static Map<String, Integer> getLeases() {
+        return Collections.unmodifiableMap(leasesByUri());
+    }
+
+    static void release(@NonNull String lease) {
+        LEASES.remove(lease);
+    }
+
+    private static final class Health {
+
+        final boolean up;
+        final int containers;
+        final long checked;
+
+        Health(boolean up, int containers, long checked) {
+            this.up = up;
+            this.containers = containers;
+            this.checked = checked;
+        }
+    }
+
+    private static final class Lease {
+
+        final String uri;
+        final @CheckForNull String run;
+
+        Lease(String uri, @CheckForNull String run) {
+            this.uri = uri;
+            this.run = run;
+        }
+    }
+
+    /**
+     * Checks daemons from the agent.
+     * Returns for each the number of running containers, zero if not asked for or unknown, or -1 if it is down.
+     */
+    private static final class Probe extends MasterToSlaveCallable<Map<String, Integer>, IOException> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<String, Boolean> uris;
+        private final boolean containers;
+        private final int timeout;
+
+        Probe(Map<String, Boolean> uris, boolean containers, int timeout) {
+            this.uris = new HashMap<>(uris);
+            this.containers = containers;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public Map<String, Integer> call() throws IOException {
+            Map<String, Integer> result = new HashMap<>();
+            uris.forEach((uri, tls) -> result.put(uri, probe(uri, tls)));
+            return result;
+        }
+
+        private int probe(String uri, boolean tls) {
+            if (uri.startsWith("ssh://") || uri.startsWith("npipe://")) {
+                // only docker(1) itself knows how to get there
+                return 0;
+            }
+            // TLS daemons are only connected to, without handshake
+            try (EngineConnection connection = EngineConnection.open(uri, null, tls, timeout)) {
+                if (tls) {
+                    return 0;
+                }
+                EngineConnection.Response ping = connection.request("GET", "/_ping");
+                if (ping.status != 200 || !ping.text().trim().equals("OK")) {
+                    return -1;
+                }
+                if (containers) {
+                    EngineConnection.Response info = connection.request("GET", "/info");
+                    if (info.status == 200) {
+                        return info.json().optInt("ContainersRunning", 0);
+                    }
+                }
+                return 0;
+            } catch (IOException | RuntimeException x) {
+                LOGGER.log(Level.FINE, "Failed to probe Docker daemon " + uri, x);
+                return -1;
+            }
+        }
+    }
+
+    private static final class PooledKeyMaterial2 extends KeyMaterial2 {
+
+        private static final long serialVersionUID = 1L;
+
+        private final KeyMaterial2 delegate;
+        private final String lease;
+
+        PooledKeyMaterial2(KeyMaterial2 delegate, String lease) {
+            this.delegate = delegate;
+            this.lease = lease;
+        }
+
+        @Override
+        protected EnvVars computeEnv() {
+            return delegate.env();
+        }
+
+        @Override
+        public void close(VirtualChannel channel) throws IOException, InterruptedException {
+            try {
+                delegate.close(channel);
+            } finally {
+                release(lease);
+            }
+        }
+    }
+
+    /**
+     * Drops the leases of a build which did not close its key material.
+     */
+    @Extension
+    public static final class RunCompletionListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onFinalized(Run<?, ?> run) {
+            String id = run.getExternalizableId();
+            LEASES.values().removeIf(lease -> Objects.equals(lease.run, id));
+        }
+    }
+}
@@ -0,0 +1,462 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.AbortException;
+import hudson.ProxyConfiguration;
+import jenkins.util.Timer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Tracks how {@code docker login} fares with each registry, and stops trying a registry that keeps failing.
+ *
+ * <p>
+ * The outcomes of the last {@code WINDOW} logins are kept per registry host. Once at least {@code MIN_LOGINS} of
+ * them are known and the share of failures reaches {@code FAILURE_RATE}, the circuit opens: logins fail right away
+ * rather than wait for the registry to time out, and {@link RegistryMirrorSelector} routes around the registry.
+ * While open, the registry is probed in the background with {@code GET /v2/} every {@code PROBE_INTERVAL_SECONDS};
+ * once it answers, or after {@code OPEN_SECONDS} anyway, a single trial login is let through, and its outcome
+ * closes the circuit or opens it anew. Other logins keep failing right away meanwhile, unless the trial has not
+ * told anything after {@code TRIAL_SECONDS}, in which case another login gets to try.
+ *
+ * <p>
+ * Only logins failing because of the registry count as failures: timeouts, connection errors, and server errors or
+ * rate limiting, see {@link #isRegistryFailure}. Refused credentials say nothing about the health of the registry.
+ */
+@Restricted(NoExternalUse.class)
+public final class RegistryHealth {
+
+    private static final Logger LOGGER = Logger.getLogger(RegistryHealth.class.getName());
+
+    /** Kill switch to never fail logins early. */
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ boolean DISABLED = Boolean.getBoolean(RegistryHealth.class.getName() + ".DISABLED");
+
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int WINDOW = Integer.getInteger(RegistryHealth.class.getName() + ".WINDOW", 20);
+
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ int MIN_LOGINS = Integer.getInteger(RegistryHealth.class.getName() + ".MIN_LOGINS", 5);
+
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ double FAILURE_RATE = RegistryLoginThrottle.doubleProperty(RegistryHealth.class.getName() + ".FAILURE_RATE", 0.5);
+
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ long OPEN_SECONDS = Long.getLong(RegistryHealth.class.getName() + ".OPEN_SECONDS", 300);
+
+    /** How long a trial login may go on before another login is let through in its place. */
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ long TRIAL_SECONDS = Long.getLong(RegistryHealth.class.getName() + ".TRIAL_SECONDS", 300);
+
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ long PROBE_INTERVAL_SECONDS = Long.getLong(RegistryHealth.class.getName() + ".PROBE_INTERVAL_SECONDS", 15);
+
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int PROBE_TIMEOUT_MILLIS = Integer.getInteger(RegistryHealth.class.getName() + ".PROBE_TIMEOUT_MILLIS", 5000);
+
+    private static final Map<String, Breaker> BREAKERS = new ConcurrentHashMap<>();
+
+    /** What docker(1) prints when it could not get an answer from the registry, or got a server error. */
+    private static final Pattern UNAVAILABLE = Pattern.compile("timeout|timed out|connection refused|connection reset"
+            + "|no such host|no route to host|network is unreachable|unexpected eof|status: 5\\d\\d|status code 5\\d\\d"
+            + "|\\b5\\d\\d (?:internal server error|bad gateway|service unavailable|gateway timeout)");
+
+    public enum State {
+        /** Logins go ahead. */
+        CLOSED,
+        /** Logins fail right away. */
+        OPEN,
+        /** One trial login goes ahead, to find out whether the registry is back; others fail right away. */
+        HALF_OPEN
+    }
+
+    private RegistryHealth() {} // no instantiation
+
+    /**
+     * Fails if logins to the registry of {@code endpoint} are not to be tried at the moment.
+     *
+     * @return whether the login is the trial one of a {@link State#HALF_OPEN} registry, in which case it is to be
+     *         either {@linkplain #record recorded} or {@linkplain #release released}
+     */
+    static boolean check(@NonNull URL endpoint) throws AbortException {
+        if (DISABLED) {
+            return false;
+        }
+        Breaker breaker = BREAKERS.get(DockerCredentialHelper.authority(endpoint.toString()));
+        return breaker != null && breaker.admit();
+    }
+
+    /**
+     * Lets another login be the trial one, as the login {@link #check} let through ended without saying anything
+     * about the registry, e.g. because its credentials were refused.
+     */
+    static void release(@NonNull URL endpoint) {
+        Breaker breaker = BREAKERS.get(DockerCredentialHelper.authority(endpoint.toString()));
+        if (breaker != null) {
+            breaker.endTrial();
+        }
+    }
+
+    /**
+     * @param registry a registry host, see {@link DockerCredentialHelper#authority}
+     * @return whether logins to it are tried at the moment
+     */
+    public static boolean isAvailable(@NonNull String registry) {
+        if (DISABLED) {
+            return true;
+        }
+        Breaker breaker = BREAKERS.get(registry);
+        return breaker == null || breaker.available();
+    }
+
+    /**
+     * Checks whether the output of a failed {@code docker login} denotes a registry that is down or overloaded,
+     * rather than, say, refusing the credentials.
+     */
+    static boolean isRegistryFailure(@NonNull String output) {
+        return RegistryLoginThrottle.isRateLimited(output) || UNAVAILABLE.matcher(output.toLowerCase(Locale.ENGLISH)).find();
+    }
+
+    /**
+     * Records how a login went.
+     *
+     * @param nanos how long it took
+     */
+    static void record(@NonNull URL endpoint, boolean success, long nanos) {
+        String registry = DockerCredentialHelper.authority(endpoint.toString());
+        BREAKERS.computeIfAbsent(registry, r -> new Breaker(r, WINDOW)).record(endpoint, success, nanos);
+    }
+
+    /**
+     * Closes the circuit of a registry and forgets how its logins went, e.g. once it is known to be fixed.
+     */
+    public static void reset(@NonNull String registry) {
+        Breaker breaker = BREAKERS.remove(registry);
+        if (breaker != null) {
+            breaker.stopProbing();
+        }
+    }
+
+    /**
+     * @return the state of each registry logged in to, by host
+     */
+    @NonNull
+    public static List<Status> getStatuses() {
+        List<Status> statuses = new ArrayList<>();
+        for (Breaker breaker : BREAKERS.values()) {
+            statuses.add(breaker.status());
+        }
+        statuses.sort(Comparator.comparing(Status::getRegistry));
+        return statuses;
+    }
+
+    /**
+     * For tests.
+     */
+    static void clear() {
+        for (String registry : new ArrayList<>(BREAKERS.keySet())) {
+            reset(registry);
+        }
+    }
+
+    private static final class Breaker {
+
+        final String registry;
+        private final boolean[] outcomes;
+        private final long[] latencies;
+        private int count;
+        private int next;
+        private State state = State.CLOSED;
+        private long openedAt;
+        private long logins;
+        private long failures;
+        private int trips;
+        /** When the trial login of {@link State#HALF_OPEN} started, or 0 if none is in flight. */
+        private long trialStartedAt;
+        private @CheckForNull URL probe;
+        private @CheckForNull ScheduledFuture<?> probing;
+
+        Breaker(String registry, int window) {
+            this.registry = registry;
+            this.outcomes = new boolean[Math.max(window, 1)];
+            this.latencies = new long[outcomes.length];
+        }
+
+        synchronized State state() {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= TimeUnit.SECONDS.toNanos(OPEN_SECONDS)) {
+                halfOpen("has been failing for " + OPEN_SECONDS + " seconds");
+            }
+            return state;
+        }
+
+        synchronized boolean admit() throws AbortException {
+            switch (state()) {
+            case OPEN:
+                throw new AbortException("Not logging in to " + registry + " as " + describeFailures()
+                        + "; logins will be tried again once it answers");
+            case HALF_OPEN:
+                if (trialInFlight()) {
+                    throw new AbortException("Not logging in to " + registry + " while another login finds out whether it works again");
+                }
+                trialStartedAt = Math.max(System.nanoTime(), 1);
+                return true;
+            default:
+                return false;
+            }
+        }
+
+        synchronized boolean available() {
+            switch (state()) {
+            case OPEN:
+                return false;
+            case HALF_OPEN:
+                return !trialInFlight();
+            default:
+                return true;
+            }
+        }
+
+        private boolean trialInFlight() {
+            return trialStartedAt != 0 && System.nanoTime() - trialStartedAt < TimeUnit.SECONDS.toNanos(TRIAL_SECONDS);
+        }
+
+        synchronized void endTrial() {
+            trialStartedAt = 0;
+        }
+
+        synchronized void record(URL endpoint, boolean success, long nanos) {
+            probe = endpoint;
+            trialStartedAt = 0;
+            outcomes[next] = success;
+            latencies[next] = nanos;
+            next = (next + 1) % outcomes.length;
+            count = Math.min(count + 1, outcomes.length);
+            logins++;
+            if (!success) {
+                failures++;
+            }
+            if (state == State.HALF_OPEN) {
+                if (success) {
+                    LOGGER.log(Level.INFO, "Logins to {0} work again", registry);
+                    state = State.CLOSED;
+                    count = 0;
+                    next = 0;
+                } else {
+                    open();
+                }
+            } else if (state == State.CLOSED && count >= MIN_LOGINS && failureRate() >= FAILURE_RATE) {
+                open();
+            }
+        }
+
+        private double failureRate() {
+            int failed = 0;
+            for (int i = 0; i < count; i++) {
+                if (!outcomes[i]) {
+                    failed++;
+                }
+            }
+            return count == 0 ? 0 : (double) failed / count;
+        }
+
+        private String describeFailures() {
+            int failed = (int) Math.round(failureRate() * count);
+            return failed + " of its last " + count + " logins failed";
+        }
+
+        private void open() {
+            LOGGER.log(Level.WARNING, "Not logging in to {0} any more, as {1}", new Object[] {registry, describeFailures()});
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            trips++;
+            if (probing == null && PROBE_INTERVAL_SECONDS > 0) {
+                probing = Timer.get().scheduleWithFixedDelay(this::probe, PROBE_INTERVAL_SECONDS, PROBE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+
+        private void halfOpen(String why) {
+            LOGGER.log(Level.INFO, "Letting logins to {0} through again, as it {1}", new Object[] {registry, why});
+            state = State.HALF_OPEN;
+            trialStartedAt = 0;
+            stopProbing();
+        }
+
+        synchronized void stopProbing() {
+            if (probing != null) {
+                probing.cancel(false);
+                probing = null;
+            }
+        }
+
+        private void probe() {
+            URL endpoint;
+            synchronized (this) {
+                if (state != State.OPEN) {
+                    stopProbing();
+                    return;
+                }
+                endpoint = probe;
+            }
+            if (endpoint == null) {
+                return;
+            }
+            HttpURLConnection connection = null;
+            try {
+                connection = (HttpURLConnection) ProxyConfiguration.open(new URL(endpoint, "/v2/"));
+                connection.setConnectTimeout(PROBE_TIMEOUT_MILLIS);
+                connection.setReadTimeout(PROBE_TIMEOUT_MILLIS);
+                int status = connection.getResponseCode();
+                if (status == HttpURLConnection.HTTP_OK || status == HttpURLConnection.HTTP_UNAUTHORIZED) {
+                    synchronized (this) {
+                        if (state == State.OPEN) {
+                            halfOpen("answers again");
+                        }
+                    }
+                } else {
+                    LOGGER.log(Level.FINE, "{0} still answers {1}", new Object[] {registry, status});
+                }
+            } catch (IOException | RuntimeException x) {
+                LOGGER.log(Level.FINE, "Failed to probe " + registry, x);
+            } finally {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+            }
+        }
+
+        synchronized Status status() {
+            long total = 0;
+            int succeeded = 0;
+            for (int i = 0; i < count; i++) {
+                if (outcomes[i]) {
+                    total += latencies[i];
+                    succeeded++;
+                }
+            }
+            return new Status(registry, state(), failureRate(), succeeded == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(total / succeeded),
+                    logins, failures, trips);
+        }
+    }
+
+    /**
+     * A snapshot of the health of a registry.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class Status {
+
+        private final String registry;
+        private final State state;
+        private final double failureRate;
+        private final long latencyMillis;
+        private final long logins;
+        private final long failures;
+        private final int trips;
+
+        Status(String registry, State state, double failureRate, long latencyMillis, long logins, long failures, int trips) {
+            this.registry = registry;
+            this.state = state;
+            this.failureRate = failureRate;
+            this.latencyMillis = latencyMillis;
+            this.logins = logins;
+            this.failures = failures;
+            this.trips = trips;
+        }
+
+        @Exported
+        public String getRegistry() {
+            return registry;
+        }
+
+        @Exported
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * @return the share of recent logins which failed, between 0 and 1
+         */
+        @Exported
+        public double getFailureRate() {
+            return failureRate;
+        }
+
+        public long getFailurePercent() {
+            return Math.round(failureRate * 100);
+        }
+
+        /**
+         * @return how long recent successful logins took on average, or -1 if none succeeded
+         */
+        @Exported
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        /**
+         * @return the number of logins since startup
+         */
+        @Exported
+        public long getLogins() {
+            return logins;
+        }
+
+        /**
+         * @return the number of failed logins since startup
+         */
+        @Exported
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return how many times the circuit opened since startup
+         */
+        @Exported
+        public int getTrips() {
+            return trips;
+        }
+    }
+
+}
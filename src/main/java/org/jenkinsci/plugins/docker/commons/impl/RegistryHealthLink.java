@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Api;
+import hudson.model.ManagementLink;
+import hudson.security.Permission;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerProxy;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shows the {@link RegistryHealth} of each registry and the logins held back by {@link RegistryLoginThrottle},
+ * also as {@code api/json} for monitoring.
+ */
+@Extension
+@ExportedBean
+@Restricted(NoExternalUse.class)
+public final class RegistryHealthLink extends ManagementLink implements StaplerProxy {
+
+    @Override
+    public String getIconFileName() {
+        return "icon-docker-logo icon-xlg";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Docker Registries";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Health of the Docker registries builds log in to.";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "docker-registries";
+    }
+
+    @NonNull
+    @Override
+    public Category getCategory() {
+        return Category.STATUS;
+    }
+
+    @NonNull
+    @Override
+    public Permission getRequiredPermission() {
+        return Jenkins.ADMINISTER;
+    }
+
+    @Override
+    public Object getTarget() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        return this;
+    }
+
+    @Exported(name = "registries")
+    public List<RegistryHealth.Status> getStatuses() {
+        return RegistryHealth.getStatuses();
+    }
+
+    /**
+     * @return the number of logins currently waiting for each registry being throttled
+     */
+    @Exported(name = "queuedLogins")
+    public Map<String, Integer> getQueueDepths() {
+        return RegistryLoginThrottle.getQueueDepths();
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    @RequirePOST
+    public HttpResponse doReset(@QueryParameter String registry) {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        RegistryHealth.reset(registry);
+        return HttpResponses.redirectToDot();
+    }
+
+}
@@ -24,12 +24,29 @@
 
 package org.jenkinsci.plugins.docker.commons.impl;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial;
 import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialFactory;
@@ -40,9 +57,12 @@ import hudson.AbortException;
 import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Proc;
+import hudson.Util;
 import hudson.model.TaskListener;
 import hudson.remoting.VirtualChannel;
 import hudson.util.ArgumentListBuilder;
+import jenkins.MasterToSlaveFileCallable;
 import net.sf.json.JSONObject;
 import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
 
@@ -57,6 +77,23 @@ public class RegistryKeyMaterialFactory extends KeyMaterialFactory {
 
     protected static final String DOCKER_REGISTRY_HOST_ONLY = "DOCKER_REGISTRY_HOST_ONLY";
 
+    /**
+     * Username denoting that the password is an identity token, as in the docker credential helper protocol.
+     * No {@code docker login} is needed then: the token is written to {@code config.json} for docker(1) to use.
+     */
+    public static final String IDENTITY_TOKEN_USERNAME = "<token>";
+
+    /** How long a {@code docker login} may take before it is killed; zero or less waits forever. */
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ long LOGIN_TIMEOUT_SECONDS = Long.getLong(RegistryKeyMaterialFactory.class.getName() + ".LOGIN_TIMEOUT_SECONDS", 300);
+
+    /**
+     * How long a {@code docker login} may take before a second, hedged, attempt is started alongside it;
+     * zero or less never hedges.
+     */
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ long HEDGE_AFTER_SECONDS = Long.getLong(RegistryKeyMaterialFactory.class.getName() + ".HEDGE_AFTER_SECONDS", 0);
+
     private final @NonNull String username;
     private final @NonNull String password;
     private final @NonNull URL endpoint;
@@ -77,35 +114,99 @@ public class RegistryKeyMaterialFactory extends KeyMaterialFactory {
 
     @Override
     public KeyMaterial2 materialize2() throws IOException, InterruptedException {
-        FilePath dockerConfig = createSecretsDirectory();
-
-        // read the existing docker config file, which might hold some important settings (e.b. proxies)
-        FilePath configJsonPath = FilePath.getHomeDirectory(this.launcher.getChannel()).child(".docker").child(DOCKER_CONFIG_FILENAME);
-        if (configJsonPath.exists()) {
-            String configJson = configJsonPath.readToString();
-            if (StringUtils.isNotBlank(configJson)) {
-                launcher.getListener().getLogger().println("Using the existing docker config file.");
+        if (DockerCredentialHelper.enabled(env)) {
+            KeyMaterial2 material = materializeWithHelper(Collections.singletonList(this));
+            if (material != null) {
+                return material;
+            }
+        }
+        FilePath dockerConfig = prepareDockerConfig();
+        Login login = new Login(dockerConfig);
+        try {
+            login.start();
+            login.finish("docker login failed");
+        } catch (IOException | InterruptedException x) {
+            login.kill(x);
+            try {
+                dockerConfig.deleteRecursive();
+            } catch (Exception x2) {
+                x.addSuppressed(x2);
+            }
+            throw x;
+        }
+        return new RegistryKeyMaterial2(dockerConfig);
+    }
 
-                JSONObject json = JSONObject.fromObject(configJson);
-                for (String property : BLACKLISTED_PROPERTIES) {
-                    Object value = json.remove(property);
-                    if (value != null) {
-                        launcher.getListener().getLogger().println("Removing blacklisted property: " + property);
-                    }
+    /**
+     * Logs in to several registries, producing a single {@code DOCKER_CONFIG} holding the {@code auths} of all of them.
+     *
+     * <p>
+     * The logins run concurrently, each against its own directory so that the {@code docker login} processes do not
+     * race on {@code config.json}; their entries are then merged into the directory of the first login.
+     *
+     * @param factories factories which are all bound to the same agent, see {@link #mergeable}
+     */
+    static KeyMaterial2 materializeMerged(@NonNull List<RegistryKeyMaterialFactory> factories) throws IOException, InterruptedException {
+        if (DockerCredentialHelper.enabled(factories.get(0).env)) {
+            KeyMaterial2 material = materializeWithHelper(factories);
+            if (material != null) {
+                return material;
+            }
+        }
+        List<FilePath> dirs = new ArrayList<>(factories.size());
+        List<Login> logins = new ArrayList<>(factories.size());
+        try {
+            for (RegistryKeyMaterialFactory factory : factories) {
+                FilePath dockerConfig = factory.prepareDockerConfig();
+                dirs.add(dockerConfig);
+                Login login = factory.new Login(dockerConfig);
+                logins.add(login);
+                login.start();
+            }
+            for (int index = 0; index < logins.size(); index++) {
+                logins.get(index).finish("docker login failed for " + factories.get(index).registry());
+            }
+            FilePath merged = dirs.get(0);
+            String[] others = new String[dirs.size() - 1];
+            for (int index = 1; index < dirs.size(); index++) {
+                others[index - 1] = dirs.get(index).getRemote();
+            }
+            merged.act(new MergeAuths(others));
+            return new RegistryKeyMaterial2(merged);
+        } catch (IOException | InterruptedException | RuntimeException x) {
+            for (Login login : logins) {
+                login.kill(x);
+            }
+            for (FilePath dockerConfig : dirs) {
+                try {
+                    dockerConfig.deleteRecursive();
+                } catch (Exception x2) {
+                    x.addSuppressed(x2);
                 }
-
-                dockerConfig.child(DOCKER_CONFIG_FILENAME).write(json.toString(), StandardCharsets.UTF_8.name());
             }
+            throw x;
         }
+    }
 
+    /**
+     * Sets up a {@code DOCKER_CONFIG} in which the given registries are served by {@link DockerCredentialHelper}
+     * rather than logged in to.
+     *
+     * @return null if the helper cannot be used on this agent
+     */
+    @CheckForNull
+    private static KeyMaterial2 materializeWithHelper(@NonNull List<RegistryKeyMaterialFactory> factories) throws IOException, InterruptedException {
+        RegistryKeyMaterialFactory first = factories.get(0);
+        Map<String, String[]> credentials = new LinkedHashMap<>();
+        for (RegistryKeyMaterialFactory factory : factories) {
+            credentials.put(DockerCredentialHelper.authority(factory.endpoint.toString()),
+                    new String[] {factory.username, factory.password, factory.endpoint.toString()});
+        }
+        FilePath dockerConfig = first.prepareDockerConfig();
+        String socket;
         try {
-            // TODO on Docker 17.07+ use --password-stdin
-            EnvVars envWithConfig = new EnvVars(env);
-            envWithConfig.put("DOCKER_CONFIG", dockerConfig.getRemote());
-            if (launcher.launch().cmds(new ArgumentListBuilder(dockerExecutable, "login", "-u", username, "-p").add(password, true).add(registry())).envs(envWithConfig).stdout(listener).join() != 0) {
-                throw new AbortException("docker login failed");
-            }
-        } catch (IOException | InterruptedException x) {
+            socket = dockerConfig.act(new DockerCredentialHelper.Start(credentials));
+        } catch (IOException | InterruptedException | RuntimeException x) {
             try {
                 dockerConfig.deleteRecursive();
             } catch (Exception x2) {
@@ -113,7 +214,277 @@ public class RegistryKeyMaterialFactory extends KeyMaterialFactory {
             }
             throw x;
         }
-        return new RegistryKeyMaterial2(dockerConfig, new EnvVars("DOCKER_CONFIG", dockerConfig.getRemote()));
+        if (socket == null) {
+            first.listener.getLogger().println("docker-credential-" + DockerCredentialHelper.NAME + " cannot be used on this agent, falling back to docker login");
+            dockerConfig.deleteRecursive();
+            return null;
+        }
+        return new DockerCredentialHelper.HelperKeyMaterial2(dockerConfig.getRemote());
+    }
+
+    /**
+     * Checks whether {@link #materializeMerged} may be used, i.e. whether all the factories are bound to the same agent.
+     */
+    static boolean mergeable(@NonNull List<RegistryKeyMaterialFactory> factories) {
+        if (factories.size() < 2) {
+            return false;
+        }
+        VirtualChannel channel = factories.get(0).getChannel();
+        for (RegistryKeyMaterialFactory factory : factories) {
+            if (factory.getChannel() != channel) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the agent the {@code DOCKER_CONFIG} is set up on, see {@link CompositeKeyMaterialFactory}
+     */
+    VirtualChannel channel() {
+        return getChannel();
+    }
+
+    /**
+     * Creates the directory to be used as {@code DOCKER_CONFIG}, seeded with the settings of the user's config file.
+     */
+    private FilePath prepareDockerConfig() throws IOException, InterruptedException {
+        FilePath dockerConfig = createSecretsDirectory();
+        String[] removed = seedDockerConfig(dockerConfig, this.launcher.getChannel());
+        if (removed != null) {
+            launcher.getListener().getLogger().println("Using the existing docker config file.");
+            for (String property : removed) {
+                launcher.getListener().getLogger().println("Removing blacklisted property: " + property);
+            }
+        }
+        return dockerConfig;
+    }
+
+    /**
+     * Copies the user's config file, which might hold some important settings (e.g. proxies), into a directory to be
+     * used as {@code DOCKER_CONFIG}, without the {@link #BLACKLISTED_PROPERTIES} and entirely on the agent.
+     *
+     * @return null if there was nothing to copy, else the names of the properties removed
+     */
+    @CheckForNull
+    static String[] seedDockerConfig(@NonNull FilePath dockerConfig, @NonNull VirtualChannel channel) throws IOException, InterruptedException {
+        FilePath configJsonPath = AgentFacts.of(channel).getHomeDirectory(channel).child(".docker").child(DOCKER_CONFIG_FILENAME);
+        return configJsonPath.act(new FilterConfigJson(dockerConfig.child(DOCKER_CONFIG_FILENAME).getRemote()));
+    }
+
+    private Proc startLogin(FilePath dockerConfig, OutputStream output) throws IOException, InterruptedException {
+        // TODO on Docker 17.07+ use --password-stdin
+        EnvVars envWithConfig = new EnvVars(env);
+        envWithConfig.put("DOCKER_CONFIG", dockerConfig.getRemote());
+        return launcher.launch().cmds(new ArgumentListBuilder(dockerExecutable, "login", "-u", username, "-p").add(password, true).add(registry())).envs(envWithConfig).stdout(new TeeOutputStream(listener.getLogger(), output)).start();
+    }
+
+    /**
+     * One {@code docker login} into a given directory, going through {@link RegistryLoginThrottle}.
+     *
+     * <p>
+     * If the same login is already in flight on the same agent, its {@code auths} are copied rather than logging in again.
+     */
+    private final class Login {
+
+        private final FilePath dockerConfig;
+        private final List<Object> key;
+        private @CheckForNull CompletableFuture<String> leader;
+        private @CheckForNull CompletableFuture<String> flight;
+        private @CheckForNull Proc proc;
+        private long started;
+        /** Whether this is the one login {@link RegistryHealth} lets through to find out whether the registry is back. */
+        private boolean trial;
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private String failedOutput = "";
+
+        Login(FilePath dockerConfig) {
+            this.dockerConfig = dockerConfig;
+            this.key = Arrays.asList(getChannel(), registry(), username, password);
+        }
+
+        void start() throws IOException, InterruptedException {
+            if (IDENTITY_TOKEN_USERNAME.equals(username)) {
+                JSONObject auth = new JSONObject();
+                auth.put("auth", Base64.getEncoder().encodeToString((username + ":").getBytes(StandardCharsets.UTF_8)));
+                auth.put("identitytoken", password);
+                JSONObject auths = new JSONObject();
+                auths.put(registry(), auth);
+                dockerConfig.act(new AddAuths(auths.toString()));
+                return;
+            }
+            CompletableFuture<String> mine = new CompletableFuture<>();
+            leader = RegistryLoginThrottle.join(key, mine);
+            if (leader == null) {
+                flight = mine;
+                launch();
+            }
+        }
+
+        private void launch() throws IOException, InterruptedException {
+            trial = RegistryHealth.check(endpoint);
+            try {
+                RegistryLoginThrottle.acquire(DockerCredentialHelper.authority(endpoint.toString()), listener);
+                output.reset();
+                started = System.nanoTime();
+                proc = startLogin(dockerConfig, output);
+            } catch (IOException | InterruptedException | RuntimeException x) {
+                endTrial();
+                throw x;
+            }
+        }
+
+        /**
+         * Lets another login find out whether the registry is back, if this one was to but will not tell.
+         */
+        private void endTrial() {
+            if (trial) {
+                trial = false;
+                RegistryHealth.release(endpoint);
+            }
+        }
+
+        /**
+         * Waits for the login started by {@link #launch}, killing it after {@link #LOGIN_TIMEOUT_SECONDS}.
+         * Once {@link #HEDGE_AFTER_SECONDS} have elapsed a second login is started into another directory;
+         * whichever succeeds first wins and the other one is killed.
+         *
+         * @return the exit status of the winning login, or of the last one to fail
+         */
+        private int join() throws IOException, InterruptedException {
+            long timeout = LOGIN_TIMEOUT_SECONDS > 0 ? TimeUnit.SECONDS.toNanos(LOGIN_TIMEOUT_SECONDS) : Long.MAX_VALUE;
+            long hedgeAfter = HEDGE_AFTER_SECONDS > 0 ? TimeUnit.SECONDS.toNanos(HEDGE_AFTER_SECONDS) : Long.MAX_VALUE;
+            Proc primary = proc;
+            Proc hedge = null;
+            FilePath hedgeConfig = null;
+            ByteArrayOutputStream hedgeOutput = new ByteArrayOutputStream();
+            int status = -1;
+            try {
+                while (primary != null || hedge != null) {
+                    if (primary != null && !primary.isAlive()) {
+                        status = primary.join();
+                        primary = null;
+                        if (status == 0) {
+                            return 0;
+                        }
+                        failedOutput = output.toString(StandardCharsets.UTF_8);
+                        continue;
+                    }
+                    if (hedge != null && !hedge.isAlive()) {
+                        status = hedge.join();
+                        hedge = null;
+                        if (status == 0) {
+                            String auths = hedgeConfig.act(new ReadAuths());
+                            if (auths != null) {
+                                dockerConfig.act(new AddAuths(auths));
+                            }
+                            listener.getLogger().println("Hedged login to " + registry() + " completed first");
+                            return 0;
+                        }
+                        failedOutput = hedgeOutput.toString(StandardCharsets.UTF_8);
+                        continue;
+                    }
+                    long elapsed = System.nanoTime() - started;
+                    if (elapsed >= timeout) {
+                        throw new AbortException("docker login to " + registry() + " timed out after " + LOGIN_TIMEOUT_SECONDS + " seconds");
+                    }
+                    if (hedgeConfig == null && primary != null && elapsed >= hedgeAfter) {
+                        listener.getLogger().println("docker login to " + registry() + " is taking more than " + HEDGE_AFTER_SECONDS + " seconds, trying again alongside");
+                        hedgeConfig = createSecretsDirectory();
+                        RegistryLoginThrottle.acquire(DockerCredentialHelper.authority(endpoint.toString()), listener);
+                        hedge = startLogin(hedgeConfig, hedgeOutput);
+                    }
+                    Thread.sleep(100);
+                }
+                return status;
+            } finally {
+                for (Proc p : new Proc[] {primary, hedge}) {
+                    if (p != null) {
+                        p.kill();
+                    }
+                }
+                if (hedgeConfig != null) {
+                    hedgeConfig.deleteRecursive();
+                }
+            }
+        }
+
+        /**
+         * {@link #join}, telling {@link RegistryHealth} how the login went if that says anything about the registry.
+         */
+        private int joinAndRecord() throws IOException, InterruptedException {
+            int status;
+            try {
+                status = join();
+            } catch (AbortException x) {
+                // the login timed out
+                trial = false;
+                RegistryHealth.record(endpoint, false, System.nanoTime() - started);
+                throw x;
+            } catch (IOException | InterruptedException | RuntimeException x) {
+                // other errors, or the build being aborted, say nothing about the registry
+                endTrial();
+                throw x;
+            }
+            if (status == 0) {
+                trial = false;
+                RegistryHealth.record(endpoint, true, System.nanoTime() - started);
+            } else if (RegistryHealth.isRegistryFailure(failedOutput)) {
+                trial = false;
+                RegistryHealth.record(endpoint, false, System.nanoTime() - started);
+            } else {
+                endTrial();
+            }
+            return status;
+        }
+
+        void finish(String failure) throws IOException, InterruptedException {
+            if (leader == null && flight == null) {
+                return; // nothing was launched
+            }
+            try {
+                if (leader != null) {
+                    String auths = RegistryLoginThrottle.await(leader);
+                    if (auths != null) {
+                        dockerConfig.act(new AddAuths(auths));
+                        listener.getLogger().println("Reusing concurrent login to " + registry());
+                        return;
+                    }
+                    // the login we joined failed, try on our own
+                    launch();
+                }
+                for (int attempt = 1; joinAndRecord() != 0; attempt++) {
+                    if (attempt > RegistryLoginThrottle.MAX_RETRIES || !RegistryLoginThrottle.isRateLimited(failedOutput)) {
+                        throw new AbortException(failure);
+                    }
+                    long delay = RegistryLoginThrottle.backoff(attempt);
+                    listener.getLogger().println(registry() + " is rate limiting logins, retrying in " + delay + "ms");
+                    Thread.sleep(delay);
+                    launch();
+                }
+                if (flight != null) {
+                    flight.complete(dockerConfig.act(new ReadAuths()));
+                }
+            } finally {
+                if (flight != null) {
+                    RegistryLoginThrottle.land(key, flight);
+                }
+            }
+        }
+
+        void kill(Exception failure) {
+            if (flight != null) {
+                RegistryLoginThrottle.land(key, flight);
+            }
+            endTrial();
+            if (proc != null) {
+                try {
+                    proc.kill();
+                } catch (Exception x) {
+                    failure.addSuppressed(x);
+                }
+            }
+        }
     }
 
     protected String registry() {
@@ -124,18 +495,192 @@ public class RegistryKeyMaterialFactory extends KeyMaterialFactory {
     	return endpoint.toString();
     }
 
-    private static class RegistryKeyMaterial2 extends KeyMaterial2 {
+    /**
+     * Copies the user's config file without the {@link #BLACKLISTED_PROPERTIES}, entirely on the agent.
+     * Returns null if there was nothing to copy, else the names of the properties removed.
+     */
+    private static final class FilterConfigJson extends MasterToSlaveFileCallable<String[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String target;
+
+        FilterConfigJson(String target) {
+            this.target = target;
+        }
+
+        @Override
+        public String[] invoke(File configJson, VirtualChannel channel) throws IOException, InterruptedException {
+            if (!configJson.isFile()) {
+                return null;
+            }
+            FilteredConfigJson filtered = FilteredConfigJson.of(configJson);
+            if (filtered.json == null) {
+                return null;
+            }
+            Files.write(new File(target).toPath(), filtered.json.getBytes(StandardCharsets.UTF_8));
+            return filtered.removed.clone();
+        }
+    }
+
+    /**
+     * Adds the {@code auths} of other config directories to the one this is invoked on, then deletes the others.
+     */
+    private static final class MergeAuths extends MasterToSlaveFileCallable<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String[] others;
+
+        MergeAuths(String[] others) {
+            this.others = others;
+        }
+
+        @Override
+        public Void invoke(File dockerConfig, VirtualChannel channel) throws IOException, InterruptedException {
+            File configJson = new File(dockerConfig, DOCKER_CONFIG_FILENAME);
+            JSONObject json = readJson(configJson);
+            JSONObject auths = json.optJSONObject("auths");
+            if (auths == null) {
+                auths = new JSONObject();
+            }
+            for (String other : others) {
+                JSONObject otherAuths = readJson(new File(other, DOCKER_CONFIG_FILENAME)).optJSONObject("auths");
+                if (otherAuths != null) {
+                    auths.putAll(otherAuths);
+                }
+            }
+            json.put("auths", auths);
+            Files.write(configJson.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+            for (String other : others) {
+                Util.deleteRecursive(new File(other));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns the {@code auths} written by a successful login to the directory this is invoked on, if any.
+     */
+    private static final class ReadAuths extends MasterToSlaveFileCallable<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String invoke(File dockerConfig, VirtualChannel channel) throws IOException, InterruptedException {
+            JSONObject auths = readJson(new File(dockerConfig, DOCKER_CONFIG_FILENAME)).optJSONObject("auths");
+            return auths == null || auths.isEmpty() ? null : auths.toString();
+        }
+    }
+
+    /**
+     * Adds {@code auths} obtained through {@link ReadAuths} to the directory this is invoked on.
+     */
+    private static final class AddAuths extends MasterToSlaveFileCallable<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String auths;
+
+        AddAuths(String auths) {
+            this.auths = auths;
+        }
+
+        @Override
+        public Void invoke(File dockerConfig, VirtualChannel channel) throws IOException, InterruptedException {
+            File configJson = new File(dockerConfig, DOCKER_CONFIG_FILENAME);
+            JSONObject json = readJson(configJson);
+            JSONObject existing = json.optJSONObject("auths");
+            JSONObject added = JSONObject.fromObject(auths);
+            if (existing != null) {
+                existing.putAll(added);
+                added = existing;
+            }
+            json.put("auths", added);
+            Files.write(configJson.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+            return null;
+        }
+    }
+
+    private static JSONObject readJson(File file) throws IOException {
+        if (!file.isFile()) {
+            return new JSONObject();
+        }
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        return StringUtils.isBlank(content) ? new JSONObject() : JSONObject.fromObject(content);
+    }
+
+    /**
+     * Result of filtering a config file, cached in the agent JVM for as long as the file keeps the same timestamp and size.
+     */
+    private static final class FilteredConfigJson {
+
+        private static final Map<String, FilteredConfigJson> CACHE = new ConcurrentHashMap<>();
+
+        private final long lastModified;
+        private final long length;
+        private final @CheckForNull String json;
+        private final String[] removed;
+
+        private FilteredConfigJson(long lastModified, long length, @CheckForNull String json, String[] removed) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.json = json;
+            this.removed = removed;
+        }
+
+        static FilteredConfigJson of(File configJson) throws IOException {
+            String key = configJson.getAbsolutePath();
+            long lastModified = configJson.lastModified();
+            long length = configJson.length();
+            FilteredConfigJson cached = CACHE.get(key);
+            if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+                return cached;
+            }
+            String content = new String(Files.readAllBytes(configJson.toPath()), StandardCharsets.UTF_8);
+            FilteredConfigJson filtered;
+            if (StringUtils.isBlank(content)) {
+                filtered = new FilteredConfigJson(lastModified, length, null, new String[0]);
+            } else {
+                JSONObject json = JSONObject.fromObject(content);
+                List<String> removed = new ArrayList<>();
+                for (String property : BLACKLISTED_PROPERTIES) {
+                    if (json.remove(property) != null) {
+                        removed.add(property);
+                    }
+                }
+                filtered = new FilteredConfigJson(lastModified, length, json.toString(), removed.toArray(new String[0]));
+            }
+            CACHE.put(key, filtered);
+            return filtered;
+        }
+    }
+
+    private static class RegistryKeyMaterial2 extends KeyMaterial2 implements KeyMaterialReaper.Reapable {
+
+        /** As computed for the class before it declared one, so that materials held by running builds still deserialize. */
+        private static final long serialVersionUID = 9107447314300396686L;
 
         private final String dockerConfig;
 
-        RegistryKeyMaterial2(FilePath dockerConfig, EnvVars envVars) {
-            super(envVars);
+        RegistryKeyMaterial2(FilePath dockerConfig) {
             this.dockerConfig = dockerConfig.getRemote();
         }
 
+        @Override
+        protected EnvVars computeEnv() {
+            return new EnvVars("DOCKER_CONFIG", dockerConfig);
+        }
+
         @Override
         public void close(VirtualChannel channel) throws IOException, InterruptedException {
-            new FilePath(channel, dockerConfig).deleteRecursive();
+            KeyMaterialReaper.discard(channel, getReapablePaths());
+        }
+
+        @NonNull
+        @Override
+        public Collection<String> getReapablePaths() {
+            return Collections.singletonList(dockerConfig);
         }
 
     }
@@ -0,0 +1,282 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.TaskListener;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the {@code docker login} calls made by {@link RegistryKeyMaterialFactory} from overwhelming a registry
+ * when many builds start at once.
+ *
+ * <ul>
+ * <li>Logins are paced by a controller-wide token bucket per registry host.
+ * <li>Identical logins (same agent, registry and credentials) running concurrently are coalesced into one.
+ * <li>Logins rejected by the registry's own rate limiting are retried with jittered exponential backoff.
+ * </ul>
+ *
+ * <p>
+ * The default rate is set by {@code RATE} (logins per second) and {@code BURST}; individual registries may be
+ * given their own through {@code RATES}, e.g. {@code registry.example.com=2,index.docker.io=0.5/5}.
+ * A rate of zero or less disables the limiter for the corresponding registries.
+ * The limiter is thus on by default, at 10 logins per second with bursts of 20, which only delays logins well beyond
+ * what registries usually accept from one client.
+ */
+@Restricted(NoExternalUse.class)
+public final class RegistryLoginThrottle {
+
+    private static final Logger LOGGER = Logger.getLogger(RegistryLoginThrottle.class.getName());
+
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ double RATE = doubleProperty(RegistryLoginThrottle.class.getName() + ".RATE", 10);
+
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ double BURST = doubleProperty(RegistryLoginThrottle.class.getName() + ".BURST", 20);
+
+    /** Per-registry overrides, as {@code host[:port]=rate[/burst]} separated by commas. */
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ String RATES = System.getProperty(RegistryLoginThrottle.class.getName() + ".RATES", "");
+
+    /** How many times a login refused because of rate limiting is retried. */
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ int MAX_RETRIES = Integer.getInteger(RegistryLoginThrottle.class.getName() + ".MAX_RETRIES", 3);
+
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ long BACKOFF_MILLIS = Long.getLong(RegistryLoginThrottle.class.getName() + ".BACKOFF_MILLIS", 2000);
+
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ long MAX_BACKOFF_MILLIS = Long.getLong(RegistryLoginThrottle.class.getName() + ".MAX_BACKOFF_MILLIS", 60000);
+
+    private static final Map<String, Bucket> BUCKETS = new ConcurrentHashMap<>();
+
+    private static final Map<List<Object>, CompletableFuture<String>> FLIGHTS = new ConcurrentHashMap<>();
+
+    private RegistryLoginThrottle() {} // no instantiation
+
+    /**
+     * Like {@link Long#getLong(String, long)}, falling back to the default for values which are not finite numbers
+     * rather than failing class initialization.
+     */
+    static double doubleProperty(@NonNull String name, double def) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return def;
+        }
+        try {
+            double parsed = Double.parseDouble(value.trim());
+            if (Double.isFinite(parsed)) {
+                return parsed;
+            }
+        } catch (NumberFormatException x) {
+            // reported below
+        }
+        LOGGER.log(Level.WARNING, "Ignoring malformed {0}={1}, using {2}", new Object[] {name, value, def});
+        return def;
+    }
+
+    /**
+     * Waits until a login to the given registry may proceed.
+     *
+     * @param registry the registry host, see {@link DockerCredentialHelper#authority}
+     * @param listener where to report waiting
+     */
+    static void acquire(@NonNull String registry, @NonNull TaskListener listener) throws InterruptedException {
+        Bucket bucket = BUCKETS.computeIfAbsent(registry, RegistryLoginThrottle::newBucket);
+        if (bucket == null) {
+            return;
+        }
+        long delay = bucket.reserve(System.nanoTime());
+        if (delay <= 0) {
+            return;
+        }
+        int queued = bucket.waiting.incrementAndGet();
+        try {
+            listener.getLogger().println("Waiting " + TimeUnit.NANOSECONDS.toMillis(delay) + "ms to log in to " + registry + " (" + queued + " logins queued)");
+            LOGGER.log(Level.FINE, "{0} logins queued for {1}", new Object[] {queued, registry});
+            TimeUnit.NANOSECONDS.sleep(delay);
+        } catch (InterruptedException x) {
+            bucket.cancel();
+            throw x;
+        } finally {
+            bucket.waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of logins currently waiting for each registry being throttled
+     */
+    @NonNull
+    public static Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new TreeMap<>();
+        BUCKETS.forEach((registry, bucket) -> depths.put(registry, bucket.waiting.get()));
+        return Collections.unmodifiableMap(depths);
+    }
+
+    /**
+     * Joins a login already in flight for {@code key}, or registers {@code flight} as the one others should join.
+     *
+     * @return the login to wait for, or null if the caller is to perform the login and complete {@code flight}
+     */
+    @CheckForNull
+    static CompletableFuture<String> join(@NonNull List<Object> key, @NonNull CompletableFuture<String> flight) {
+        return FLIGHTS.putIfAbsent(key, flight);
+    }
+
+    /**
+     * Ends a login registered through {@link #join}, failing it for whoever joined if it was not completed.
+     */
+    static void land(@NonNull List<Object> key, @NonNull CompletableFuture<String> flight) {
+        flight.complete(null);
+        FLIGHTS.remove(key, flight);
+    }
+
+    /**
+     * Waits for a login joined through {@link #join}.
+     *
+     * @return what the login produced, or null if it failed
+     */
+    @CheckForNull
+    static String await(@NonNull CompletableFuture<String> flight) throws InterruptedException {
+        try {
+            return flight.get();
+        } catch (ExecutionException | CancellationException x) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the output of a failed {@code docker login} denotes the registry rate limiting us.
+     */
+    static boolean isRateLimited(@NonNull String output) {
+        String lower = output.toLowerCase(Locale.ENGLISH);
+        return lower.contains("toomanyrequests") || lower.contains("too many requests")
+                || lower.contains("rate limit") || lower.contains("status: 429");
+    }
+
+    /**
+     * @param attempt the number of attempts made so far, starting at 1
+     * @return how long to wait before the next attempt, somewhere between half and all of the exponential delay
+     */
+    static long backoff(int attempt) {
+        long delay = BACKOFF_MILLIS << Math.min(attempt - 1, 20);
+        if (delay <= 0 || delay > MAX_BACKOFF_MILLIS) {
+            delay = MAX_BACKOFF_MILLIS;
+        }
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    @CheckForNull
+    private static Bucket newBucket(String registry) {
+        double rate = RATE;
+        double burst = BURST;
+        String override = overrides().get(registry);
+        if (override != null) {
+            try {
+                int slash = override.indexOf('/');
+                double overrideRate = Double.parseDouble(slash >= 0 ? override.substring(0, slash) : override);
+                double overrideBurst = slash >= 0 ? Double.parseDouble(override.substring(slash + 1)) : burst;
+                if (!Double.isFinite(overrideRate) || !Double.isFinite(overrideBurst)) {
+                    throw new NumberFormatException("not finite");
+                }
+                rate = overrideRate;
+                burst = overrideBurst;
+            } catch (NumberFormatException x) {
+                LOGGER.log(Level.WARNING, "Ignoring malformed login rate " + override + " for " + registry, x);
+            }
+        }
+        // computeIfAbsent does not record null, so a disabled registry is looked up again next time, which is cheap
+        return rate > 0 ? new Bucket(rate, Math.max(burst, 1)) : null;
+    }
+
+    private static Map<String, String> overrides() {
+        Map<String, String> overrides = new HashMap<>();
+        for (String entry : RATES.split(",")) {
+            int equals = entry.indexOf('=');
+            if (equals > 0) {
+                overrides.put(DockerCredentialHelper.authority(entry.substring(0, equals)), entry.substring(equals + 1).trim());
+            }
+        }
+        return overrides;
+    }
+
+    /**
+     * Token bucket handing out reservations: a caller takes a token even when there is none left and waits until
+     * the bucket has refilled up to it, so that waiting callers are served in order.
+     */
+    static final class Bucket {
+
+        private final double rate;
+        private final double burst;
+        private double tokens;
+        private long last;
+
+        final AtomicInteger waiting = new AtomicInteger();
+
+        Bucket(double rate, double burst) {
+            this.rate = rate;
+            this.burst = burst;
+            this.tokens = burst;
+            this.last = System.nanoTime();
+        }
+
+        /**
+         * @return how many nanoseconds to wait before using the token taken
+         */
+        synchronized long reserve(long now) {
+            tokens = Math.min(burst, tokens + (now - last) * rate / TimeUnit.SECONDS.toNanos(1));
+            last = now;
+            tokens--;
+            return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        /**
+         * Gives back a token whose reservation was abandoned.
+         */
+        synchronized void cancel() {
+            tokens = Math.min(burst, tokens + 1);
+        }
+    }
+
+}
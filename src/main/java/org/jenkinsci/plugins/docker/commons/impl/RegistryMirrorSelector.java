@@ -0,0 +1,226 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.remoting.VirtualChannel;
+import jenkins.security.MasterToSlaveCallable;
+import org.jenkinsci.plugins.docker.commons.credentials.RegistryMirror;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ranks the {@link RegistryMirror}s of a registry for an agent.
+ *
+ * <p>
+ * Mirrors meant for the agent by their label come first, in the configured order. Mirrors without a label follow,
+ * fastest first, as measured from the agent by a request to {@code /v2/}; mirrors meant for other agents are left
+ * out. Mirrors which did not answer are left out as well, until probed again after {@code PROBE_TTL_SECONDS}, and
+ * so are those {@link RegistryHealth} currently keeps builds from logging in to.
+ */
+@Restricted(NoExternalUse.class)
+public final class RegistryMirrorSelector {
+
+    private static final Logger LOGGER = Logger.getLogger(RegistryMirrorSelector.class.getName());
+
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ long PROBE_TTL_SECONDS = Long.getLong(RegistryMirrorSelector.class.getName() + ".PROBE_TTL_SECONDS", 300);
+
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int PROBE_TIMEOUT_MILLIS = Integer.getInteger(RegistryMirrorSelector.class.getName() + ".PROBE_TIMEOUT_MILLIS", 2000);
+
+    /** Latencies keyed by agent name and mirror URL. */
+    private static final Map<List<String>, Latency> LATENCIES = new ConcurrentHashMap<>();
+
+    private RegistryMirrorSelector() {} // no instantiation
+
+    /**
+     * @return the URLs of the usable mirrors, best first
+     */
+    @NonNull
+    public static List<String> rank(@NonNull Node agent, @NonNull List<RegistryMirror> mirrors) throws InterruptedException {
+        List<String> labeled = new ArrayList<>();
+        List<String> unlabeled = new ArrayList<>();
+        for (RegistryMirror mirror : mirrors) {
+            if (mirror.getUrl() == null || !RegistryHealth.isAvailable(DockerCredentialHelper.authority(mirror.getUrl()))) {
+                continue;
+            }
+            if (mirror.getLabel() == null) {
+                unlabeled.add(mirror.getUrl());
+            } else if (mirror.isFor(agent)) {
+                labeled.add(mirror.getUrl());
+            }
+        }
+        String name = agent.getNodeName();
+        Computer computer = agent.toComputer();
+        refresh(name, computer == null ? null : computer.getChannel(), labeled, unlabeled);
+
+        List<String> ranked = new ArrayList<>(labeled.size() + unlabeled.size());
+        for (String url : labeled) {
+            if (latency(name, url) >= 0) {
+                ranked.add(url);
+            }
+        }
+        unlabeled.stream()
+                .filter(url -> latency(name, url) >= 0)
+                // stable, so that the configured order breaks ties
+                .sorted(Comparator.comparingLong(url -> latency(name, url)))
+                .forEach(ranked::add);
+        return ranked;
+    }
+
+    /**
+     * Probes, in a single call to the agent, the mirrors whose latency is not known or too old.
+     * Nothing is probed if the agent is offline, and mirrors then keep their configured order.
+     */
+    private static void refresh(String name, @CheckForNull VirtualChannel channel, List<String> labeled, List<String> unlabeled) throws InterruptedException {
+        if (channel == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        Set<String> stale = new HashSet<>();
+        for (List<String> urls : Arrays.asList(labeled, unlabeled)) {
+            for (String url : urls) {
+                Latency latency = LATENCIES.get(Arrays.asList(name, url));
+                if (latency == null || now - latency.checked > TimeUnit.SECONDS.toNanos(PROBE_TTL_SECONDS)) {
+                    stale.add(url);
+                }
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+        Map<String, Long> probed;
+        try {
+            probed = channel.call(new Probe(stale, PROBE_TIMEOUT_MILLIS));
+        } catch (IOException x) {
+            LOGGER.log(Level.FINE, "Could not probe registry mirrors from " + name, x);
+            return;
+        }
+        long checked = System.nanoTime();
+        probed.forEach((url, millis) -> {
+            LATENCIES.put(Arrays.asList(name, url), new Latency(millis, checked));
+            if (millis < 0) {
+                LOGGER.log(Level.FINE, "Registry mirror {0} is unreachable from {1}", new Object[] {url, name});
+            }
+        });
+    }
+
+    /**
+     * @return the last measured latency in milliseconds, 0 if unknown, or -1 if the mirror was unreachable
+     */
+    private static long latency(String name, String url) {
+        Latency latency = LATENCIES.get(Arrays.asList(name, url));
+        return latency == null ? 0 : latency.millis;
+    }
+
+    /**
+     * For tests.
+     */
+    static void clear() {
+        LATENCIES.clear();
+    }
+
+    private static final class Latency {
+
+        final long millis;
+        final long checked;
+
+        Latency(long millis, long checked) {
+            this.millis = millis;
+            this.checked = checked;
+        }
+    }
+
+    /**
+     * Measures from the agent how long each mirror takes to answer {@code GET /v2/}, or -1 if it does not.
+     * An unauthenticated request is expected to be refused with 401, which counts as an answer.
+     */
+    private static final class Probe extends MasterToSlaveCallable<Map<String, Long>, IOException> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Set<String> urls;
+        private final int timeout;
+
+        Probe(Set<String> urls, int timeout) {
+            this.urls = new HashSet<>(urls);
+            this.timeout = timeout;
+        }
+
+        @Override
+        public Map<String, Long> call() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (String url : urls) {
+                result.put(url, probe(url));
+            }
+            return result;
+        }
+
+        private long probe(String url) {
+            long start = System.nanoTime();
+            HttpURLConnection connection = null;
+            try {
+                connection = (HttpURLConnection) new URL(new URL(url), "/v2/").openConnection();
+                connection.setConnectTimeout(timeout);
+                connection.setReadTimeout(timeout);
+                connection.setInstanceFollowRedirects(false);
+                int status = connection.getResponseCode();
+                if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_UNAUTHORIZED) {
+                    LOGGER.log(Level.FINE, "Registry mirror {0} answered {1}", new Object[] {url, status});
+                    return -1;
+                }
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            } catch (IOException | RuntimeException x) {
+                LOGGER.log(Level.FINE, "Failed to probe registry mirror " + url, x);
+                return -1;
+            } finally {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+            }
+        }
+    }
+
+}
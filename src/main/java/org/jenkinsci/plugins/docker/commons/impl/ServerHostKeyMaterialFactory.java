@@ -55,9 +55,7 @@ public class ServerHostKeyMaterialFactory extends KeyMaterialFactory{
     /** {@inheritDoc} */
     @Override
     public KeyMaterial2 materialize2() throws IOException, InterruptedException {
-        EnvVars env = new EnvVars();
-        env.put("DOCKER_HOST", host);
-        return new KeyMaterialImpl2(env);
+        return new KeyMaterialImpl2(host);
     }
 
     /**
@@ -69,8 +67,16 @@ public class ServerHostKeyMaterialFactory extends KeyMaterialFactory{
          */
         private static final long serialVersionUID = 1L;
 
-        private KeyMaterialImpl2(EnvVars envVars) {
-            super(envVars);
+        private final String host;
+
+        private KeyMaterialImpl2(String host) {
+            this.host = host;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected EnvVars computeEnv() {
+            return new EnvVars("DOCKER_HOST", host);
         }
 
         /** {@inheritDoc} */
@@ -24,17 +24,29 @@
 package org.jenkinsci.plugins.docker.commons.impl;
 
 import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.EnvVars;
 import hudson.FilePath;
+import hudson.Util;
 import hudson.remoting.VirtualChannel;
 import hudson.util.Secret;
+import jenkins.security.MasterToSlaveCallable;
 import org.jenkinsci.plugins.docker.commons.credentials.DockerServerCredentials;
 import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial;
 import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialFactory;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
 
 /**
@@ -48,6 +60,16 @@ import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
  */
 @Restricted(NoExternalUse.class)
 public class ServerKeyMaterialFactory extends KeyMaterialFactory {
+
+    /**
+     * Opt in to materializing each distinct set of key/certificates once per agent, in a directory named after their
+     * digest which is shared by concurrent builds and deleted when the last of them closes its {@link KeyMaterial2}.
+     * The name also identifies the agent JVM, as several agents on one host may share the same home directory.
+     */
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ boolean SHARED_DIRECTORIES = Boolean.getBoolean(ServerKeyMaterialFactory.class.getName() + ".SHARED_DIRECTORIES");
+
+    static final String SHARED_DIRECTORY_PREFIX = "tls-";
     
     @CheckForNull
     private final String key;
@@ -76,10 +98,13 @@ public class ServerKeyMaterialFactory extends KeyMaterialFactory {
 
     @Override
     public KeyMaterial2 materialize2() throws IOException, InterruptedException {
-        
-        EnvVars e = new EnvVars();
 
         if (key != null && cert != null && ca != null) {
+            if (SHARED_DIRECTORIES) {
+                String sharedDir = getChannel().call(new AcquireSharedDirectory(getContext().getBaseDir().getRemote(), digest(key, cert, ca), key, cert, ca));
+                return new SharedServerKeyMaterial2(sharedDir);
+            }
+
             FilePath tempCredsDir = createSecretsDirectory();
 
             // these file names are defined by convention by docker
@@ -87,12 +112,19 @@ public class ServerKeyMaterialFactory extends KeyMaterialFactory {
             copyInto(tempCredsDir,"cert.pem", cert);
             copyInto(tempCredsDir,"ca.pem", ca);
 
-            e.put("DOCKER_TLS_VERIFY", "1");
-            e.put("DOCKER_CERT_PATH", tempCredsDir.getRemote());
-            return new ServerKeyMaterial2(e, tempCredsDir);
+            return new ServerKeyMaterial2(tempCredsDir);
         }
 
-        return new ServerKeyMaterial2(e, null);
+        return new ServerKeyMaterial2(null);
+    }
+
+    private static EnvVars env(@CheckForNull String certPath) {
+        EnvVars e = new EnvVars();
+        if (certPath != null) {
+            e.put("DOCKER_TLS_VERIFY", "1");
+            e.put("DOCKER_CERT_PATH", certPath);
+        }
+        return e;
     }
 
     private void copyInto(FilePath dir, String fileName, String content) throws IOException, InterruptedException {
@@ -100,20 +132,158 @@ public class ServerKeyMaterialFactory extends KeyMaterialFactory {
         dir.child(fileName).write(content,"UTF-8");
     }
 
-    private static final class ServerKeyMaterial2 extends KeyMaterial2 {
+    private static String digest(String... contents) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String content : contents) {
+                digest.update(content.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return Util.toHexString(digest.digest());
+        } catch (NoSuchAlgorithmException x) {
+            throw new AssertionError(x);
+        }
+    }
+
+    /**
+     * Lease counts of the shared directories, kept in the agent JVM.
+     * Other processes using the same base directory get directories of their own, named after their {@link #OWNER}.
+     */
+    private static final class SharedDirectories {
+
+        private static final String OWNER = UUID.randomUUID().toString();
+
+        private static final Map<String, Integer> LEASES = new HashMap<>();
+
+        /**
+         * @return the path of the directory
+         */
+        static synchronized String acquire(File baseDir, String digest, String key, String cert, String ca) throws IOException, InterruptedException {
+            File dir = new File(baseDir, SHARED_DIRECTORY_PREFIX + digest + "-" + OWNER);
+            String path = dir.getAbsolutePath();
+            int leases = LEASES.getOrDefault(path, 0);
+            if (leases == 0 || !dir.isDirectory()) {
+                FilePath d = new FilePath(dir);
+                d.mkdirs();
+                d.chmod(0700);
+                d.child("key.pem").write(key, "UTF-8");
+                d.child("cert.pem").write(cert, "UTF-8");
+                d.child("ca.pem").write(ca, "UTF-8");
+            } else {
+                // keeps the orphan sweep off directories which are still in use
+                dir.setLastModified(System.currentTimeMillis());
+            }
+            LEASES.put(path, leases + 1);
+            return path;
+        }
+
+        static synchronized void release(File dir) throws IOException {
+            String path = dir.getAbsolutePath();
+            Integer leases = LEASES.get(path);
+            if (leases == null) {
+                // leased before the agent JVM restarted; leave it to the orphan sweep
+                return;
+            }
+            if (leases > 1) {
+                LEASES.put(path, leases - 1);
+            } else {
+                LEASES.remove(path);
+                Util.deleteRecursive(dir);
+            }
+        }
+    }
+
+    private static final class AcquireSharedDirectory extends MasterToSlaveCallable<String, IOException> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String baseDir;
+        private final String digest;
+        private final String key;
+        private final String cert;
+        private final String ca;
+
+        AcquireSharedDirectory(String baseDir, String digest, String key, String cert, String ca) {
+            this.baseDir = baseDir;
+            this.digest = digest;
+            this.key = key;
+            this.cert = cert;
+            this.ca = ca;
+        }
+
+        @Override
+        public String call() throws IOException {
+            try {
+                return SharedDirectories.acquire(new File(baseDir), digest, key, cert, ca);
+            } catch (InterruptedException x) {
+                throw new IOException(x);
+            }
+        }
+    }
+
+    private static final class ReleaseSharedDirectory extends MasterToSlaveCallable<Void, IOException> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String dir;
+
+        ReleaseSharedDirectory(String dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            SharedDirectories.release(new File(dir));
+            return null;
+        }
+    }
+
+    private static final class SharedServerKeyMaterial2 extends KeyMaterial2 {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String sharedDir;
+
+        SharedServerKeyMaterial2(String sharedDir) {
+            this.sharedDir = sharedDir;
+        }
+
+        @Override
+        protected EnvVars computeEnv() {
+            return env(sharedDir);
+        }
+
+        @Override
+        public void close(VirtualChannel channel) throws IOException, InterruptedException {
+            channel.call(new ReleaseSharedDirectory(sharedDir));
+        }
+    }
+
+    private static final class ServerKeyMaterial2 extends KeyMaterial2 implements KeyMaterialReaper.Reapable {
+
+        /** As computed for the class before it declared one, so that materials held by running builds still deserialize. */
+        private static final long serialVersionUID = 8834615776793596469L;
 
         private final @CheckForNull String tempDir;
 
-        protected ServerKeyMaterial2(EnvVars envVars, FilePath tempDir) {
-            super(envVars);
+        protected ServerKeyMaterial2(@CheckForNull FilePath tempDir) {
             this.tempDir = tempDir != null ? tempDir.getRemote() : null;
         }
 
+        @Override
+        protected EnvVars computeEnv() {
+            return env(tempDir);
+        }
+
         @Override
         public void close(VirtualChannel channel) throws IOException, InterruptedException {
-            if (tempDir != null) {
-                new FilePath(channel, tempDir).deleteRecursive();
-            }
+            KeyMaterialReaper.discard(channel, getReapablePaths());
+        }
+
+        @NonNull
+        @Override
+        public Collection<String> getReapablePaths() {
+            return tempDir != null ? Collections.singletonList(tempDir) : Collections.emptyList();
         }
     }
 
@@ -0,0 +1,282 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.security.MasterToSlaveCallable;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialFactory;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Makes docker(1) reuse a single SSH connection to an {@code ssh://} daemon for as long as the {@link KeyMaterial2}
+ * is open, rather than going through a full key exchange on every invocation.
+ *
+ * <p>
+ * docker(1) runs whichever {@code ssh} comes first on the {@code PATH}, so a wrapper adding the
+ * {@code ControlMaster} options is put in front of it. The wrapper only multiplexes what docker(1) runs to reach the
+ * daemon, i.e. {@code docker system dial-stdio} on the daemon host; any other {@code ssh} run within the block, such as
+ * git over SSH, goes through untouched. Control sockets are named after host, port and user ({@code %C}) in a short
+ * directory of their own, as socket paths are limited to ~100 characters.
+ *
+ * <p>
+ * The master connection is started by the first invocation and told to exit on {@link KeyMaterial2#close}; should
+ * that never happen, it exits after ten idle minutes. Agents without a POSIX shell or {@code ssh} get no wrapper,
+ * and docker(1) connects as before.
+ *
+ * <p>
+ * Off unless {@code ENABLED} is set.
+ */
+@Restricted(NoExternalUse.class)
+public class SshControlMasterKeyMaterialFactory extends KeyMaterialFactory {
+
+    private static final Logger LOGGER = Logger.getLogger(SshControlMasterKeyMaterialFactory.class.getName());
+
+    /** Opt-in to reuse SSH connections; otherwise docker(1) opens a new one every time. */
+    @SuppressWarnings("FieldMayBeFinal")
+    static /* not final */ boolean ENABLED = Boolean.getBoolean(SshControlMasterKeyMaterialFactory.class.getName() + ".ENABLED");
+
+    /** What may be matched in the wrapper without quoting issues; other hosts are not multiplexed. */
+    private static final Pattern HOSTNAME = Pattern.compile("[a-zA-Z0-9._:-]+");
+
+    private final @NonNull String host;
+    private final @CheckForNull String ssh;
+
+    /**
+     * @param host an {@code ssh://} daemon address, as in {@code DOCKER_HOST}
+     */
+    public SshControlMasterKeyMaterialFactory(@NonNull String host) {
+        this(host, null);
+    }
+
+    /**
+     * @param ssh the {@code ssh} executable to wrap, or null to look it up on the {@code PATH} of the agent
+     */
+    SshControlMasterKeyMaterialFactory(@NonNull String host, @CheckForNull String ssh) {
+        this.host = host;
+        this.ssh = ssh;
+    }
+
+    /**
+     * @return whether docker(1) connects to {@code host} through SSH, so that this factory is useful
+     */
+    public static boolean applies(@CheckForNull String host) {
+        return ENABLED && host != null && host.startsWith("ssh://");
+    }
+
+    @Override
+    public KeyMaterial2 materialize2() throws IOException, InterruptedException {
+        String hostname;
+        try {
+            hostname = new URI(host).getHost();
+        } catch (URISyntaxException x) {
+            hostname = null;
+        }
+        if (hostname == null || !HOSTNAME.matcher(hostname).matches()) {
+            LOGGER.log(Level.FINE, "Not reusing SSH connections to {0}", host);
+            return KeyMaterial2.NULL;
+        }
+        FilePath dir = createSecretsDirectory();
+        String[] setUp;
+        try {
+            setUp = dir.act(new SetUp(ssh, hostname));
+        } catch (IOException | InterruptedException | RuntimeException x) {
+            try {
+                dir.deleteRecursive();
+            } catch (Exception x2) {
+                x.addSuppressed(x2);
+            }
+            throw x;
+        }
+        if (setUp == null) {
+            dir.deleteRecursive();
+            return KeyMaterial2.NULL;
+        }
+        return new ControlMasterKeyMaterial2(dir.getRemote(), host, setUp[0], setUp[1]);
+    }
+
+    static String binDirectory(String dir) {
+        return dir + "/bin";
+    }
+
+    /**
+     * Writes the wrapper into the directory this is invoked on, and creates the directory for control sockets,
+     * which is deleted along with the former.
+     * Returns the {@code ssh} being wrapped and the control directory, or null if there is no {@code ssh} to wrap.
+     */
+    private static final class SetUp extends MasterToSlaveFileCallable<String[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final @CheckForNull String ssh;
+        private final @NonNull String hostname;
+
+        SetUp(@CheckForNull String ssh, @NonNull String hostname) {
+            this.ssh = ssh;
+            this.hostname = hostname;
+        }
+
+        @Override
+        public String[] invoke(File dir, VirtualChannel channel) throws IOException, InterruptedException {
+            if (File.pathSeparatorChar != ':') {
+                return null;
+            }
+            String realSsh = ssh != null ? ssh : onPath("ssh");
+            if (realSsh == null) {
+                return null;
+            }
+            File control = Files.createTempDirectory("docker-ssh").toFile();
+            KeyMaterialReaper.register(dir, () -> Util.deleteRecursive(control));
+            File bin = new File(binDirectory(dir.getAbsolutePath()));
+            bin.mkdirs();
+            File wrapper = new File(bin, "ssh");
+            // docker(1) passes the host either alone or as user@host, and runs docker system dial-stdio there
+            Files.write(wrapper.toPath(), ("#!/bin/sh\n" +
+                    "# Reuses one SSH connection for the docker invocations of the build; any other ssh goes through as is\n" +
+                    "case \" $* \" in\n" +
+                    "  *' " + hostname + " '*' dial-stdio '*|*'@" + hostname + " '*' dial-stdio '*)\n" +
+                    "    exec '" + realSsh + "' -o ControlMaster=auto -o 'ControlPath=" + control.getAbsolutePath() + "/%C' -o ControlPersist=600 \"$@\"\n" +
+                    "    ;;\n" +
+                    "esac\n" +
+                    "exec '" + realSsh + "' \"$@\"\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            if (!wrapper.setExecutable(true, true)) {
+                throw new IOException("Could not make " + wrapper + " executable");
+            }
+            return new String[] {realSsh, control.getAbsolutePath()};
+        }
+
+        @CheckForNull
+        private static String onPath(String command) {
+            String path = System.getenv("PATH");
+            if (path == null) {
+                return null;
+            }
+            for (String dir : path.split(File.pathSeparator)) {
+                File candidate = new File(dir, command);
+                if (candidate.canExecute()) {
+                    return candidate.getAbsolutePath();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Tells the master connections, if any were ever started, to exit.
+     */
+    private static final class Exit extends MasterToSlaveCallable<Void, IOException> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String control;
+        private final String host;
+        private final String ssh;
+
+        Exit(String control, String host, String ssh) {
+            this.control = control;
+            this.host = host;
+            this.ssh = ssh;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            File[] sockets = new File(control).listFiles();
+            if (sockets == null) {
+                return null;
+            }
+            for (File socket : sockets) {
+                exit(socket);
+            }
+            return null;
+        }
+
+        private void exit(File socket) throws IOException {
+            Process process = new ProcessBuilder(ssh, "-o", "ControlPath=" + socket.getAbsolutePath(), "-O", "exit", host)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            try {
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                    LOGGER.log(Level.FINE, "Timed out stopping SSH master connection to {0}", host);
+                }
+            } catch (InterruptedException x) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class ControlMasterKeyMaterial2 extends KeyMaterial2 {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String dir;
+        private final String host;
+        private final String ssh;
+        private final String control;
+
+        ControlMasterKeyMaterial2(String dir, String host, String ssh, String control) {
+            this.dir = dir;
+            this.host = host;
+            this.ssh = ssh;
+            this.control = control;
+        }
+
+        @Override
+        protected EnvVars computeEnv() {
+            return new EnvVars("PATH+DOCKER_SSH", binDirectory(dir));
+        }
+
+        @Override
+        public void close(VirtualChannel channel) throws IOException, InterruptedException {
+            try {
+                channel.call(new Exit(control, host, ssh));
+            } finally {
+                KeyMaterialReaper.discard(channel, Collections.singletonList(dir));
+            }
+        }
+    }
+}
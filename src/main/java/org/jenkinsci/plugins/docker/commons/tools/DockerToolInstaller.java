@@ -44,8 +44,8 @@ import java.net.URLConnection;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import edu.umd.cs.findbugs.annotations.NonNull;
-import jenkins.security.MasterToSlaveCallable;
 import org.jenkinsci.Symbol;
+import org.jenkinsci.plugins.docker.commons.impl.AgentFacts;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 /**
@@ -72,7 +72,8 @@ public class DockerToolInstaller extends ToolInstaller {
         if (nodeChannel == null) {
             throw new IllegalStateException("Node is offline");
         }
-        String os = nodeChannel.call(new FindArch());
+        AgentFacts facts = AgentFacts.of(nodeChannel);
+        String os = FindArch.of(facts.getOsName(), facts.getOsArch());
 
         final URL url = getDockerImageUrl(os, version);
         FilePath install = preferredLocation(tool, node);
@@ -182,7 +183,7 @@ public class DockerToolInstaller extends ToolInstaller {
         }
     }
 
-    private static class FindArch extends MasterToSlaveCallable<String,IOException> {
+    private static class FindArch {
 
         private static String asGetDockerArchName(String os) {
             if (os.startsWith("linux")) return "Linux/";
@@ -191,10 +192,9 @@ public class DockerToolInstaller extends ToolInstaller {
             throw new IllegalArgumentException("Failed to recognize OS architecture " + os );
         }
 
-        @Override
-        public String call() throws IOException {
-            String os = System.getProperty("os.name").toLowerCase();
-            String arch = System.getProperty("os.arch").contains("64") ? "x86_64" : "i386";
+        static String of(String osName, String osArch) throws IOException {
+            String os = osName.toLowerCase();
+            String arch = osArch.contains("64") ? "x86_64" : "i386";
             if (os.contains("linux")) return "linux/" + arch;
             if (os.contains("windows")) return "win/" + arch;
             if (os.contains("mac")) return "mac/" + arch;
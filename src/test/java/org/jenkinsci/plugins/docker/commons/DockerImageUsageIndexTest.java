@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.model.Job;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+import org.jvnet.hudson.test.RestartableJenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+
+public class DockerImageUsageIndexTest {
+
+    @Rule
+    public RestartableJenkinsRule story = new RestartableJenkinsRule();
+
+    @Test
+    public void indexed() {
+        story.then(r -> {
+            FreeStyleProject a = r.createFreeStyleProject("a");
+            a.setDescription("alpine acme/x");
+            FreeStyleProject b = r.createFreeStyleProject("b");
+            b.setDescription("docker.io/library/alpine:latest");
+            r.createFreeStyleProject("none");
+            DockerImageUsageIndex.awaitUpdates();
+            assertThat(DockerImageUsageIndex.getJobsUsing("alpine:latest"), contains("a", "b"));
+            assertThat(DockerImageUsageIndex.getJobsUsing("acme/x"), contains("a"));
+            assertThat(DockerImageUsageIndex.getImagesUsedBy("a"), contains("docker.io/acme/x:latest", "docker.io/library/alpine:latest"));
+
+            a.setDescription("acme/x");
+            b.renameTo("c");
+            DockerImageUsageIndex.awaitUpdates();
+            assertThat(DockerImageUsageIndex.getJobsUsing("alpine"), contains("c"));
+
+            JSONObject response = r.getJSON("docker-images/jobs?image=index.docker.io/library/alpine").getJSONObject();
+            assertThat(response.getString("status"), is("ok"));
+            JSONObject data = response.getJSONObject("data");
+            assertThat(data.getString("image"), is("docker.io/library/alpine:latest"));
+            assertThat(data.getJSONArray("jobs").size(), is(1));
+            assertThat(data.getJSONArray("jobs").getJSONObject(0).getString("name"), is("c"));
+
+            DockerImageUsageIndex.save();
+            Described.calls.set(0);
+        });
+        story.then(r -> {
+            DockerImageUsageIndex.awaitUpdates();
+            // nothing is looked at again on startup
+            assertThat(Described.calls.get(), is(0));
+            assertThat(DockerImageUsageIndex.getJobsUsing("acme/x"), contains("a"));
+            assertThat(DockerImageUsageIndex.getJobsUsing("alpine"), contains("c"));
+
+            r.jenkins.getItemByFullName("c", Job.class).delete();
+            assertThat(DockerImageUsageIndex.getJobsUsing("alpine"), is(empty()));
+        });
+    }
+
+    @Test
+    public void readableJobsOnly() {
+        story.then(r -> {
+            r.jenkins.setSecurityRealm(r.createDummySecurityRealm());
+            r.createFreeStyleProject("visible").setDescription("alpine");
+            r.createFreeStyleProject("hidden").setDescription("alpine");
+            r.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                    .grant(Jenkins.READ).everywhere().to("alice")
+                    .grant(Item.READ).onItems(r.jenkins.getItemByFullName("visible", Job.class)).to("alice")
+                    .grant(Item.DISCOVER).onItems(r.jenkins.getItemByFullName("hidden", Job.class)).to("alice"));
+            DockerImageUsageIndex.awaitUpdates();
+            assertThat(DockerImageUsageIndex.getJobsUsing("alpine"), contains("hidden", "visible"));
+
+            JSONObject response = r.createWebClient().login("alice").getJSON("docker-images/jobs?image=alpine").getJSONObject();
+            assertThat(response.getString("status"), is("ok"));
+            JSONArray jobs = response.getJSONObject("data").getJSONArray("jobs");
+            assertThat(jobs.size(), is(1));
+            assertThat(jobs.getJSONObject(0).getString("name"), is("visible"));
+        });
+    }
+
+    @TestExtension("readableJobsOnly")
+    public static final class DescribedToo extends DockerImageExtractor {
+        @NonNull
+        @Override
+        public Collection<String> getDockerImagesUsedByJob(@NonNull Job<?, ?> job) {
+            String description = job.getDescription();
+            return description == null || description.isEmpty() ? Collections.emptyList() : Arrays.asList(description.split(" "));
+        }
+    }
+
+    @TestExtension("indexed")
+    public static final class Described extends DockerImageExtractor {
+        static final AtomicInteger calls = new AtomicInteger();
+
+        @NonNull
+        @Override
+        public Collection<String> getDockerImagesUsedByJob(@NonNull Job<?, ?> job) {
+            calls.incrementAndGet();
+            String description = job.getDescription();
+            return description == null || description.isEmpty() ? Collections.emptyList() : Arrays.asList(description.split(" "));
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.docker.commons.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.jenkinsci.plugins.docker.commons.credentials.ImageNameValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import hudson.util.FormValidation;
+import jenkins.benchmark.jmh.JmhBenchmark;
+
+/**
+ * Compares {@link ImageNameValidator} with the regular expressions it used to run, on valid names.
+ */
+@JmhBenchmark
+public class ImageNameValidatorBenchmark {
+
+    private static final Pattern NAME = Pattern.compile("^[a-zA-Z0-9]+((\\.|_|__|-+)[a-zA-Z0-9]+)*$");
+    private static final Pattern TAG = Pattern.compile("^:[a-zA-Z0-9_]([a-zA-Z0-9_.-]){0,127}");
+    private static final Pattern DIGEST_SHA256 = Pattern.compile("^@sha256:[a-z0-9]{64}$");
+
+    @State(Scope.Benchmark)
+    public static class Names {
+        public final List<String> names = Arrays.asList(
+                "busybox",
+                "jenkinsci/workflow-demo:latest",
+                "registry.example.com:5000/team/app:1.0.3",
+                "workflow-demo:latest@sha256:56930391cf0e1be83108422bbef43001650cfb75f64b3429928f0c5986fdb750");
+    }
+
+    @Benchmark
+    public int patterns(Names names) {
+        int ok = 0;
+        for (String name : names.names) {
+            String[] args = ImageNameValidator.splitUserAndRepo(name);
+            if (NAME.matcher(args[1]).matches()
+                    && (args[2] == null || TAG.matcher(args[2]).matches())
+                    && (args[3] == null || DIGEST_SHA256.matcher(args[3]).matches())) {
+                ok++;
+            }
+        }
+        return ok;
+    }
+
+    @Benchmark
+    public int stateMachines(Names names) {
+        int ok = 0;
+        for (String name : names.names) {
+            if (ImageNameValidator.validateUserAndRepo(name).kind == FormValidation.Kind.OK) {
+                ok++;
+            }
+        }
+        return ok;
+    }
+
+    @Benchmark
+    public int validateAll(Names names) {
+        return ImageNameValidator.validateAll(names.names).size();
+    }
+}
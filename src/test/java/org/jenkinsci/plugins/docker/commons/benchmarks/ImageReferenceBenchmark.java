@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.docker.commons.benchmarks;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jenkinsci.plugins.docker.commons.credentials.DockerRegistryEndpoint;
+import org.jenkinsci.plugins.docker.commons.credentials.ImageNameValidator;
+import org.jenkinsci.plugins.docker.commons.credentials.ImageReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import jenkins.benchmark.jmh.JmhBenchmark;
+
+/**
+ * Compares {@link ImageReference} with the regular expression {@link DockerRegistryEndpoint#fromImageName} used to
+ * run, on ordinary names and on input crafted to make that expression backtrack.
+ */
+@JmhBenchmark
+public class ImageReferenceBenchmark {
+
+    private static final Pattern LEGACY_PATTERN = Pattern.compile("^" +
+            "(?:([a-zA-Z0-9]+(?:(?:[-.][a-zA-Z0-9]+)+)?(?::([0-9]+))?)/)?" +
+            "([a-z0-9-_.]+)(?:/([a-z0-9-_.]+))*" +
+            "(:[a-zA-Z0-9-_.]+)?" +
+            "(@[A-Za-z][A-Za-z0-9]*(?:[-_+.][A-Za-z][A-Za-z0-9]*)*[:][A-Za-z0-9]*)?$");
+
+    @State(Scope.Benchmark)
+    public static class Names {
+
+        @Param({"short", "qualified", "adversarial"})
+        public String kind;
+
+        public String name;
+
+        @Setup
+        public void setUp() {
+            switch (kind) {
+                case "short":
+                    name = "busybox:1.36";
+                    break;
+                case "qualified":
+                    name = "registry.example.com:5000/team/project/app:1.0.3@sha256:56930391cf0e1be83108422bbef43001650cfb75f64b3429928f0c5986fdb750";
+                    break;
+                default:
+                    // a long host name, then a character nothing accepts, makes the expression retry every split
+                    StringBuilder b = new StringBuilder();
+                    for (int i = 0; i < 200; i++) {
+                        b.append("a-a.");
+                    }
+                    name = b.append("a/!").toString();
+            }
+        }
+    }
+
+    @Benchmark
+    public Object legacyPattern(Names names) {
+        Matcher matcher = LEGACY_PATTERN.matcher(names.name);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    @Benchmark
+    public Object parser(Names names) {
+        ImageReference reference = ImageReference.tryParse(names.name);
+        return reference != null ? reference.getRegistry() : null;
+    }
+
+    @Benchmark
+    public Object splitUserAndRepo(Names names) {
+        return ImageNameValidator.splitUserAndRepo(names.name);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialContext;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialFactory;
+import org.jenkinsci.plugins.docker.commons.impl.ServerHostKeyMaterialFactory;
+import org.jenkinsci.plugins.docker.commons.impl.ServerKeyMaterialFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import hudson.FilePath;
+import jenkins.benchmark.jmh.JmhBenchmark;
+
+/**
+ * Measures what a Pipeline checkpoint costs for key material of ten nested {@code withServer} blocks.
+ */
+@JmhBenchmark
+public class KeyMaterialSerializationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Material {
+
+        private FilePath baseDir;
+
+        public KeyMaterial2 material;
+
+        @Setup
+        public void setUp() throws Exception {
+            baseDir = new FilePath(Files.createTempDirectory("key-material").toFile());
+            KeyMaterialFactory factory = new ServerHostKeyMaterialFactory("tcp://docker.example.com:2376");
+            for (int depth = 0; depth < 10; depth++) {
+                factory = factory.plus(new ServerKeyMaterialFactory("key" + depth, "cert" + depth, "ca" + depth));
+            }
+            material = factory.contextualize(new KeyMaterialContext(baseDir)).materialize2();
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            material.close(FilePath.localChannel);
+            baseDir.deleteRecursive();
+        }
+    }
+
+    @Benchmark
+    public int serialize(Material material) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(material.material);
+        }
+        return bytes.size();
+    }
+}
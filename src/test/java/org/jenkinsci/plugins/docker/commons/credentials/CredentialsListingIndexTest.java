@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import hudson.model.FreeStyleProject;
+import hudson.model.User;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.ListBoxModel;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class CredentialsListingIndexTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void listingCached() throws Exception {
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        FreeStyleProject p = j.createFreeStyleProject();
+        AtomicInteger lookups = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            CredentialsListingIndex.entries(p, "test", () -> {
+                lookups.incrementAndGet();
+                return Collections.emptyList();
+            });
+        }
+        assertThat(lookups.get(), is(1));
+        // per item
+        CredentialsListingIndex.entries(null, "test", () -> {
+            lookups.incrementAndGet();
+            return Collections.emptyList();
+        });
+        assertThat(lookups.get(), is(2));
+        // and per user, as their own credentials are listed too
+        try (ACLContext as = ACL.as2(User.getById("alice", true).impersonate2())) {
+            CredentialsListingIndex.entries(p, "test", () -> {
+                lookups.incrementAndGet();
+                return Collections.emptyList();
+            });
+        }
+        assertThat(lookups.get(), is(3));
+        CredentialsListingIndex.invalidateAll();
+        CredentialsListingIndex.entries(p, "test", () -> {
+            lookups.incrementAndGet();
+            return Collections.emptyList();
+        });
+        assertThat(lookups.get(), is(4));
+    }
+
+    @Test
+    public void registryCredentials() throws Exception {
+        CredentialsStore store = CredentialsProvider.lookupStores(j.jenkins).iterator().next();
+        store.addCredentials(Domain.global(), new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "hub", "Docker Hub", "user", "password"));
+        store.addCredentials(Domain.global(), new DockerServerCredentials(CredentialsScope.GLOBAL, "daemon", "Docker daemon", (String) null, null, null));
+        DockerRegistryEndpoint.DescriptorImpl descriptor = j.jenkins.getDescriptorByType(DockerRegistryEndpoint.DescriptorImpl.class);
+        assertThat(values(descriptor.doFillCredentialsIdItems(null)), contains("", "hub"));
+
+        // saving the store drops the listing
+        store.addCredentials(Domain.global(), new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "quay", "Quay", "user", "password"));
+        assertThat(values(descriptor.doFillCredentialsIdItems(null)), contains("", "hub", "quay"));
+        assertThat(values(j.jenkins.getDescriptorByType(DockerServerEndpoint.DescriptorImpl.class).doFillCredentialsIdItems(null, "tcp://docker.example.com:2376")),
+                contains("", "daemon"));
+    }
+
+    @Test
+    public void search() throws Exception {
+        CredentialsStore store = CredentialsProvider.lookupStores(j.jenkins).iterator().next();
+        for (int i = 0; i < 30; i++) {
+            store.addCredentials(Domain.global(), new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "registry-" + i, null, "user", "password"));
+        }
+        JSONObject data = search("descriptorByName/" + DockerRegistryEndpoint.class.getName() + "/searchCredentials?q=REGISTRY-2&limit=5");
+        assertThat(data.getInt("total"), is(11));
+        assertThat(ids(data.getJSONArray("credentials")), contains("registry-2", "registry-20", "registry-21", "registry-22", "registry-23"));
+        data = search("descriptorByName/" + DockerRegistryEndpoint.class.getName() + "/searchCredentials?q=registry-2&offset=10");
+        assertThat(ids(data.getJSONArray("credentials")), contains("registry-29"));
+    }
+
+    private JSONObject search(String path) throws Exception {
+        JSONObject response = j.getJSON(path).getJSONObject();
+        assertThat(response.getString("status"), is("ok"));
+        return response.getJSONObject("data");
+    }
+
+    private static List<String> values(ListBoxModel model) {
+        List<String> values = new ArrayList<>();
+        for (ListBoxModel.Option option : model) {
+            values.add(option.value);
+        }
+        return values;
+    }
+
+    private static List<String> ids(JSONArray credentials) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < credentials.size(); i++) {
+            ids.add(credentials.getJSONObject(i).getString("id"));
+        }
+        return ids;
+    }
+
+}
@@ -23,24 +23,36 @@
  */
 package org.jenkinsci.plugins.docker.commons.credentials;
 
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.CredentialsStore;
 import com.cloudbees.plugins.credentials.common.IdCredentials;
 import com.cloudbees.plugins.credentials.domains.Domain;
+import com.cloudbees.plugins.credentials.impl.BaseStandardCredentials;
 import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.model.Computer;
+import hudson.model.Descriptor;
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 import hudson.model.Item;
 import hudson.model.User;
 import hudson.security.ACL;
 import hudson.security.ACLContext;
+import jenkins.authentication.tokens.api.AuthenticationTokenSource;
 import jenkins.model.Jenkins;
 import jenkins.security.QueueItemAuthenticatorConfiguration;
 import org.junit.Assert;
@@ -50,6 +62,7 @@ import org.jvnet.hudson.test.Issue;
 import org.jvnet.hudson.test.JenkinsRule;
 import org.jvnet.hudson.test.MockAuthorizationStrategy;
 import org.jvnet.hudson.test.MockQueueItemAuthenticator;
+import org.jvnet.hudson.test.TestExtension;
 import org.jvnet.hudson.test.WithoutJenkins;
 
 /**
@@ -101,6 +114,25 @@ public class DockerRegistryEndpointTest {
         assertEquals("private-repo:5000/test-image:dev", new DockerRegistryEndpoint("http://private-repo:5000/", null).imageName("test-image:dev"));
     }
 
+    @Test
+    @WithoutJenkins
+    public void resolvedOnce() throws Exception {
+        DockerRegistryEndpoint endpoint = new DockerRegistryEndpoint("https://docker.acme.com:8080/", null);
+        assertSame(endpoint.getEffectiveUrl(), endpoint.getEffectiveUrl());
+        assertEquals("docker.acme.com:8080/acme/test", endpoint.imageName("acme/test"));
+        assertEquals("docker.acme.com:8080/acme/test", endpoint.imageName("docker.acme.com:8080/acme/test"));
+        assertEquals(new DockerRegistryEndpoint("https://docker.acme.com:8080/", null), endpoint);
+        assertEquals(new DockerRegistryEndpoint("https://docker.acme.com:8080/", null).hashCode(), endpoint.hashCode());
+        assertNotEquals(new DockerRegistryEndpoint("https://docker.acme.com:8080/", "creds"), endpoint);
+
+        // the resolved form is not persisted, and computed again after loading
+        String xml = Jenkins.XSTREAM2.toXML(endpoint);
+        assertFalse(xml, xml.contains("resolved"));
+        DockerRegistryEndpoint loaded = (DockerRegistryEndpoint) Jenkins.XSTREAM2.fromXML(xml);
+        assertEquals(endpoint, loaded);
+        assertEquals("docker.acme.com:8080/acme/test", loaded.imageName("acme/test"));
+    }
+
     @Issue("JENKINS-39181")
     @Test(expected = IllegalArgumentException.class)
     @WithoutJenkins
@@ -158,6 +190,88 @@ public class DockerRegistryEndpointTest {
         }
     }
 
+    @Test
+    public void testGetTokenForRunIsCached() throws Exception {
+        CredentialsStore store = CredentialsProvider.lookupStores(j.jenkins).iterator().next();
+        store.addCredentials(Domain.global(), new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL,
+                "cached-creds", null, "user", "password"));
+        FreeStyleBuild r = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        DockerRegistryEndpoint endpoint = new DockerRegistryEndpoint("https://docker.acme.com/", "cached-creds");
+
+        long hits = CredentialsResolutionCache.getHits();
+        long misses = CredentialsResolutionCache.getMisses();
+        assertEquals("user", endpoint.getToken(r).getEmail());
+        assertEquals("user", endpoint.getToken(r).getEmail());
+        assertEquals(hits + 1, CredentialsResolutionCache.getHits());
+        assertEquals(misses + 1, CredentialsResolutionCache.getMisses());
+
+        // saving the store invalidates the cache
+        store.updateCredentials(Domain.global(), store.getCredentials(Domain.global()).get(0),
+                new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "cached-creds", null, "other", "password"));
+        assertEquals("other", endpoint.getToken(r).getEmail());
+        assertEquals(misses + 2, CredentialsResolutionCache.getMisses());
+    }
+
+    @Test
+    public void testGetTokenForRunRefreshedAhead() throws Exception {
+        long minValidity = RegistryTokenCache.MIN_VALIDITY_SECONDS;
+        RegistryTokenCache.MIN_VALIDITY_SECONDS = 0;
+        ExpiringTokenSource.MINTED_ON.clear();
+        try {
+            CredentialsProvider.lookupStores(j.jenkins).iterator().next().addCredentials(Domain.global(),
+                    new ExpiringCredentials("expiring-creds"));
+            FreeStyleBuild r = j.buildAndAssertSuccess(j.createFreeStyleProject());
+            DockerRegistryEndpoint endpoint = new DockerRegistryEndpoint("https://docker.acme.com/", "expiring-creds");
+
+            // the run keeps using the token across two refresh windows
+            for (int i = 0; i < 2; i++) {
+                String current = endpoint.getToken(r).getToken();
+                await().atMost(Duration.ofSeconds(5)).until(() -> endpoint.getToken(r).getToken(), not(current));
+            }
+            // only the first token was minted while the run waited, the others in the background
+            List<Thread> mintedOn = new ArrayList<>(ExpiringTokenSource.MINTED_ON);
+            assertSame(Thread.currentThread(), mintedOn.get(0));
+            for (Thread thread : mintedOn.subList(1, mintedOn.size())) {
+                assertNotSame(Thread.currentThread(), thread);
+            }
+        } finally {
+            RegistryTokenCache.MIN_VALIDITY_SECONDS = minValidity;
+            RegistryTokenCache.invalidateAll();
+        }
+    }
+
+    public static class ExpiringCredentials extends UsernamePasswordCredentialsImpl {
+        public ExpiringCredentials(String id) throws Descriptor.FormException {
+            super(CredentialsScope.GLOBAL, id, null, "user", "password");
+        }
+
+        @TestExtension("testGetTokenForRunRefreshedAhead")
+        public static class DescriptorImpl extends BaseStandardCredentials.BaseStandardCredentialsDescriptor {
+            @NonNull
+            @Override
+            public String getDisplayName() {
+                return "Expiring";
+            }
+        }
+    }
+
+    /** Mints tokens expiring after two seconds, remembering on which thread. */
+    @TestExtension("testGetTokenForRunRefreshedAhead")
+    public static class ExpiringTokenSource extends AuthenticationTokenSource<DockerRegistryToken, ExpiringCredentials> {
+        static final List<Thread> MINTED_ON = new CopyOnWriteArrayList<>();
+
+        public ExpiringTokenSource() {
+            super(DockerRegistryToken.class, ExpiringCredentials.class);
+        }
+
+        @NonNull
+        @Override
+        public DockerRegistryToken convert(@NonNull ExpiringCredentials c) {
+            MINTED_ON.add(Thread.currentThread());
+            return new DockerRegistryToken(c.getUsername(), "token" + MINTED_ON.size(), Instant.now().plusSeconds(2), null);
+        }
+    }
+
     private void assertRegistry(String url, String repo) throws IOException {
         assertEquals(url, DockerRegistryEndpoint.fromImageName(repo, null).getEffectiveUrl().toString());
     }
@@ -31,6 +31,8 @@ import com.cloudbees.plugins.credentials.domains.Domain;
 import com.cloudbees.plugins.credentials.domains.DomainSpecification;
 import hudson.FilePath;
 import hudson.Functions;
+import hudson.Util;
+import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 import hudson.remoting.VirtualChannel;
 import hudson.slaves.DumbSlave;
@@ -39,13 +41,20 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.JenkinsRule;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import static org.awaitility.Awaitility.await;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 
 /**
  * @author Stephen Connolly
@@ -90,8 +99,38 @@ public class DockerServerEndpointTest {
         assertThat(path.child("key.pem").exists(), is(false));
         assertThat(path.child("cert.pem").exists(), is(false));
         assertThat(path.child("ca.pem").exists(), is(false));
-        assertThat(dotDocker.list().size(), is(initialSize));
+        // the renamed directory is deleted in the background
+        await().until(() -> dotDocker.list().size(), is(initialSize));
     }
     
+
+    @Test
+    public void contexts() throws Exception {
+        DumbSlave slave = j.createOnlineSlave();
+        VirtualChannel channel = slave.getChannel();
+        FreeStyleBuild build = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        CredentialsStore store = CredentialsProvider.lookupStores(j.getInstance()).iterator().next();
+        Domain domain = new Domain("docker", "A domain for docker credentials",
+                Collections.<DomainSpecification>singletonList(new DockerServerDomainSpecification()));
+        DockerServerCredentials credentials = new DockerServerCredentials(CredentialsScope.GLOBAL, "foo", "desc", Secret.fromString("a"), "b", "c");
+        store.addDomain(domain, credentials);
+        Map<String, DockerServerEndpoint> endpoints = new LinkedHashMap<>();
+        endpoints.put("secure", new DockerServerEndpoint("tcp://secure.example.com:2376", credentials.getId()));
+        endpoints.put("plain", new DockerServerEndpoint("tcp://plain.example.com:2375", null));
+        KeyMaterial2 keyMaterial = DockerServerEndpoint.newContextKeyMaterialFactory(build, channel, endpoints).materialize2();
+        try {
+            assertThat(keyMaterial.env().get("DOCKER_HOST"), nullValue());
+            FilePath contexts = new FilePath(channel, keyMaterial.env().get("DOCKER_CONFIG")).child("contexts");
+            String secure = Util.toHexString(MessageDigest.getInstance("SHA-256").digest("secure".getBytes(StandardCharsets.UTF_8)));
+            String plain = Util.toHexString(MessageDigest.getInstance("SHA-256").digest("plain".getBytes(StandardCharsets.UTF_8)));
+            assertThat(contexts.child("meta/" + secure + "/meta.json").readToString(), containsString("\"Host\":\"tcp://secure.example.com:2376\""));
+            assertThat(contexts.child("meta/" + plain + "/meta.json").readToString(), containsString("\"Host\":\"tcp://plain.example.com:2375\""));
+            assertThat(contexts.child("tls/" + secure + "/docker/key.pem").readToString(), is("a"));
+            assertThat(contexts.child("tls/" + secure + "/docker/ca.pem").readToString(), is("c"));
+            assertThat(contexts.child("tls/" + plain).exists(), is(false));
+        } finally {
+            keyMaterial.close(channel);
+        }
+    }
     
 }
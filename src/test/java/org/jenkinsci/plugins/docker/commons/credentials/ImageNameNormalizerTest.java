@@ -0,0 +1,66 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ImageNameNormalizerTest {
+
+    @After
+    public void clear() {
+        ImageNameNormalizer.clear();
+    }
+
+    @Test
+    public void spellingsOfOneImage() {
+        String canonical = "docker.io/library/ubuntu:latest";
+        for (String spelling : new String[] {"ubuntu", "library/ubuntu", "ubuntu:latest", "docker.io/ubuntu",
+                "docker.io/library/ubuntu:latest", "index.docker.io/library/ubuntu", "Index.Docker.IO/ubuntu:latest"}) {
+            assertThat(spelling, ImageNameNormalizer.normalize(spelling), is(canonical));
+        }
+    }
+
+    @Test
+    public void otherImages() {
+        assertThat(ImageNameNormalizer.normalize("jenkins/jenkins:lts"), is("docker.io/jenkins/jenkins:lts"));
+        assertThat(ImageNameNormalizer.normalize("Registry.Example.com:5000/team/app"), is("registry.example.com:5000/team/app:latest"));
+        assertThat(ImageNameNormalizer.normalize("localhost/app@sha256:abc"), is("localhost/app@sha256:abc"));
+        assertThat(ImageNameNormalizer.normalize("ubuntu:22.04@sha256:abc"), is("docker.io/library/ubuntu:22.04@sha256:abc"));
+        // not an image reference at all
+        assertThat(ImageNameNormalizer.normalize("Not An Image"), is("Not An Image"));
+    }
+
+    @Test
+    public void sharedInstances() {
+        String first = ImageNameNormalizer.normalize("ubuntu");
+        assertThat(ImageNameNormalizer.normalize(new String("library/ubuntu")), sameInstance(first));
+        assertThat(ImageNameNormalizer.normalize(new String("ubuntu")), sameInstance(first));
+    }
+}
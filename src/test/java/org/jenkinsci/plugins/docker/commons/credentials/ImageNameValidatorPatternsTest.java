@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import hudson.util.FormValidation;
+
+/**
+ * Checks that the validation, done without regular expressions, still follows the documented patterns.
+ */
+public class ImageNameValidatorPatternsTest {
+
+    private static final String ALPHABET = "aZ09._-+:=@/ sha256";
+
+    @Test
+    public void sameAsPatterns() {
+        Random random = new Random(42);
+        for (int n = 0; n < 200000; n++) {
+            String s = random(random);
+            assertThat(s, ImageNameValidator.isNameComponent(s, 0, s.length()),
+                    is(ImageNameValidator.VALID_NAME_COMPONENT.matcher(s).matches()));
+            String tag = ':' + s;
+            assertThat(tag, ImageNameValidator.isTag(tag, 0, tag.length()),
+                    is(ImageNameValidator.VALID_TAG.matcher(tag).matches()));
+            String digest = '@' + s;
+            assertThat(digest, ImageNameValidator.isDigest(digest, 0, digest.length()),
+                    is(matchesDigestPatterns(digest)));
+        }
+    }
+
+    @Test
+    public void lengthLimits() {
+        String hex = "56930391cf0e1be83108422bbef43001650cfb75f64b3429928f0c5986fdb750";
+        assertThat(ImageNameValidator.validateDigest("@sha256:" + hex).kind, is(FormValidation.Kind.OK));
+        assertThat(ImageNameValidator.validateDigest("@sha256:" + hex + "0").kind, is(FormValidation.Kind.ERROR));
+        assertThat(ImageNameValidator.validateDigest("@sha256x" + hex).kind, is(FormValidation.Kind.ERROR));
+        assertThat(ImageNameValidator.validateDigest("@sha512:" + hex + hex).kind, is(FormValidation.Kind.OK));
+        char[] tag = new char[128];
+        Arrays.fill(tag, 'a');
+        tag[0] = ':';
+        assertThat(ImageNameValidator.validateUserAndRepo("name" + new String(tag)).kind, is(FormValidation.Kind.OK));
+        assertThat(ImageNameValidator.validateUserAndRepo("name" + new String(tag) + "a").kind, is(FormValidation.Kind.ERROR));
+    }
+
+    @Test
+    public void validateAll() {
+        assertThat(ImageNameValidator.validateAll(Arrays.asList("busybox", "jenkinsci/workflow-demo:latest")),
+                sameInstance(Collections.<String, FormValidation>emptyMap()));
+        Map<String, FormValidation> failures = ImageNameValidator.validateAll(
+                Arrays.asList("name:-tag", "busybox", "_name:tag", "name:-tag"));
+        assertThat(failures.keySet(), contains("name:-tag", "_name:tag"));
+        assertThat(failures.get("_name:tag").kind, is(FormValidation.Kind.ERROR));
+    }
+
+    @Test
+    public void okIsShared() {
+        assertThat(ImageNameValidator.validateUserAndRepo("docker:80/jenkinsci/workflow-demo:latest"), sameInstance(FormValidation.ok()));
+    }
+
+    private static boolean matchesDigestPatterns(String digest) {
+        if (digest.startsWith("@sha256")) {
+            return ImageNameValidator.VALID_DIGEST_SHA256.matcher(digest).matches();
+        } else if (digest.startsWith("@sha512")) {
+            return ImageNameValidator.VALID_DIGEST_SHA512.matcher(digest).matches();
+        } else {
+            return ImageNameValidator.VALID_DIGEST.matcher(digest).matches();
+        }
+    }
+
+    private static String random(Random random) {
+        StringBuilder b = new StringBuilder();
+        for (int i = random.nextInt(12); i > 0; i--) {
+            b.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return b.toString();
+    }
+}
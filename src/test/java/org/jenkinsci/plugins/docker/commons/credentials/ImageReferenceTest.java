@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class ImageReferenceTest {
+
+    /** What {@link DockerRegistryEndpoint#fromImageName} used to match with. */
+    static final Pattern LEGACY_PATTERN = Pattern.compile("^" +
+            "(?:([a-zA-Z0-9]+(?:(?:[-.][a-zA-Z0-9]+)+)?(?::([0-9]+))?)/)?" +
+            "([a-z0-9-_.]+)(?:/([a-z0-9-_.]+))*" +
+            "(:[a-zA-Z0-9-_.]+)?" +
+            "(@[A-Za-z][A-Za-z0-9]*(?:[-_+.][A-Za-z][A-Za-z0-9]*)*[:][A-Za-z0-9]*)?$");
+
+    private static final String[] NAMES = {
+        "busybox", "acme/test", "acme/test:tag", "docker.acme.com/busybox", "docker.acme.com:8080/path/to/busybox:tag",
+        "localhost:8080/path/to/busybox", "LocalHost/busybox", "docker:80/jenkinsci/workflow-demo:latest",
+        "docker.acme.com/busybox@sha256:sha256", "workflow-demo:latest@sha256:56930391cf0e1be83108422bbef43001650cfb75f64b3429928f0c5986fdb750",
+        "a.b-c.d/e_f/g.h:T-1.0_x", "my-registry.local:5000/team/app@sha512:abc",
+        "", "/busybox", "busybox/", "acme//test", "Acme/test", "busybox:", "busybox:tag:tag", "busybox@", "busybox@sha256",
+        "busybox@1sha:abc", "busybox@sha256:ab-c", "host:port/busybox", "-host.com/busybox", "host..com/busybox",
+        "name:tag\necho hello", "name$BUILD_NUMBER:tag", ":tag", "a:b/c",
+    };
+
+    @Test
+    public void components() {
+        ImageReference reference = ImageReference.parse("docker.acme.com:8080/path/to/busybox:1.36@sha256:abc");
+        assertThat(reference.getRegistry(), is("docker.acme.com:8080"));
+        assertThat(reference.getHost(), is("docker.acme.com"));
+        assertThat(reference.getPort(), is(8080));
+        assertThat(reference.getRepository(), is("path/to/busybox"));
+        assertThat(reference.getPath(), contains("path", "to", "busybox"));
+        assertThat(reference.getNamespace(), is("path/to"));
+        assertThat(reference.getName(), is("busybox"));
+        assertThat(reference.getTag(), is("1.36"));
+        assertThat(reference.getDigest(), is("sha256:abc"));
+
+        reference = ImageReference.parse("jenkinsci/workflow-demo");
+        assertThat(reference.getRegistry(), nullValue());
+        assertThat(reference.getHost(), nullValue());
+        assertThat(reference.getPort(), is(-1));
+        assertThat(reference.getNamespace(), is("jenkinsci"));
+        assertThat(reference.getName(), is("workflow-demo"));
+        assertThat(reference.getTag(), nullValue());
+        assertThat(reference.getDigest(), nullValue());
+
+        assertThat(ImageReference.parse("localhost/busybox").getRegistry(), is("localhost"));
+        assertThat(ImageReference.parse("busybox").getNamespace(), nullValue());
+    }
+
+    @Test
+    public void rejects() {
+        assertThrows(IllegalArgumentException.class, () -> ImageReference.parse("busybox:"));
+        assertThrows(IllegalArgumentException.class, () -> ImageReference.parse("docker.acme.com:99999/busybox"));
+        char[] tooLong = new char[ImageReference.MAX_LENGTH + 1];
+        Arrays.fill(tooLong, 'a');
+        assertThat(ImageReference.tryParse(new String(tooLong)), nullValue());
+        assertThat(ImageReference.tryParse(null), nullValue());
+    }
+
+    @Test
+    public void sameAsLegacyPattern() {
+        for (String name : NAMES) {
+            Matcher matcher = LEGACY_PATTERN.matcher(name);
+            ImageReference reference = ImageReference.tryParse(name);
+            if (name.startsWith("Acme/")) {
+                // no longer taken for a registry host, and not a valid path either
+                assertThat(name, reference, nullValue());
+                continue;
+            }
+            assertThat(name, reference != null, is(matcher.matches()));
+            if (reference != null) {
+                String domain = matcher.group(1);
+                boolean host = domain != null && (domain.contains(".") || domain.contains(":") || "localhost".equalsIgnoreCase(domain));
+                assertThat(name, reference.getRegistry(), is(host ? domain : null));
+            }
+        }
+    }
+
+    @Test
+    public void splitUserAndRepoUnchanged() {
+        for (String name : NAMES) {
+            if (ImageReference.tryParse(name) != null) {
+                assertArrayEquals(name, legacySplit(name), ImageNameValidator.splitUserAndRepo(name));
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void linearOnAdversarialInput() {
+        StringBuilder b = new StringBuilder();
+        while (b.length() < ImageReference.MAX_LENGTH - 2) {
+            b.append("a-");
+        }
+        String adversarial = b.append('!').toString();
+        for (int i = 0; i < 10000; i++) {
+            assertThat(ImageReference.tryParse(adversarial), nullValue());
+        }
+    }
+
+    /** What {@link ImageNameValidator#splitUserAndRepo} used to do for every input. */
+    static String[] legacySplit(String userAndRepo) {
+        String[] args = new String[4];
+        int slashIdx = userAndRepo.lastIndexOf('/');
+        int tagIdx = userAndRepo.lastIndexOf(':');
+        int digestIdx = userAndRepo.lastIndexOf('@');
+        if (tagIdx == -1 && slashIdx == -1 && digestIdx == -1) {
+            args[1] = userAndRepo;
+        } else if (tagIdx < slashIdx) {
+            args[0] = userAndRepo.substring(0, slashIdx);
+            args[1] = userAndRepo.substring(slashIdx + 1);
+        } else {
+            if (slashIdx != -1) {
+                args[0] = userAndRepo.substring(0, slashIdx);
+                args[1] = userAndRepo.substring(slashIdx + 1);
+            }
+            if (digestIdx > 0) {
+                int start = slashIdx > 0 ? slashIdx + 1 : 0;
+                String name = userAndRepo.substring(start, digestIdx);
+                args[1] = name;
+                tagIdx = name.lastIndexOf(':');
+                if (tagIdx > 0) {
+                    args[1] = name.substring(0, tagIdx);
+                    args[2] = name.substring(tagIdx);
+                }
+                args[3] = userAndRepo.substring(digestIdx);
+            } else if (tagIdx > 0) {
+                int start = slashIdx > 0 ? slashIdx + 1 : 0;
+                args[1] = userAndRepo.substring(start, tagIdx);
+                args[2] = userAndRepo.substring(tagIdx);
+            }
+        }
+        return args;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import hudson.AbortException;
+import hudson.model.FreeStyleBuild;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.WithoutJenkins;
+
+public class ManifestDigestResolverTest {
+
+    private static final String STABLE = "sha256:1111111111111111111111111111111111111111111111111111111111111111";
+    private static final String NEXT = "sha256:2222222222222222222222222222222222222222222222222222222222222222";
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private StubRegistry registry;
+    private long ttl;
+    private int maxItems;
+
+    @Before
+    public void setUp() throws Exception {
+        ttl = ManifestDigestResolver.TTL_SECONDS;
+        maxItems = ManifestDigestResolver.MAX_ITEMS;
+        registry = new StubRegistry();
+        CredentialsProvider.lookupStores(j.jenkins).iterator().next().addCredentials(Domain.global(),
+                new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "registry-creds", null, "user", "password"));
+    }
+
+    @After
+    public void tearDown() {
+        ManifestDigestResolver.TTL_SECONDS = ttl;
+        ManifestDigestResolver.MAX_ITEMS = maxItems;
+        ManifestDigestResolver.invalidateAll();
+        if (registry != null) {
+            registry.server.stop(0);
+        }
+    }
+
+    @Test
+    public void resolvesAndRevalidates() throws Exception {
+        FreeStyleBuild r = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        DockerRegistryEndpoint endpoint = new DockerRegistryEndpoint(registry.url(), "registry-creds");
+        assertThat(endpoint.resolveDigest(r, "acme/app:stable"), is(STABLE));
+        assertThat(endpoint.resolveDigest(r, registry.authority() + "/acme/app:stable"), is(STABLE));
+        assertThat(registry.tokens.get(), is(1));
+        assertThat(registry.manifests.get(), is(1));
+
+        // past the TTL the registry is asked again, conditionally and with the token obtained before
+        ManifestDigestResolver.TTL_SECONDS = 0;
+        assertThat(endpoint.resolveDigest(r, "acme/app:stable"), is(STABLE));
+        assertThat(registry.notModified.get(), is(1));
+        assertThat(registry.challenges.get(), is(1));
+        assertThat(registry.tokens.get(), is(1));
+
+        registry.digest = NEXT;
+        assertThat(endpoint.resolveDigest(r, "acme/app:stable"), is(NEXT));
+        assertThat(registry.manifests.get(), is(2));
+    }
+
+    @Test
+    public void digestGivenAsIs() throws Exception {
+        DockerRegistryEndpoint endpoint = new DockerRegistryEndpoint(registry.url(), null);
+        assertThat(endpoint.resolveDigest(null, "acme/app:stable@" + NEXT), is(NEXT));
+        assertThat(registry.challenges.get(), is(0));
+    }
+
+    @Test
+    public void failures() throws Exception {
+        FreeStyleBuild r = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        AbortException x = assertThrows(AbortException.class,
+                () -> new DockerRegistryEndpoint(registry.url(), "registry-creds").resolveDigest(r, "acme/other"));
+        assertThat(x.getMessage(), containsString("No such image acme/other:latest"));
+        x = assertThrows(AbortException.class,
+                () -> new DockerRegistryEndpoint(registry.url(), null).resolveDigest(r, "acme/app:stable"));
+        assertThat(x.getMessage(), containsString("refused"));
+    }
+
+    @Test
+    public void cachedPerSecret() throws Exception {
+        URL base = new URL(registry.url());
+        DockerRegistryToken token = new DockerRegistryToken("user", Base64.getEncoder().encodeToString("user:password".getBytes(StandardCharsets.UTF_8)));
+        assertThat(ManifestDigestResolver.resolve(base, "acme/app", "stable", token), is(STABLE));
+        // same user, as could be credentials of the same ID in another folder, but not the same secret
+        DockerRegistryToken other = new DockerRegistryToken("user", Base64.getEncoder().encodeToString("user:guess".getBytes(StandardCharsets.UTF_8)));
+        AbortException x = assertThrows(AbortException.class, () -> ManifestDigestResolver.resolve(base, "acme/app", "stable", other));
+        assertThat(x.getMessage(), containsString("refused"));
+        assertThat(registry.manifests.get(), is(1));
+    }
+
+    @Test
+    public void resolvedAtRegistryRoot() throws Exception {
+        DockerRegistryToken token = new DockerRegistryToken("user", Base64.getEncoder().encodeToString("user:password".getBytes(StandardCharsets.UTF_8)));
+        // as for the /v1/ of Docker Hub, the path of the endpoint is not where the registry API is
+        assertThat(ManifestDigestResolver.resolve(new URL(registry.url() + "v1/"), "acme/app", "stable", token), is(STABLE));
+        assertThat(ManifestDigestResolver.resolve(new URL(registry.url()), "acme/app", "stable", token), is(STABLE));
+        assertThat(registry.manifests.get(), is(1));
+    }
+
+    @Test
+    public void boundedCache() throws Exception {
+        ManifestDigestResolver.MAX_ITEMS = 1;
+        DockerRegistryToken token = new DockerRegistryToken("user", Base64.getEncoder().encodeToString("user:password".getBytes(StandardCharsets.UTF_8)));
+        URL first = new URL(registry.url());
+        URL second = new URL("http://localhost:" + registry.server.getAddress().getPort() + "/");
+        assertThat(ManifestDigestResolver.resolve(first, "acme/app", "stable", token), is(STABLE));
+        assertThat(ManifestDigestResolver.resolve(second, "acme/app", "stable", token), is(STABLE));
+        assertThat(registry.manifests.get(), is(2));
+        // the digest from the first registry made room for the one of the second
+        assertThat(ManifestDigestResolver.resolve(first, "acme/app", "stable", token), is(STABLE));
+        assertThat(registry.manifests.get(), is(3));
+        assertThat(registry.notModified.get(), is(0));
+    }
+
+    @Test
+    @WithoutJenkins
+    public void challengeParameters() {
+        Map<String, String> params = ManifestDigestResolver.parameters(
+                "realm=\"https://auth.docker.io/token\",service=\"registry.docker.io\", scope=\"repository:library/ubuntu:pull\",error=insufficient_scope");
+        assertThat(params, hasEntry("realm", "https://auth.docker.io/token"));
+        assertThat(params, hasEntry("service", "registry.docker.io"));
+        assertThat(params, hasEntry("scope", "repository:library/ubuntu:pull"));
+        assertThat(params, hasEntry("error", "insufficient_scope"));
+    }
+
+    /**
+     * Serves the manifest of {@code acme/app:stable} to holders of a bearer token, which it hands out for
+     * {@code user:password}.
+     */
+    private static final class StubRegistry {
+
+        final HttpServer server;
+        final AtomicInteger challenges = new AtomicInteger();
+        final AtomicInteger tokens = new AtomicInteger();
+        final AtomicInteger manifests = new AtomicInteger();
+        final AtomicInteger notModified = new AtomicInteger();
+        volatile String digest = STABLE;
+
+        StubRegistry() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/token", exchange -> {
+                String basic = "Basic " + Base64.getEncoder().encodeToString("user:password".getBytes(StandardCharsets.UTF_8));
+                if (!basic.equals(exchange.getRequestHeaders().getFirst("Authorization"))
+                        || !exchange.getRequestURI().getQuery().contains("scope=repository:acme/")) {
+                    send(exchange, 401, null);
+                    return;
+                }
+                tokens.incrementAndGet();
+                send(exchange, 200, "{\"token\": \"t1\", \"expires_in\": 300}");
+            });
+            server.createContext("/v2/", exchange -> {
+                if (!"Bearer t1".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                    challenges.incrementAndGet();
+                    exchange.getResponseHeaders().add("WWW-Authenticate", "Bearer realm=\"http://" + authority()
+                            + "/token\",service=\"stub\",scope=\"repository:acme/app:pull\"");
+                    send(exchange, 401, null);
+                    return;
+                }
+                if (!exchange.getRequestURI().getPath().equals("/v2/acme/app/manifests/stable")) {
+                    send(exchange, 404, null);
+                    return;
+                }
+                String etag = '"' + digest + '"';
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModified.incrementAndGet();
+                    send(exchange, 304, null);
+                    return;
+                }
+                manifests.incrementAndGet();
+                exchange.getResponseHeaders().add("Docker-Content-Digest", digest);
+                exchange.getResponseHeaders().add("ETag", etag);
+                send(exchange, 200, null);
+            });
+            server.start();
+        }
+
+        private static void send(HttpExchange exchange, int status, String body) throws IOException {
+            if (body == null || exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(status, -1);
+            } else {
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(bytes);
+                }
+            }
+            exchange.close();
+        }
+
+        String authority() {
+            return "127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        String url() {
+            return "http://" + authority() + "/";
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.docker.commons.credentials;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RegistryTokenCacheTest {
+
+    private final AtomicInteger minted = new AtomicInteger();
+    private long minValidity;
+
+    @Before
+    public void setup() {
+        minValidity = RegistryTokenCache.MIN_VALIDITY_SECONDS;
+        RegistryTokenCache.MIN_VALIDITY_SECONDS = 0;
+    }
+
+    @After
+    public void tearDown() {
+        RegistryTokenCache.MIN_VALIDITY_SECONDS = minValidity;
+        RegistryTokenCache.invalidateAll();
+    }
+
+    @Test
+    public void nonExpiringTokensNotKept() {
+        List<String> key = Arrays.asList("job", "creds", "https://registry.example.com", "SYSTEM", "");
+        Supplier<DockerRegistryToken> minter = minter(null);
+        RegistryTokenCache.get(key, minter, minter);
+        RegistryTokenCache.get(key, minter, minter);
+        assertThat(minted.get(), is(2));
+    }
+
+    @Test
+    public void usedTokensRefreshedAhead() {
+        List<String> key = Arrays.asList("job", "creds", "https://registry.example.com", "SYSTEM", "");
+        Supplier<DockerRegistryToken> minter = minter(Duration.ofSeconds(2));
+        DockerRegistryToken first = RegistryTokenCache.get(key, minter, minter);
+        assertThat(RegistryTokenCache.get(key, minter, minter), sameInstance(first));
+        assertThat(minted.get(), is(1));
+        // refreshed halfway through its lifetime, without anybody waiting on it
+        await().atMost(Duration.ofSeconds(5)).until(minted::get, is(2));
+        assertThat(RegistryTokenCache.get(key, minter, minter).getToken(), is("token2"));
+    }
+
+    @Test
+    public void unusedTokensDropped() throws Exception {
+        List<String> key = Arrays.asList("job", "creds", "https://registry.example.com", "SYSTEM", "");
+        Supplier<DockerRegistryToken> minter = minter(Duration.ofSeconds(1));
+        RegistryTokenCache.get(key, minter, minter);
+        // minting counts as a use, so the token is refreshed once, then dropped as nobody used it since
+        Thread.sleep(2500);
+        assertThat(minted.get(), is(2));
+        assertThat(RegistryTokenCache.get(key, minter, minter).getToken(), is("token3"));
+    }
+
+    @Test
+    public void notSharedAcrossAuthentications() {
+        Supplier<DockerRegistryToken> minter = minter(Duration.ofMinutes(10));
+        DockerRegistryToken alice = RegistryTokenCache.get(Arrays.asList("job", "creds", "https://registry.example.com", "alice", ""), minter, minter);
+        DockerRegistryToken bob = RegistryTokenCache.get(Arrays.asList("job", "creds", "https://registry.example.com", "bob", ""), minter, minter);
+        assertThat(bob, not(sameInstance(alice)));
+        assertThat(minted.get(), is(2));
+    }
+
+    @Test
+    public void refreshedWithRefresher() {
+        List<String> key = Arrays.asList("job", "creds", "https://registry.example.com", "SYSTEM", "");
+        Supplier<DockerRegistryToken> minter = minter(Duration.ofSeconds(2));
+        AtomicInteger refreshed = new AtomicInteger();
+        RegistryTokenCache.get(key, minter, minter);
+        // the refresher of the latest use is the one called
+        RegistryTokenCache.get(key, minter, () -> {
+            refreshed.incrementAndGet();
+            return null;
+        });
+        await().atMost(Duration.ofSeconds(5)).until(refreshed::get, is(1));
+        // the refresher found nothing, so the token is minted again on next use
+        assertThat(RegistryTokenCache.get(key, minter, minter).getToken(), is("token2"));
+        assertThat(minted.get(), is(2));
+    }
+
+    private Supplier<DockerRegistryToken> minter(Duration lifetime) {
+        return () -> new DockerRegistryToken("user", "token" + minted.incrementAndGet(),
+                lifetime != null ? Instant.now().plus(lifetime) : null, null);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.docker.commons.fingerprint;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assume.assumeFalse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Functions;
+
+public class DockerEngineClientTest {
+
+    private static final String CONTAINER_ID = "6ee4b6e4a7c2d0a3b8c5ed2e8b0a7c3a3f9b3a1e4d7c9b2a5e8f1d4c7b0a3e6f";
+    private static final String IMAGE_ID = "sha256:0f3ae9f4c1d5a1a5b5e7f1b0c2e3d4a5b6c7d8e9f0a1b2c3d4e5f6a7b8c9d0e1";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private FakeEngine engine;
+    private EnvVars env;
+
+    @Before
+    public void startEngine() throws IOException {
+        assumeFalse(Functions.isWindows());
+        String socket = tempFolder.getRoot().toPath().resolve("docker.sock").toString();
+        engine = new FakeEngine(socket);
+        env = new EnvVars("DOCKER_HOST", "unix://" + socket);
+    }
+
+    @After
+    public void stopEngine() throws IOException {
+        if (engine != null) {
+            engine.channel.close();
+        }
+    }
+
+    @Test
+    public void inspectContainers() throws Exception {
+        Map<String, ContainerRecord> records = DockerEngineClient.inspectContainers(FilePath.localChannel, env,
+                Arrays.asList("builder", "gone"));
+        assertThat(records.keySet(), contains("builder"));
+        ContainerRecord record = records.get("builder");
+        assertThat(record.getHost(), is("6ee4b6e4a7c2"));
+        assertThat(record.getContainerId(), is(CONTAINER_ID));
+        assertThat(record.getImageId(), is(IMAGE_ID));
+        assertThat(record.getContainerName(), is("/builder"));
+        assertThat(record.getCreated(), is(Instant.parse("2026-10-19T08:15:30.123456789Z").toEpochMilli()));
+        // both lookups went over one connection
+        assertThat(engine.connections.get(), is(1));
+    }
+
+    @Test
+    public void inspectImages() throws Exception {
+        Map<String, String> ids = DockerEngineClient.inspectImages(FilePath.localChannel, env,
+                Arrays.asList("registry.example.com:5000/team/app:1.0", "missing:latest"));
+        assertThat(ids.keySet(), contains("registry.example.com:5000/team/app:1.0"));
+        assertThat(ids.get("registry.example.com:5000/team/app:1.0"), is(IMAGE_ID));
+    }
+
+    @Test
+    public void errorsReported() {
+        IOException x = assertThrows(IOException.class, () -> DockerEngineClient.inspectContainers(FilePath.localChannel, env,
+                Collections.singleton("broken")));
+        assertThat(x.getMessage(), containsString("boom"));
+    }
+
+    /**
+     * Serves a few canned Engine API responses over keep-alive connections, the way dockerd does.
+     */
+    private static final class FakeEngine implements Runnable {
+
+        final ServerSocketChannel channel;
+        final AtomicInteger connections = new AtomicInteger();
+
+        FakeEngine(String socket) throws IOException {
+            channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.bind(UnixDomainSocketAddress.of(socket));
+            Thread thread = new Thread(this, "fake dockerd " + socket);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (channel.isOpen()) {
+                try (SocketChannel connection = channel.accept()) {
+                    connections.incrementAndGet();
+                    serve(connection);
+                } catch (IOException x) {
+                    // closed
+                }
+            }
+        }
+
+        private void serve(SocketChannel connection) throws IOException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(connection), StandardCharsets.US_ASCII));
+            OutputStream out = Channels.newOutputStream(connection);
+            String request;
+            while ((request = in.readLine()) != null) {
+                String header;
+                while ((header = in.readLine()) != null && !header.isEmpty()) {
+                    // ignore
+                }
+                String path = request.split(" ")[1];
+                if (path.equals("/containers/builder/json")) {
+                    // streamed, as dockerd does for larger documents
+                    String body = "{\"Id\":\"" + CONTAINER_ID + "\",\"Created\":\"2026-10-19T08:15:30.123456789Z\"," +
+                            "\"Name\":\"/builder\",\"Image\":\"" + IMAGE_ID + "\",\"Config\":{\"Hostname\":\"6ee4b6e4a7c2\"}}";
+                    int half = body.length() / 2;
+                    out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                            Integer.toHexString(half) + "\r\n" + body.substring(0, half) + "\r\n" +
+                            Integer.toHexString(body.length() - half) + "\r\n" + body.substring(half) + "\r\n" +
+                            "0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                } else if (path.equals("/images/registry.example.com:5000/team/app:1.0/json")) {
+                    respond(out, 200, "{\"Id\":\"" + IMAGE_ID + "\",\"RepoTags\":[\"registry.example.com:5000/team/app:1.0\"]}");
+                } else if (path.equals("/containers/broken/json")) {
+                    respond(out, 500, "{\"message\":\"boom\"}");
+                } else {
+                    respond(out, 404, "{\"message\":\"No such object\"}");
+                }
+                out.flush();
+            }
+        }
+
+        private static void respond(OutputStream out, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            out.write(("HTTP/1.1 " + status + " X\r\nContent-Type: application/json\r\nContent-Length: " + bytes.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(bytes);
+        }
+    }
+}
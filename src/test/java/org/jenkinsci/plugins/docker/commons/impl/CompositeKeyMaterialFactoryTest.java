@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialContext;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+
+public class CompositeKeyMaterialFactoryTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Key materials end up in Pipeline program state for the duration of {@code withServer}/{@code withRegistry},
+     * so their serial form should only hold what {@link KeyMaterial2#close} needs.
+     * See {@code KeyMaterialSerializationBenchmark} for the time a checkpoint of nested blocks takes.
+     */
+    @Test
+    public void serialForm_keepsOnlyHandles() throws Exception {
+        FilePath baseDir = new FilePath(tempFolder.newFolder());
+        KeyMaterialFactory factory = new ServerHostKeyMaterialFactory("tcp://docker.example.com:2376");
+        for (int depth = 0; depth < 10; depth++) {
+            factory = factory.plus(new ServerKeyMaterialFactory("key" + depth, "cert" + depth, "ca" + depth));
+        }
+        KeyMaterial2 material = factory.contextualize(new KeyMaterialContext(baseDir)).materialize2();
+        try {
+            EnvVars env = material.env();
+            byte[] serialized = serialize(material);
+            String content = new String(serialized, StandardCharsets.ISO_8859_1);
+            assertThat(content, not(containsString("DOCKER_TLS_VERIFY")));
+            assertThat(content, not(containsString("DOCKER_CERT_PATH")));
+
+            KeyMaterial2 restored = deserialize(serialized);
+            assertThat(restored.env(), is(env));
+            assertThat(restored.env().get("DOCKER_HOST"), is("tcp://docker.example.com:2376"));
+        } finally {
+            material.close(FilePath.localChannel);
+        }
+    }
+
+    private static byte[] serialize(Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(o);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static KeyMaterial2 deserialize(byte[] serialized) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return (KeyMaterial2) in.readObject();
+        }
+    }
+}
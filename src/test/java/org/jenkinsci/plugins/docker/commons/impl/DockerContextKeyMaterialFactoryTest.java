@@ -0,0 +1,42 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+public class DockerContextKeyMaterialFactoryTest {
+
+    @Test
+    public void contextNames() {
+        new DockerContextKeyMaterialFactory.Context("ci", "tcp://docker.example.com:2376", null, null, null);
+        new DockerContextKeyMaterialFactory.Context("build-1.x+y_z", "tcp://docker.example.com:2376", null, null, null);
+        for (String name : new String[] {"", "a", "default", "-ci", "ci/prod", "ci prod"}) {
+            assertThrows(name, IllegalArgumentException.class,
+                    () -> new DockerContextKeyMaterialFactory.Context(name, "tcp://docker.example.com:2376", null, null, null));
+        }
+    }
+}
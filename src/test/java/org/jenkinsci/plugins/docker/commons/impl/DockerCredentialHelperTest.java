@@ -0,0 +1,192 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.StandardProtocolFamily;
+import java.net.URL;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Functions;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import net.sf.json.JSONObject;
+
+public class DockerCredentialHelperTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void authority() {
+        assertThat(DockerCredentialHelper.authority("https://index.docker.io/v1/"), is("index.docker.io"));
+        assertThat(DockerCredentialHelper.authority("Registry.Example.com:5000"), is("registry.example.com:5000"));
+        assertThat(DockerCredentialHelper.authority("registry.example.com/path\n"), is("registry.example.com"));
+    }
+
+    @Test
+    public void server_answersGetRequests() throws Exception {
+        assumeFalse(Functions.isWindows());
+        String socket = Files.createTempDirectory("docker-credential-jenkins").resolve("s").toString();
+        DockerCredentialHelper.Server.start(socket, Collections.singletonMap("registry.example.com:5000",
+                new String[] {"alice", "s3cr3t", "https://registry.example.com:5000"}));
+        try {
+            String found = get(socket, "registry.example.com:5000");
+            assertThat(found, startsWith("HTTP/1.0 200"));
+            assertThat(found, containsString("\"Username\":\"alice\""));
+            assertThat(found, containsString("\"Secret\":\"s3cr3t\""));
+
+            assertThat(get(socket, "https://other.example.com"), startsWith("HTTP/1.0 404"));
+        } finally {
+            DockerCredentialHelper.Server.stop(socket);
+        }
+        assertThat(new File(socket).exists(), is(false));
+    }
+
+    @Test
+    public void server_rejectsOversizedBodies() throws Exception {
+        assumeFalse(Functions.isWindows());
+        String socket = Files.createTempDirectory("docker-credential-jenkins").resolve("s").toString();
+        DockerCredentialHelper.Server.start(socket, Collections.emptyMap());
+        try {
+            String found = request(socket, "Content-Length: " + (DockerCredentialHelper.Server.MAX_BODY + 1), new byte[0]);
+            assertThat(found, startsWith("HTTP/1.0 413"));
+            assertThat(request(socket, "Content-Length: many", new byte[0]), startsWith("HTTP/1.0 400"));
+            assertThat(request(socket, "Host: localhost", new byte[0]), startsWith("HTTP/1.0 411"));
+        } finally {
+            DockerCredentialHelper.Server.stop(socket);
+        }
+    }
+
+    @Test
+    public void server_stuckClientDoesNotBlockOthers() throws Exception {
+        assumeFalse(Functions.isWindows());
+        long readTimeout = DockerCredentialHelper.Server.READ_TIMEOUT_MILLIS;
+        DockerCredentialHelper.Server.READ_TIMEOUT_MILLIS = 500;
+        String socket = Files.createTempDirectory("docker-credential-jenkins").resolve("s").toString();
+        DockerCredentialHelper.Server.start(socket, Collections.singletonMap("registry.example.com",
+                new String[] {"alice", "s3cr3t", "https://registry.example.com"}));
+        try (SocketChannel stuck = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            stuck.connect(UnixDomainSocketAddress.of(socket));
+            stuck.write(ByteBuffer.wrap("POST /get HTTP/1.1\r\n".getBytes(StandardCharsets.US_ASCII)));
+
+            assertThat(get(socket, "registry.example.com"), startsWith("HTTP/1.0 200"));
+            // never finishing its request, the stuck client is hung up on
+            assertThat(Channels.newInputStream(stuck).read(), is(-1));
+        } finally {
+            DockerCredentialHelper.Server.READ_TIMEOUT_MILLIS = readTimeout;
+            DockerCredentialHelper.Server.stop(socket);
+        }
+    }
+
+    /**
+     * Runs a stub docker client which, like docker(1), looks the registry up in the {@code credHelpers} of
+     * {@code $DOCKER_CONFIG/config.json} and asks the helper found on the {@code PATH}.
+     */
+    @Test
+    public void registryKeyMaterial_servesStubDockerClient() throws Exception {
+        assumeFalse(Functions.isWindows());
+        assumeTrue(new File("/usr/bin/curl").canExecute() || new File("/bin/curl").canExecute());
+        File docker = tmp.newFile("docker");
+        FileUtils.writeStringToFile(docker, "#!/bin/sh\n" +
+                "helper=$(sed -n 's/.*\"'\"$1\"'\":\"\\([^\"]*\\)\".*/\\1/p' \"$DOCKER_CONFIG/config.json\")\n" +
+                "[ -n \"$helper\" ] || exit 2\n" +
+                "printf '%s' \"$1\" | \"docker-credential-$helper\" get\n", StandardCharsets.UTF_8);
+        assertThat(docker.setExecutable(true), is(true));
+
+        Launcher launcher = new Launcher.LocalLauncher(TaskListener.NULL);
+        EnvVars env = new EnvVars(DockerCredentialHelper.DOCKER_REGISTRY_CREDENTIAL_HELPER, "true");
+        RegistryKeyMaterialFactory factory = new RegistryKeyMaterialFactory("alice", "s3cr3t",
+                new URL("https://registry.example.com:5000"), launcher, env, TaskListener.NULL, docker.getAbsolutePath());
+        factory.contextualize(new KeyMaterialContext(new FilePath(tmp.newFolder())));
+        KeyMaterial2 material = factory.materialize2();
+        String socket;
+        try {
+            String dockerConfig = material.env().get("DOCKER_CONFIG");
+            JSONObject config = JSONObject.fromObject(FileUtils.readFileToString(new File(dockerConfig, "config.json"), StandardCharsets.UTF_8));
+            assertThat(config.getJSONObject("credHelpers").getString("registry.example.com:5000"), is(DockerCredentialHelper.NAME));
+
+            File helper = new File(DockerCredentialHelper.binDirectory(dockerConfig), "docker-credential-" + DockerCredentialHelper.NAME);
+            Matcher m = Pattern.compile("--unix-socket '([^']+)'").matcher(FileUtils.readFileToString(helper, StandardCharsets.UTF_8));
+            assertThat(m.find(), is(true));
+            socket = m.group(1);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int status = launcher.launch().cmds(docker.getAbsolutePath(), "registry.example.com:5000").envs(material.env()).stdout(out).join();
+            assertThat(out.toString(StandardCharsets.UTF_8), status, is(0));
+            assertThat(out.toString(StandardCharsets.UTF_8), containsString("\"Username\":\"alice\""));
+            assertThat(out.toString(StandardCharsets.UTF_8), containsString("\"Secret\":\"s3cr3t\""));
+        } finally {
+            material.close(FilePath.localChannel);
+        }
+        assertThat(new File(socket).exists(), is(false));
+    }
+
+    /**
+     * Does what {@code curl --unix-socket ... --data-binary @-} in the helper script does.
+     */
+    private static String get(String socket, String serverUrl) throws IOException {
+        byte[] body = serverUrl.getBytes(StandardCharsets.UTF_8);
+        return request(socket, "Content-Length: " + body.length, body);
+    }
+
+    private static String request(String socket, String header, byte[] body) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            channel.write(ByteBuffer.wrap(("POST /get HTTP/1.1\r\nHost: localhost\r\n" + header + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII)));
+            channel.write(ByteBuffer.wrap(body));
+            InputStream in = Channels.newInputStream(channel);
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.FreeStyleProject;
+import hudson.model.Job;
+import hudson.model.User;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.docker.commons.DockerImageExtractor;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+
+public class DockerImageExtractorCacheTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private final long timeout = DockerImageExtractorCache.TIMEOUT_MILLIS;
+
+    @After
+    public void tearDown() {
+        DockerImageExtractorCache.TIMEOUT_MILLIS = timeout;
+        DockerImageExtractorCache.invalidateAll();
+    }
+
+    @Test
+    public void cachedUntilChanged() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        assertThat(DockerImageExtractor.getDockerImagesUsedByJobFromAll(p), contains("acme/a", "acme/b"));
+        assertThat(DockerImageExtractor.getDockerImagesUsedByJobFromAll(p), contains("acme/a", "acme/b"));
+        assertThat(CountingA.calls.get(), is(1));
+
+        p.setDescription("changed");
+        assertThat(DockerImageExtractor.getDockerImagesUsedByJobFromAll(p), contains("acme/a", "acme/b"));
+        assertThat(CountingA.calls.get(), is(2));
+
+        j.buildAndAssertSuccess(p);
+        assertThat(DockerImageExtractor.getNormalizedDockerImagesUsedByJobFromAll(p),
+                contains("docker.io/acme/a:latest", "docker.io/acme/b:latest"));
+        assertThat(CountingA.calls.get(), is(3));
+    }
+
+    @TestExtension("cachedUntilChanged")
+    public static final class CountingA extends DockerImageExtractor {
+        static final AtomicInteger calls = new AtomicInteger();
+
+        @NonNull
+        @Override
+        public Collection<String> getDockerImagesUsedByJob(@NonNull Job<?, ?> job) {
+            calls.incrementAndGet();
+            return List.of("acme/a");
+        }
+    }
+
+    @TestExtension("cachedUntilChanged")
+    public static final class CountingB extends DockerImageExtractor {
+        @NonNull
+        @Override
+        public Collection<String> getDockerImagesUsedByJob(@NonNull Job<?, ?> job) {
+            return List.of("acme/b");
+        }
+    }
+
+    @Test
+    public void slowExtractorLeftOut() throws Exception {
+        DockerImageExtractorCache.TIMEOUT_MILLIS = 500;
+        FreeStyleProject p = j.createFreeStyleProject();
+        long start = System.nanoTime();
+        assertThat(DockerImageExtractor.getDockerImagesUsedByJobFromAll(p), contains("acme/fast"));
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), lessThan(10L));
+
+        // incomplete results are not cached
+        assertThat(DockerImageExtractor.getDockerImagesUsedByJobFromAll(p), contains("acme/fast"));
+        assertThat(Fast.calls.get(), is(2));
+    }
+
+    @TestExtension("slowExtractorLeftOut")
+    public static final class Fast extends DockerImageExtractor {
+        static final AtomicInteger calls = new AtomicInteger();
+
+        @NonNull
+        @Override
+        public Collection<String> getDockerImagesUsedByJob(@NonNull Job<?, ?> job) {
+            calls.incrementAndGet();
+            return List.of("acme/fast");
+        }
+    }
+
+    @TestExtension("slowExtractorLeftOut")
+    public static final class Slow extends DockerImageExtractor {
+        @NonNull
+        @Override
+        public Collection<String> getDockerImagesUsedByJob(@NonNull Job<?, ?> job) {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException x) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of("acme/slow");
+        }
+    }
+
+    @Test
+    public void hungExtractorNotAskedAgain() throws Exception {
+        DockerImageExtractorCache.TIMEOUT_MILLIS = 500;
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        FreeStyleProject p = j.createFreeStyleProject();
+        try (ACLContext as = ACL.as2(User.getById("alice", true).impersonate2())) {
+            assertThat(DockerImageExtractor.getDockerImagesUsedByJobFromAll(p), contains("acme/fast"));
+            // asked as SYSTEM whoever calls, as the answer is shared
+            assertThat(Stubborn.authentication, is(ACL.SYSTEM_USERNAME));
+        }
+        assertThat(Stubborn.calls.get(), is(1));
+
+        // still busy with the first call, so not asked, and nothing waits on it
+        long start = System.nanoTime();
+        assertThat(DockerImageExtractor.getDockerImagesUsedByJobFromAll(p), contains("acme/fast"));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lessThan(500L));
+        assertThat(Stubborn.calls.get(), is(1));
+
+        Stubborn.release.countDown();
+        await().until(() -> {
+            DockerImageExtractor.getDockerImagesUsedByJobFromAll(p);
+            return Stubborn.calls.get();
+        }, is(2));
+        assertThat(DockerImageExtractor.getDockerImagesUsedByJobFromAll(p), contains("acme/fast", "acme/stubborn"));
+    }
+
+    @TestExtension("hungExtractorNotAskedAgain")
+    public static final class FastToo extends DockerImageExtractor {
+        @NonNull
+        @Override
+        public Collection<String> getDockerImagesUsedByJob(@NonNull Job<?, ?> job) {
+            return List.of("acme/fast");
+        }
+    }
+
+    /**
+     * Hangs on its first call, ignoring interruption, until released.
+     */
+    @TestExtension("hungExtractorNotAskedAgain")
+    public static final class Stubborn extends DockerImageExtractor {
+        static final AtomicInteger calls = new AtomicInteger();
+        static final CountDownLatch release = new CountDownLatch(1);
+        static volatile String authentication;
+
+        @NonNull
+        @Override
+        public Collection<String> getDockerImagesUsedByJob(@NonNull Job<?, ?> job) {
+            authentication = Jenkins.getAuthentication2().getName();
+            if (calls.incrementAndGet() == 1) {
+                boolean interrupted = false;
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException x) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return List.of("acme/stubborn");
+        }
+    }
+
+}
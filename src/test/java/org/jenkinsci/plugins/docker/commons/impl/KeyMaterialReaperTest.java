@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.FilePath;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialFactory;
+
+public class KeyMaterialReaperTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void discard_renamesThenDeletes() throws Exception {
+        File parent = tempFolder.newFolder();
+        File one = newSecretsDir(parent);
+        File two = newSecretsDir(parent);
+
+        KeyMaterialReaper.discard(FilePath.localChannel, Arrays.asList(one.getAbsolutePath(), two.getAbsolutePath()));
+
+        assertThat(one.exists(), is(false));
+        assertThat(two.exists(), is(false));
+        await().until(parent::list, emptyArray());
+    }
+
+    @Test
+    public void sweep_deletesOnlyStaleSecretsDirectories() throws Exception {
+        File dotDocker = tempFolder.newFolder(".docker");
+        File workspaceRoot = tempFolder.newFolder("workspace");
+        File tmp = new File(workspaceRoot, "job@tmp");
+        long old = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(10);
+
+        File stale = newSecretsDir(dotDocker);
+        stale.setLastModified(old);
+        File fresh = newSecretsDir(dotDocker);
+        File tombstone = new File(dotDocker, KeyMaterialFactory.SECRETS_DIRECTORY_PREFIX + UUID.randomUUID() + KeyMaterialReaper.TOMBSTONE_SUFFIX);
+        tombstone.mkdirs();
+        File unrelated = new File(dotDocker, "contexts");
+        unrelated.mkdirs();
+        unrelated.setLastModified(old);
+        File staleTmp = newSecretsDir(tmp);
+        staleTmp.setLastModified(old);
+        File durable = new File(tmp, "durable-1234");
+        durable.mkdirs();
+        durable.setLastModified(old);
+        File foreign = new File(tmp, UUID.randomUUID().toString());
+        foreign.mkdirs();
+        foreign.setLastModified(old);
+
+        int count = KeyMaterialReaper.sweep(dotDocker, workspaceRoot, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(3));
+
+        assertThat(count, is(3));
+        assertThat(stale.exists(), is(false));
+        assertThat(tombstone.exists(), is(false));
+        assertThat(staleTmp.exists(), is(false));
+        assertThat(fresh.exists(), is(true));
+        assertThat(unrelated.exists(), is(true));
+        assertThat(durable.exists(), is(true));
+        assertThat(foreign.exists(), is(true));
+    }
+
+    private static File newSecretsDir(File parent) throws Exception {
+        File dir = new File(parent, KeyMaterialFactory.SECRETS_DIRECTORY_PREFIX + UUID.randomUUID());
+        dir.mkdirs();
+        new FilePath(new File(dir, "key.pem")).write("secret", "UTF-8");
+        return dir;
+    }
+}
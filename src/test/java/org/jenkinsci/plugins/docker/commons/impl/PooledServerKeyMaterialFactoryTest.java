@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeNoException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.Functions;
+
+public class PooledServerKeyMaterialFactoryTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final List<FakeDaemon> daemons = new ArrayList<>();
+
+    @Before
+    public void unixSockets() {
+        assumeFalse(Functions.isWindows());
+    }
+
+    @After
+    public void stopDaemons() throws IOException {
+        for (FakeDaemon daemon : daemons) {
+            daemon.close();
+        }
+    }
+
+    @Test
+    public void leastLoadedDaemonChosen() throws Exception {
+        FakeDaemon first = daemon();
+        FakeDaemon second = daemon();
+
+        KeyMaterial2 a = pool(first.uri, second.uri).materialize2();
+        assertThat(a.env().get("DOCKER_HOST"), is(first.uri));
+        KeyMaterial2 b = pool(first.uri, second.uri).materialize2();
+        assertThat(b.env().get("DOCKER_HOST"), is(second.uri));
+
+        a.close(FilePath.localChannel);
+        KeyMaterial2 c = pool(first.uri, second.uri).materialize2();
+        assertThat(c.env().get("DOCKER_HOST"), is(first.uri));
+        b.close(FilePath.localChannel);
+        c.close(FilePath.localChannel);
+
+        // health is cached rather than checked on every materialization
+        assertThat(first.pings.get() + second.pings.get(), is(2));
+    }
+
+    @Test
+    public void downDaemonSkipped() throws Exception {
+        String missing = "unix://" + new File(tempFolder.getRoot(), "missing.sock");
+        FakeDaemon up = daemon();
+
+        KeyMaterial2 material = pool(missing, up.uri).materialize2();
+        assertThat(material.env().get("DOCKER_HOST"), is(up.uri));
+        material.close(FilePath.localChannel);
+    }
+
+    @Test
+    public void failsWhenAllDown() throws Exception {
+        FakeDaemon down = daemon();
+        down.close();
+
+        AbortException x = assertThrows(AbortException.class, () -> pool(down.uri).materialize2());
+        assertThat(x.getMessage(), containsString(down.uri));
+    }
+
+    @Test
+    public void tlsDaemonProbedOnTlsPort() throws Exception {
+        assertThat(EngineConnection.port(URI.create("tcp://docker.example.com"), true), is(2376));
+        assertThat(EngineConnection.port(URI.create("tcp://docker.example.com"), false), is(2375));
+        assertThat(EngineConnection.port(URI.create("tcp://docker.example.com:1234"), true), is(1234));
+
+        // a TLS daemon listening on the default port only
+        ServerSocket daemon;
+        try {
+            daemon = new ServerSocket(2376, 50, InetAddress.getLoopbackAddress());
+        } catch (BindException x) {
+            assumeNoException("port 2376 is in use", x);
+            return;
+        }
+        try (ServerSocket ignored = daemon) {
+            String uri = "tcp://" + InetAddress.getLoopbackAddress().getHostAddress();
+            KeyMaterial2 material = pool(true, uri).materialize2();
+            assertThat(material.env().get("DOCKER_HOST"), is(uri));
+            material.close(FilePath.localChannel);
+        }
+    }
+
+    private PooledServerKeyMaterialFactory pool(String... uris) throws IOException {
+        return pool(false, uris);
+    }
+
+    private PooledServerKeyMaterialFactory pool(boolean tls, String... uris) throws IOException {
+        KeyMaterialContext context = new KeyMaterialContext(new FilePath(tempFolder.getRoot()));
+        List<PooledServerKeyMaterialFactory.Candidate> candidates = new ArrayList<>();
+        for (String uri : uris) {
+            candidates.add(new PooledServerKeyMaterialFactory.Candidate(uri, tls, new ServerHostKeyMaterialFactory(uri).contextualize(context)));
+        }
+        return (PooledServerKeyMaterialFactory) new PooledServerKeyMaterialFactory(null, candidates).contextualize(context);
+    }
+
+    private FakeDaemon daemon() throws IOException {
+        FakeDaemon daemon = new FakeDaemon(tempFolder.newFolder().toPath().resolve("docker.sock").toString());
+        daemons.add(daemon);
+        return daemon;
+    }
+
+    /**
+     * Answers {@code GET /_ping} the way dockerd does.
+     */
+    private static final class FakeDaemon implements Runnable {
+
+        final String uri;
+        final AtomicInteger pings = new AtomicInteger();
+        private final String socket;
+        private final ServerSocketChannel channel;
+
+        FakeDaemon(String socket) throws IOException {
+            this.socket = socket;
+            this.uri = "unix://" + socket;
+            channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.bind(UnixDomainSocketAddress.of(socket));
+            Thread thread = new Thread(this, "fake dockerd " + socket);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (channel.isOpen()) {
+                try (SocketChannel connection = channel.accept()) {
+                    String request = new BufferedReader(new InputStreamReader(Channels.newInputStream(connection), StandardCharsets.US_ASCII)).readLine();
+                    String response;
+                    if (request != null && request.startsWith("GET /_ping ")) {
+                        pings.incrementAndGet();
+                        response = "HTTP/1.0 200 OK\r\nContent-Type: text/plain\r\n\r\nOK";
+                    } else {
+                        response = "HTTP/1.0 404 Not Found\r\n\r\n";
+                    }
+                    connection.write(ByteBuffer.wrap(response.getBytes(StandardCharsets.US_ASCII)));
+                } catch (IOException x) {
+                    // closed
+                }
+            }
+        }
+
+        void close() throws IOException {
+            channel.close();
+            new File(socket).delete();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+
+import com.sun.net.httpserver.HttpServer;
+import hudson.AbortException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RegistryHealthTest {
+
+    private long openSeconds;
+    private long probeInterval;
+    private HttpServer server;
+
+    @Before
+    public void setUp() {
+        openSeconds = RegistryHealth.OPEN_SECONDS;
+        probeInterval = RegistryHealth.PROBE_INTERVAL_SECONDS;
+    }
+
+    @After
+    public void tearDown() {
+        RegistryHealth.OPEN_SECONDS = openSeconds;
+        RegistryHealth.PROBE_INTERVAL_SECONDS = probeInterval;
+        RegistryHealth.clear();
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void opensOnFailures() throws Exception {
+        URL endpoint = new URL("https://registry.example.com/");
+        RegistryHealth.record(endpoint, true, 1_000_000);
+        for (int i = 1; i < RegistryHealth.MIN_LOGINS; i++) {
+            RegistryHealth.check(endpoint);
+            RegistryHealth.record(endpoint, false, 1_000_000);
+        }
+        assertThat(RegistryHealth.isAvailable("registry.example.com"), is(false));
+        AbortException x = assertThrows(AbortException.class, () -> RegistryHealth.check(endpoint));
+        assertThat(x.getMessage(), containsString("4 of its last 5 logins failed"));
+        // other registries are not affected
+        RegistryHealth.check(new URL("https://other.example.com/"));
+
+        List<RegistryHealth.Status> statuses = RegistryHealth.getStatuses();
+        assertThat(statuses.size(), is(1));
+        RegistryHealth.Status status = statuses.get(0);
+        assertThat(status.getState(), is(RegistryHealth.State.OPEN));
+        assertThat(status.getFailurePercent(), is(80L));
+        assertThat(status.getLatencyMillis(), is(1L));
+        assertThat(status.getLogins(), is(5L));
+        assertThat(status.getTrips(), is(1));
+
+        RegistryHealth.reset("registry.example.com");
+        RegistryHealth.check(endpoint);
+    }
+
+    @Test
+    public void registryFailures() {
+        assertThat(RegistryHealth.isRegistryFailure("Error response from daemon: Get \"https://registry.example.com/v2/\": net/http: request canceled while waiting for connection (Client.Timeout exceeded while awaiting headers)"), is(true));
+        assertThat(RegistryHealth.isRegistryFailure("Error response from daemon: Get \"https://registry.example.com/v2/\": dial tcp 10.0.0.1:443: connect: connection refused"), is(true));
+        assertThat(RegistryHealth.isRegistryFailure("Error response from daemon: Get \"https://registry.example.com/v2/\": dial tcp: lookup registry.example.com: no such host"), is(true));
+        assertThat(RegistryHealth.isRegistryFailure("Error response from daemon: received unexpected HTTP status: 503 Service Unavailable"), is(true));
+        assertThat(RegistryHealth.isRegistryFailure("Error response from daemon: toomanyrequests: too many failed login attempts"), is(true));
+        assertThat(RegistryHealth.isRegistryFailure("Error response from daemon: Get \"https://registry.example.com/v2/\": unauthorized: incorrect username or password"), is(false));
+        assertThat(RegistryHealth.isRegistryFailure("Error response from daemon: login attempt to https://registry.example.com/v2/ failed with status: 401 Unauthorized"), is(false));
+    }
+
+    @Test
+    public void probedUntilBack() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v2/", exchange -> {
+            exchange.sendResponseHeaders(401, -1);
+            exchange.close();
+        });
+        URL endpoint = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        String registry = "127.0.0.1:" + server.getAddress().getPort();
+        RegistryHealth.PROBE_INTERVAL_SECONDS = 1;
+        for (int i = 0; i < RegistryHealth.MIN_LOGINS; i++) {
+            RegistryHealth.record(endpoint, false, 0);
+        }
+        assertThat(RegistryHealth.isAvailable(registry), is(false));
+        server.start();
+        await().atMost(Duration.ofSeconds(10)).until(() -> RegistryHealth.isAvailable(registry));
+        assertThat(RegistryHealth.getStatuses().get(0).getState(), is(RegistryHealth.State.HALF_OPEN));
+
+        // one more failure is enough to stop again
+        RegistryHealth.record(endpoint, false, 0);
+        assertThat(RegistryHealth.isAvailable(registry), is(false));
+        assertThat(RegistryHealth.getStatuses().get(0).getTrips(), is(2));
+        await().atMost(Duration.ofSeconds(10)).until(() -> RegistryHealth.isAvailable(registry));
+        // and one success to close
+        RegistryHealth.record(endpoint, true, 0);
+        assertThat(RegistryHealth.getStatuses().get(0).getState(), is(RegistryHealth.State.CLOSED));
+        RegistryHealth.record(endpoint, false, 0);
+        assertThat(RegistryHealth.isAvailable(registry), is(true));
+    }
+
+    @Test
+    public void triedAgainAfterAWhile() throws Exception {
+        RegistryHealth.OPEN_SECONDS = 0;
+        RegistryHealth.PROBE_INTERVAL_SECONDS = 0;
+        URL endpoint = new URL("https://registry.example.com/");
+        for (int i = 0; i < RegistryHealth.MIN_LOGINS; i++) {
+            RegistryHealth.record(endpoint, false, 0);
+        }
+        RegistryHealth.check(endpoint);
+        assertThat(RegistryHealth.getStatuses().get(0).getState(), is(RegistryHealth.State.HALF_OPEN));
+    }
+
+    @Test
+    public void oneTrialAtATime() throws Exception {
+        RegistryHealth.OPEN_SECONDS = 0;
+        RegistryHealth.PROBE_INTERVAL_SECONDS = 0;
+        URL endpoint = new URL("https://registry.example.com/");
+        for (int i = 0; i < RegistryHealth.MIN_LOGINS; i++) {
+            RegistryHealth.record(endpoint, false, 0);
+        }
+        assertThat(RegistryHealth.check(endpoint), is(true));
+        AbortException x = assertThrows(AbortException.class, () -> RegistryHealth.check(endpoint));
+        assertThat(x.getMessage(), containsString("while another login finds out"));
+        assertThat(RegistryHealth.isAvailable("registry.example.com"), is(false));
+        // a trial which says nothing about the registry lets another one go ahead
+        RegistryHealth.release(endpoint);
+        assertThat(RegistryHealth.isAvailable("registry.example.com"), is(true));
+        assertThat(RegistryHealth.check(endpoint), is(true));
+        RegistryHealth.record(endpoint, true, 0);
+        assertThat(RegistryHealth.getStatuses().get(0).getState(), is(RegistryHealth.State.CLOSED));
+        assertThat(RegistryHealth.check(endpoint), is(false));
+        assertThat(RegistryHealth.check(endpoint), is(false));
+    }
+
+}
@@ -26,15 +26,27 @@ package org.jenkinsci.plugins.docker.commons.impl;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.jenkinsci.plugins.docker.commons.credentials.DockerRegistryEndpoint;
@@ -50,8 +62,10 @@ import org.jvnet.hudson.test.FakeLauncher;
 import org.jvnet.hudson.test.JenkinsRule;
 import org.jvnet.hudson.test.PretendSlave;
 
+import hudson.AbortException;
 import hudson.EnvVars;
 import hudson.FilePath;
+import hudson.Functions;
 import hudson.Launcher;
 import hudson.Launcher.ProcStarter;
 import hudson.Proc;
@@ -92,7 +106,7 @@ public class RegistryKeyMaterialFactoryTest {
 		    @Override
 		    public <V, T extends Throwable> V call(final Callable<V, T> callable) throws T {
 			// ugly as hell, but we need a way to mock fetching the home directory
-			return (V) new FilePath(tempFolder.getRoot());
+			return (V) new AgentFacts(tempFolder.getRoot().getAbsolutePath(), "Linux", "amd64");
 		    }
 		};
 	    }
@@ -233,4 +247,224 @@ public class RegistryKeyMaterialFactoryTest {
 	assertEquals("{\"HttpHeaders\":{\"User-Agent\":\"Docker-Client\"}}", FileUtils.readFileToString(jsonFile, Charset.defaultCharset()));
     }
 
+    @Test
+    public void materialize_userConfigFileChanged_filteredAgain() throws Exception {
+	// arrange
+	File cfgFile = new File(new File(tempFolder.getRoot(), ".docker"), "config.json");
+	FileUtils.write(cfgFile, "{\"auths\": {}, \"detachKeys\": \"ctrl-e\"}", Charset.defaultCharset());
+	KeyMaterial2 first = factory.materialize2();
+	FileUtils.write(cfgFile, "{\"auths\": {}, \"detachKeys\": \"ctrl-e,e\"}", Charset.defaultCharset());
+	cfgFile.setLastModified(cfgFile.lastModified() + 2000);
+
+	// act
+	KeyMaterial2 second = factory.materialize2();
+
+	// assert
+	assertEquals("{\"detachKeys\":\"ctrl-e\"}",
+		FileUtils.readFileToString(new File(first.env().get("DOCKER_CONFIG"), "config.json"), Charset.defaultCharset()));
+	assertEquals("{\"detachKeys\":\"ctrl-e,e\"}",
+		FileUtils.readFileToString(new File(second.env().get("DOCKER_CONFIG"), "config.json"), Charset.defaultCharset()));
+    }
+
+    @Test
+    public void materialize_severalRegistries_mergedIntoOneConfig() throws Exception {
+	// arrange: a fake docker login recording the registry it logged in to
+	FakeLauncher faker = new FakeLauncher() {
+	    @Override
+	    public Proc onLaunch(final ProcStarter p) throws IOException {
+		for (String env : p.envs()) {
+		    if (env.startsWith("DOCKER_CONFIG=")) {
+			String registry = p.cmds().get(p.cmds().size() - 1);
+			FileUtils.write(new File(env.substring("DOCKER_CONFIG=".length()), "config.json"),
+				"{\"auths\": {\"" + registry + "\": {\"auth\": \"whatever\"}}}", Charset.defaultCharset());
+		    }
+		}
+		return new FinishedProc(0);
+	    }
+	};
+	TaskListener listener = TaskListener.NULL;
+	Launcher launcher = j.createPretendSlave(faker).createLauncher(listener);
+	FilePath baseDir = new FilePath(tempFolder.newFolder());
+	KeyMaterialFactory first = new RegistryKeyMaterialFactory("username", "password", new URL("https://one.example.com"), launcher,
+		new EnvVars(), listener, "docker").contextualize(new KeyMaterialContext(baseDir));
+	KeyMaterialFactory second = new RegistryKeyMaterialFactory("username", "password", new URL("https://two.example.com"), launcher,
+		new EnvVars(), listener, "docker").contextualize(new KeyMaterialContext(baseDir));
+
+	// act
+	KeyMaterial2 material = first.plus(second).materialize2();
+
+	// assert
+	File dockerCfgFolder = new File(material.env().get("DOCKER_CONFIG"));
+	assertThat(baseDir.list().size(), is(1));
+	String json = FileUtils.readFileToString(new File(dockerCfgFolder, "config.json"), Charset.defaultCharset());
+	assertThat(json, containsString("https://one.example.com"));
+	assertThat(json, containsString("https://two.example.com"));
+    }
+
+    @Test
+    public void materialize_withContexts_sharesOneConfig() throws Exception {
+	// arrange: a fake docker login writing its auths
+	FakeLauncher faker = new FakeLauncher() {
+	    @Override
+	    public Proc onLaunch(final ProcStarter p) throws IOException {
+		for (String env : p.envs()) {
+		    if (env.startsWith("DOCKER_CONFIG=")) {
+			FileUtils.write(new File(env.substring("DOCKER_CONFIG=".length()), "config.json"),
+				"{\"auths\": {\"https://one.example.com\": {\"auth\": \"whatever\"}}}", Charset.defaultCharset());
+		    }
+		}
+		return new FinishedProc(0);
+	    }
+	};
+	TaskListener listener = TaskListener.NULL;
+	Launcher launcher = j.createPretendSlave(faker).createLauncher(listener);
+	FilePath baseDir = new FilePath(tempFolder.newFolder());
+	KeyMaterialFactory contexts = new DockerContextKeyMaterialFactory(Collections.singletonList(
+		new DockerContextKeyMaterialFactory.Context("ci", "tcp://docker.example.com:2375", null, null, null)))
+		.contextualize(new KeyMaterialContext(baseDir));
+	KeyMaterialFactory registry = new RegistryKeyMaterialFactory("username", "password", new URL("https://one.example.com"), launcher,
+		new EnvVars(), listener, "docker").contextualize(new KeyMaterialContext(baseDir));
+
+	// act: the contexts come first, yet must not export a DOCKER_CONFIG of their own
+	KeyMaterial2 material = contexts.plus(registry).materialize2();
+
+	// assert
+	try {
+	    File dockerCfgFolder = new File(material.env().get("DOCKER_CONFIG"));
+	    assertThat(baseDir.list().size(), is(1));
+	    String json = FileUtils.readFileToString(new File(dockerCfgFolder, "config.json"), Charset.defaultCharset());
+	    assertThat(json, containsString("https://one.example.com"));
+	    assertThat(new File(dockerCfgFolder, "contexts/meta").list().length, is(1));
+	} finally {
+	    material.close(FilePath.localChannel);
+	}
+    }
+
+    @Test
+    public void materialize_rateLimited_retried() throws Exception {
+	// arrange: a fake docker login refused once by the registry rate limiting
+	AtomicInteger attempts = new AtomicInteger();
+	FakeLauncher faker = new FakeLauncher() {
+	    @Override
+	    public Proc onLaunch(final ProcStarter p) throws IOException {
+		if (attempts.incrementAndGet() == 1) {
+		    p.stdout().write("Error response from daemon: toomanyrequests: too many failed login attempts\n".getBytes(StandardCharsets.UTF_8));
+		    return new FinishedProc(1);
+		}
+		return new FinishedProc(0);
+	    }
+	};
+	TaskListener listener = TaskListener.NULL;
+	Launcher launcher = j.createPretendSlave(faker).createLauncher(listener);
+	KeyMaterialFactory rateLimited = new RegistryKeyMaterialFactory("username", "password", new URL("https://limited.example.com"), launcher,
+		new EnvVars(), listener, "docker").contextualize(new KeyMaterialContext(new FilePath(tempFolder.newFolder())));
+	long backoff = RegistryLoginThrottle.BACKOFF_MILLIS;
+	RegistryLoginThrottle.BACKOFF_MILLIS = 10;
+	try {
+	    // act
+	    KeyMaterial2 material = rateLimited.materialize2();
+
+	    // assert
+	    assertNotNull(material.env().get("DOCKER_CONFIG", null));
+	    assertThat(attempts.get(), is(2));
+	} finally {
+	    RegistryLoginThrottle.BACKOFF_MILLIS = backoff;
+	}
+    }
+
+    @Test
+    public void materialize_loginHangs_killedAndCleanedUp() throws Exception {
+	assumeFalse(Functions.isWindows());
+	// arrange
+	FilePath baseDir = new FilePath(tempFolder.newFolder());
+	KeyMaterialFactory hanging = fakeDockerFactory(baseDir, "sleep 60\n");
+	long timeout = RegistryKeyMaterialFactory.LOGIN_TIMEOUT_SECONDS;
+	RegistryKeyMaterialFactory.LOGIN_TIMEOUT_SECONDS = 1;
+	try {
+	    // act
+	    AbortException x = assertThrows(AbortException.class, hanging::materialize2);
+
+	    // assert
+	    assertThat(x.getMessage(), containsString("timed out"));
+	    assertThat(baseDir.list(), empty());
+	} finally {
+	    RegistryKeyMaterialFactory.LOGIN_TIMEOUT_SECONDS = timeout;
+	}
+    }
+
+    @Test
+    public void materialize_loginSlow_hedgedAttemptWins() throws Exception {
+	assumeFalse(Functions.isWindows());
+	// arrange: only the first login hangs
+	FilePath baseDir = new FilePath(tempFolder.newFolder());
+	File marker = new File(tempFolder.getRoot(), "first-login");
+	KeyMaterialFactory slow = fakeDockerFactory(baseDir,
+		"if mkdir '" + marker + "' 2>/dev/null; then sleep 60; fi\n"
+		+ "echo '{\"auths\": {\"https://slow.example.com\": {\"auth\": \"whatever\"}}}' > \"$DOCKER_CONFIG/config.json\"\n");
+	long hedgeAfter = RegistryKeyMaterialFactory.HEDGE_AFTER_SECONDS;
+	RegistryKeyMaterialFactory.HEDGE_AFTER_SECONDS = 1;
+	try {
+	    // act
+	    KeyMaterial2 material = slow.materialize2();
+
+	    // assert
+	    File dockerCfgFolder = new File(material.env().get("DOCKER_CONFIG"));
+	    assertThat(FileUtils.readFileToString(new File(dockerCfgFolder, "config.json"), Charset.defaultCharset()),
+		    containsString("https://slow.example.com"));
+	    assertThat(baseDir.list().size(), is(1));
+	} finally {
+	    RegistryKeyMaterialFactory.HEDGE_AFTER_SECONDS = hedgeAfter;
+	}
+    }
+
+    @Test
+    public void materialize_identityToken_writtenWithoutLogin() throws Exception {
+	// arrange
+	FakeLauncher faker = new FakeLauncher() {
+	    @Override
+	    public Proc onLaunch(final ProcStarter p) throws IOException {
+		throw new AssertionError("no docker login expected");
+	    }
+	};
+	TaskListener listener = TaskListener.NULL;
+	Launcher launcher = j.createPretendSlave(faker).createLauncher(listener);
+	KeyMaterialFactory identityToken = new RegistryKeyMaterialFactory(RegistryKeyMaterialFactory.IDENTITY_TOKEN_USERNAME, "refresh-token",
+		new URL("https://registry.example.com"), launcher, new EnvVars(), listener, "docker")
+		.contextualize(new KeyMaterialContext(new FilePath(tempFolder.newFolder())));
+
+	// act
+	KeyMaterial2 material = identityToken.materialize2();
+
+	// assert
+	String json = FileUtils.readFileToString(new File(material.env().get("DOCKER_CONFIG"), "config.json"), Charset.defaultCharset());
+	assertThat(json, containsString("\"https://registry.example.com\":{"));
+	assertThat(json, containsString("\"identitytoken\":\"refresh-token\""));
+    }
+
+    @Test
+    public void serialForm_readsBaseline() throws Exception {
+	// as written for /tmp/docker-commons-config by the version without serialVersionUID
+	String baseline = "rO0ABXNyAFlvcmcuamVua2luc2NpLnBsdWdpbnMuZG9ja2VyLmNvbW1vbnMuaW1wbC5SZWdpc3RyeUtleU1hdGVyaWFsRmFjdG9yeSRSZWdp"
+		+ "c3RyeUtleU1hdGVyaWFsMn5kJxQ7deSOAgABTAAMZG9ja2VyQ29uZmlndAASTGphdmEvbGFuZy9TdHJpbmc7eHIAPW9yZy5qZW5raW5zY2kucGx1Z2lu"
+		+ "cy5kb2NrZXIuY29tbW9ucy5jcmVkZW50aWFscy5LZXlNYXRlcmlhbDIAAAAAAAAAAQIAAUwAB2VudlZhcnN0ABBMaHVkc29uL0VudlZhcnM7eHBwdAAa"
+		+ "L3RtcC9kb2NrZXItY29tbW9ucy1jb25maWc=";
+	try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(baseline)))) {
+	    KeyMaterial2 material = (KeyMaterial2) ois.readObject();
+	    assertEquals("/tmp/docker-commons-config", material.env().get("DOCKER_CONFIG"));
+	    assertThat(((KeyMaterialReaper.Reapable) material).getReapablePaths(), contains("/tmp/docker-commons-config"));
+	}
+    }
+
+    /**
+     * Creates a factory running the given shell snippet in place of docker(1).
+     */
+    private KeyMaterialFactory fakeDockerFactory(FilePath baseDir, String script) throws Exception {
+	File docker = tempFolder.newFile("docker");
+	FileUtils.write(docker, "#!/bin/sh\n" + script, Charset.defaultCharset());
+	assertTrue(docker.setExecutable(true));
+	TaskListener listener = TaskListener.NULL;
+	return new RegistryKeyMaterialFactory("username", "password", new URL("https://slow.example.com"), new Launcher.LocalLauncher(listener),
+		new EnvVars(), listener, docker.getAbsolutePath()).contextualize(new KeyMaterialContext(baseDir));
+    }
+
 }
@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import hudson.model.TaskListener;
+
+public class RegistryLoginThrottleTest {
+
+    @Test
+    public void bucket_burstThenPaced() {
+        RegistryLoginThrottle.Bucket bucket = new RegistryLoginThrottle.Bucket(2, 3);
+        long now = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.reserve(now), is(0L));
+        }
+        // queued callers are spaced by 1/rate
+        assertThat(bucket.reserve(now), is(TimeUnit.MILLISECONDS.toNanos(500)));
+        assertThat(bucket.reserve(now), is(TimeUnit.MILLISECONDS.toNanos(1000)));
+        bucket.cancel();
+        assertThat(bucket.reserve(now), is(TimeUnit.MILLISECONDS.toNanos(1000)));
+        // refilled after a while, but never beyond the burst
+        assertThat(bucket.reserve(now + TimeUnit.SECONDS.toNanos(60)), is(0L));
+        assertThat(bucket.reserve(now + TimeUnit.SECONDS.toNanos(60)), is(0L));
+        assertThat(bucket.reserve(now + TimeUnit.SECONDS.toNanos(60)), is(0L));
+        assertThat(bucket.reserve(now + TimeUnit.SECONDS.toNanos(60)), is(TimeUnit.MILLISECONDS.toNanos(500)));
+    }
+
+    @Test
+    public void queueDepths_countWaitingLogins() throws Exception {
+        String rates = RegistryLoginThrottle.RATES;
+        RegistryLoginThrottle.RATES = "queued.example.com=0.1/1";
+        List<Thread> logins = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                Thread login = new Thread(() -> {
+                    try {
+                        RegistryLoginThrottle.acquire("queued.example.com", TaskListener.NULL);
+                    } catch (InterruptedException x) {
+                        // cancelled below
+                    }
+                });
+                login.start();
+                logins.add(login);
+            }
+            // one login goes through, the other two wait for ten and twenty seconds
+            await().until(() -> new RegistryHealthLink().getQueueDepths().get("queued.example.com"), is(2));
+        } finally {
+            RegistryLoginThrottle.RATES = rates;
+            for (Thread login : logins) {
+                login.interrupt();
+                login.join();
+            }
+        }
+        assertThat(RegistryLoginThrottle.getQueueDepths().get("queued.example.com"), is(0));
+    }
+
+    @Test
+    public void doubleProperty_fallsBackOnMalformedValues() {
+        String name = RegistryLoginThrottleTest.class.getName() + ".RATE";
+        try {
+            assertThat(RegistryLoginThrottle.doubleProperty(name, 10), is(10.0));
+            System.setProperty(name, " 2.5 ");
+            assertThat(RegistryLoginThrottle.doubleProperty(name, 10), is(2.5));
+            System.setProperty(name, "fast");
+            assertThat(RegistryLoginThrottle.doubleProperty(name, 10), is(10.0));
+            System.setProperty(name, "NaN");
+            assertThat(RegistryLoginThrottle.doubleProperty(name, 10), is(10.0));
+        } finally {
+            System.clearProperty(name);
+        }
+    }
+
+    @Test
+    public void isRateLimited() {
+        assertThat(RegistryLoginThrottle.isRateLimited("Error response from daemon: toomanyrequests: You have reached your pull rate limit."), is(true));
+        assertThat(RegistryLoginThrottle.isRateLimited("Error: received unexpected HTTP status: 429 Too Many Requests"), is(true));
+        assertThat(RegistryLoginThrottle.isRateLimited("Error response from daemon: unauthorized: incorrect username or password"), is(false));
+    }
+
+    @Test
+    public void backoff_jitteredAndCapped() {
+        long base = RegistryLoginThrottle.BACKOFF_MILLIS;
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            long full = base << (attempt - 1);
+            assertThat(RegistryLoginThrottle.backoff(attempt), allOf(greaterThanOrEqualTo(full / 2), lessThanOrEqualTo(full)));
+        }
+        assertThat(RegistryLoginThrottle.backoff(100), lessThanOrEqualTo(TimeUnit.MINUTES.toMillis(1)));
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import com.cloudbees.plugins.credentials.domains.HostnameSpecification;
+import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import com.sun.net.httpserver.HttpServer;
+import hudson.model.Item;
+import org.jenkinsci.plugins.docker.commons.credentials.DockerRegistryEndpoint;
+import org.jenkinsci.plugins.docker.commons.credentials.RegistryMirror;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class RegistryMirrorSelectorTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private final List<StubRegistry> registries = new ArrayList<>();
+
+    @Before
+    public void clear() {
+        RegistryMirrorSelector.clear();
+    }
+
+    @After
+    public void stopRegistries() {
+        for (StubRegistry registry : registries) {
+            registry.server.stop(0);
+        }
+    }
+
+    @Test
+    public void fastestFirst() throws Exception {
+        StubRegistry slow = stub(500);
+        StubRegistry fast = stub(0);
+        DockerRegistryEndpoint endpoint = endpoint("https://docker.acme.com/",
+                new RegistryMirror(slow.url(), null), new RegistryMirror(fast.url(), null));
+        List<DockerRegistryEndpoint> mirrors = endpoint.getMirrorsFor(j.jenkins);
+        assertThat(urls(mirrors), contains(fast.url(), slow.url(), "https://docker.acme.com/"));
+        assertThat(mirrors.get(0).imageName("acme/test"), is(fast.authority() + "/acme/test"));
+        assertThat(mirrors.get(0).imageName("docker.acme.com/acme/test:1"), is(fast.authority() + "/acme/test:1"));
+        assertThat(mirrors.get(2).imageName("acme/test"), is("docker.acme.com/acme/test"));
+
+        // latencies are cached
+        endpoint.getMirrorsFor(j.jenkins);
+        assertThat(slow.probes.get(), is(1));
+        assertThat(fast.probes.get(), is(1));
+    }
+
+    @Test
+    public void labelsFirst() throws Exception {
+        j.jenkins.setLabelString("dc2");
+        StubRegistry dc1 = stub(0);
+        StubRegistry dc2 = stub(500);
+        StubRegistry any = stub(0);
+        DockerRegistryEndpoint endpoint = endpoint(null,
+                new RegistryMirror(any.url(), null), new RegistryMirror(dc1.url(), "dc1"), new RegistryMirror(dc2.url(), "dc2"));
+        List<DockerRegistryEndpoint> mirrors = endpoint.getMirrorsFor(j.jenkins);
+        assertThat(urls(mirrors), contains(dc2.url(), any.url(), null));
+        assertThat(dc1.probes.get(), is(0));
+        // as docker(1) does with registry-mirrors
+        assertThat(mirrors.get(0).imageName("ubuntu"), is(dc2.authority() + "/library/ubuntu"));
+        assertThat(mirrors.get(0).imageName("jenkins/jenkins:lts"), is(dc2.authority() + "/jenkins/jenkins:lts"));
+    }
+
+    @Test
+    public void unreachableSkipped() throws Exception {
+        StubRegistry down = stub(0);
+        StubRegistry up = stub(0);
+        down.server.stop(0);
+        DockerRegistryEndpoint endpoint = endpoint("https://docker.acme.com/",
+                new RegistryMirror(down.url(), null), new RegistryMirror(up.url(), null));
+        assertThat(urls(endpoint.getMirrorsFor(j.jenkins)), contains(up.url(), "https://docker.acme.com/"));
+        up.server.stop(0);
+        // until probed again
+        assertThat(urls(endpoint.getMirrorsFor(j.jenkins)), contains(up.url(), "https://docker.acme.com/"));
+        RegistryMirrorSelector.clear();
+        assertThat(urls(endpoint.getMirrorsFor(j.jenkins)), contains("https://docker.acme.com/"));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void mirrorCredentialsMatchedAgainstMirrorHost() throws Exception {
+        CredentialsStore store = CredentialsProvider.lookupStores(j.jenkins).iterator().next();
+        Domain acme = new Domain("acme", null, Collections.singletonList(new HostnameSpecification("docker.acme.com", null)));
+        store.addDomain(acme, new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "acme-creds", null, "user", "password"));
+        store.addCredentials(Domain.global(), new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "any-creds", null, "user", "password"));
+        StubRegistry mirror = stub(0);
+
+        List<DockerRegistryEndpoint> endpoints = endpoint("https://docker.acme.com/", "acme-creds", new RegistryMirror(mirror.url(), null)).getMirrorsFor(j.jenkins);
+        assertThat(urls(endpoints), contains(mirror.url(), "https://docker.acme.com/"));
+        // credentials meant for the registry only are not sent to its mirror
+        assertThat(endpoints.get(0).getToken((Item) null), nullValue());
+        assertThat(endpoints.get(1).getToken((Item) null), notNullValue());
+
+        endpoints = endpoint("https://docker.acme.com/", "any-creds", new RegistryMirror(mirror.url(), null)).getMirrorsFor(j.jenkins);
+        assertThat(endpoints.get(0).getToken((Item) null), notNullValue());
+    }
+
+    private static DockerRegistryEndpoint endpoint(String url, RegistryMirror... mirrors) {
+        return endpoint(url, null, mirrors);
+    }
+
+    private static DockerRegistryEndpoint endpoint(String url, String credentialsId, RegistryMirror... mirrors) {
+        DockerRegistryEndpoint endpoint = new DockerRegistryEndpoint(url, credentialsId);
+        endpoint.setMirrors(Arrays.asList(mirrors));
+        return endpoint;
+    }
+
+    private static List<String> urls(List<DockerRegistryEndpoint> endpoints) {
+        List<String> urls = new ArrayList<>();
+        for (DockerRegistryEndpoint endpoint : endpoints) {
+            urls.add(endpoint.getUrl());
+        }
+        return urls;
+    }
+
+    private StubRegistry stub(long latency) throws IOException {
+        StubRegistry registry = new StubRegistry(latency);
+        registries.add(registry);
+        return registry;
+    }
+
+    /**
+     * Answers {@code /v2/} as a registry does without credentials, after some delay.
+     */
+    private static final class StubRegistry {
+
+        final HttpServer server;
+        final AtomicInteger probes = new AtomicInteger();
+
+        StubRegistry(long latency) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/v2/", exchange -> {
+                probes.incrementAndGet();
+                try {
+                    Thread.sleep(latency);
+                } catch (InterruptedException x) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.getResponseHeaders().add("WWW-Authenticate", "Bearer realm=\"http://127.0.0.1/token\"");
+                exchange.sendResponseHeaders(401, -1);
+                exchange.close();
+            });
+            server.start();
+        }
+
+        String authority() {
+            return "127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        String url() {
+            return "http://" + authority() + "/";
+        }
+    }
+
+}
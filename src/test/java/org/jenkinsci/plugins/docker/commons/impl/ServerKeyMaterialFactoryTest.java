@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.not;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.util.Base64;
+
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.FilePath;
+import hudson.Functions;
+
+public class ServerKeyMaterialFactoryTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private FilePath baseDir;
+
+    @Before
+    public void setup() throws Exception {
+        ServerKeyMaterialFactory.SHARED_DIRECTORIES = true;
+        baseDir = new FilePath(tempFolder.newFolder());
+    }
+
+    @After
+    public void tearDown() {
+        ServerKeyMaterialFactory.SHARED_DIRECTORIES = false;
+    }
+
+    @Test
+    public void sharedDirectory_leasedUntilLastClose() throws Exception {
+        KeyMaterial2 first = materialize("a", "b", "c");
+        KeyMaterial2 second = materialize("a", "b", "c");
+
+        String certPath = first.env().get("DOCKER_CERT_PATH");
+        assertThat(second.env().get("DOCKER_CERT_PATH"), is(certPath));
+        File dir = new File(certPath);
+        // other agent processes on this host get directories of their own
+        assertThat(dir.getName(), matchesPattern(ServerKeyMaterialFactory.SHARED_DIRECTORY_PREFIX + "[0-9a-f]{64}-[0-9a-f-]{36}"));
+        assertThat(new FilePath(dir).child("key.pem").readToString(), is("a"));
+        if (!Functions.isWindows()) {
+            assertThat(new FilePath(dir).mode() & 0777, is(0700));
+        }
+
+        first.close(FilePath.localChannel);
+        assertThat(dir.isDirectory(), is(true));
+        second.close(FilePath.localChannel);
+        assertThat(dir.exists(), is(false));
+    }
+
+    @Test
+    public void sharedDirectory_distinctPerContent() throws Exception {
+        KeyMaterial2 first = materialize("a", "b", "c");
+        KeyMaterial2 second = materialize("a", "b", "d");
+        try {
+            assertThat(second.env().get("DOCKER_CERT_PATH"), not(first.env().get("DOCKER_CERT_PATH")));
+        } finally {
+            first.close(FilePath.localChannel);
+            second.close(FilePath.localChannel);
+        }
+    }
+
+    @Test
+    public void serialForm_readsBaseline() throws Exception {
+        // as written for /tmp/docker-commons-certs by the version without serialVersionUID
+        String baseline = "rO0ABXNyAFVvcmcuamVua2luc2NpLnBsdWdpbnMuZG9ja2VyLmNvbW1vbnMuaW1wbC5TZXJ2ZXJLZXlNYXRlcmlhbEZhY3RvcnkkU2VydmVyS2V5"
+                + "TWF0ZXJpYWwyeprcPb7YEjUCAAFMAAd0ZW1wRGlydAASTGphdmEvbGFuZy9TdHJpbmc7eHIAPW9yZy5qZW5raW5zY2kucGx1Z2lucy5kb2NrZXIuY29t"
+                + "bW9ucy5jcmVkZW50aWFscy5LZXlNYXRlcmlhbDIAAAAAAAAAAQIAAUwAB2VudlZhcnN0ABBMaHVkc29uL0VudlZhcnM7eHBwdAAZL3RtcC9kb2NrZXIt"
+                + "Y29tbW9ucy1jZXJ0cw==";
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(baseline)))) {
+            KeyMaterial2 material = (KeyMaterial2) ois.readObject();
+            assertThat(material.env().get("DOCKER_CERT_PATH"), is("/tmp/docker-commons-certs"));
+            assertThat(((KeyMaterialReaper.Reapable) material).getReapablePaths(), contains("/tmp/docker-commons-certs"));
+        }
+    }
+
+    private KeyMaterial2 materialize(String key, String cert, String ca) throws Exception {
+        return new ServerKeyMaterialFactory(key, cert, ca).contextualize(new KeyMaterialContext(baseDir)).materialize2();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.docker.commons.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assume.assumeFalse;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterial2;
+import org.jenkinsci.plugins.docker.commons.credentials.KeyMaterialContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.FilePath;
+import hudson.Functions;
+
+public class SshControlMasterKeyMaterialFactoryTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void applies() {
+        boolean enabled = SshControlMasterKeyMaterialFactory.ENABLED;
+        try {
+            SshControlMasterKeyMaterialFactory.ENABLED = false;
+            assertThat(SshControlMasterKeyMaterialFactory.applies("ssh://docker@build.example.com"), is(false));
+            SshControlMasterKeyMaterialFactory.ENABLED = true;
+            assertThat(SshControlMasterKeyMaterialFactory.applies("ssh://docker@build.example.com"), is(true));
+            assertThat(SshControlMasterKeyMaterialFactory.applies("tcp://build.example.com:2376"), is(false));
+            assertThat(SshControlMasterKeyMaterialFactory.applies(null), is(false));
+        } finally {
+            SshControlMasterKeyMaterialFactory.ENABLED = enabled;
+        }
+    }
+
+    @Test
+    public void wrapperReusesMasterConnection() throws Exception {
+        assumeFalse(Functions.isWindows());
+        // a stand-in for ssh(1) recording how it is invoked
+        File log = new File(tempFolder.getRoot(), "ssh.log");
+        File ssh = tempFolder.newFile("ssh");
+        Files.write(ssh.toPath(), ("#!/bin/sh\necho \"$@\" >> '" + log + "'\n").getBytes(StandardCharsets.UTF_8));
+        assertThat(ssh.setExecutable(true), is(true));
+
+        KeyMaterial2 material = new SshControlMasterKeyMaterialFactory("ssh://docker@build.example.com", ssh.getAbsolutePath())
+                .contextualize(new KeyMaterialContext(new FilePath(tempFolder.newFolder()))).materialize2();
+        String bin = material.env().get("PATH+DOCKER_SSH");
+        String dir = new File(bin).getParent();
+
+        // what docker(1) runs for ssh:// hosts
+        Process process = new ProcessBuilder(bin + "/ssh", "-T", "--", "docker@build.example.com", "docker", "system", "dial-stdio").start();
+        assertThat(process.waitFor(), is(0));
+        String invocation = new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8);
+        Matcher m = Pattern.compile("-o ControlMaster=auto -o ControlPath=(\\S+)/%C -o ControlPersist=600 -T -- docker@build.example.com docker system dial-stdio\n").matcher(invocation);
+        assertThat(invocation, m.find(), is(true));
+        String control = m.group(1);
+
+        // anything else run within the block, say git over SSH, is not multiplexed
+        Files.delete(log.toPath());
+        process = new ProcessBuilder(bin + "/ssh", "git@build.example.com", "git-upload-pack", "'repo.git'").start();
+        assertThat(process.waitFor(), is(0));
+        process = new ProcessBuilder(bin + "/ssh", "-l", "docker", "other.example.com", "docker", "system", "dial-stdio").start();
+        assertThat(process.waitFor(), is(0));
+        invocation = new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8);
+        assertThat(invocation, is("git@build.example.com git-upload-pack 'repo.git'\n-l docker other.example.com docker system dial-stdio\n"));
+
+        // pretend the master connection got started
+        assertThat(new File(control, "0123abcd").createNewFile(), is(true));
+        material.close(FilePath.localChannel);
+        invocation = new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8);
+        assertThat(invocation, containsString("-o ControlPath=" + control + "/0123abcd -O exit ssh://docker@build.example.com"));
+        await().until(() -> new File(dir).exists() || new File(control).exists(), is(false));
+    }
+}